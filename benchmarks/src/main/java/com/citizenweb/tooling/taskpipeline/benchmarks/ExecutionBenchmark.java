@@ -0,0 +1,57 @@
+package com.citizenweb.tooling.taskpipeline.benchmarks;
+
+import com.citizenweb.tooling.taskpipeline.core.model.DataStreamer;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.utils.EventStoreSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end overhead of {@link Pipeline#execute()} with no-op Operations : optimization, orchestration, assembly
+ * and subscription of the results.<br>
+ * A {@link Task} is filled with its inputs when executed, so the graph is built again for each invocation.<br>
+ * Completed Pipelines are forgotten right away by the {@link DataStreamer}, so that the thousands of them executed
+ * here don't fill the heap with their events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private Pipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void configureStreamer() {
+        DataStreamer.getInstance().configure(EventStoreSettings.builder()
+                .capacityPerPipeline(16)
+                .completedPipelineGracePeriod(Duration.ZERO)
+                .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreStreamer() {
+        DataStreamer.getInstance().configure(EventStoreSettings.defaults());
+    }
+
+    @Setup(Level.Invocation)
+    public void buildPipeline() {
+        Set<Task> tasks = TaskGraphs.layered(this.size, TaskGraphs.NO_OP);
+        this.pipeline = new Pipeline("Benchmark", tasks);
+    }
+
+    @Benchmark
+    public Pipeline executeNoOpPipeline() {
+        this.pipeline.execute().forEach((task, result) -> result.join());
+        return this.pipeline;
+    }
+}
@@ -0,0 +1,56 @@
+package com.citizenweb.tooling.taskpipeline.benchmarks;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.utils.EventEncoders;
+import com.citizenweb.tooling.taskpipeline.core.utils.PipelineDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export of a {@link Pipeline}'s state : {@link PipelineDTO} construction and encoding into each wire format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private Pipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void executePipeline() {
+        this.pipeline = new Pipeline("Benchmark", TaskGraphs.layered(this.size, TaskGraphs.MERGE));
+        this.pipeline.execute().forEach((task, result) -> result.join());
+    }
+
+    @Benchmark
+    public PipelineDTO buildDto() {
+        return new PipelineDTO(this.pipeline);
+    }
+
+    @Benchmark
+    public byte[] encodeDtoJson() {
+        return EventEncoders.DTO_JSON.encodePipeline(this.pipeline);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return EventEncoders.JSON.encodePipeline(this.pipeline);
+    }
+
+    @Benchmark
+    public byte[] encodeSmile() {
+        return EventEncoders.SMILE.encodePipeline(this.pipeline);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() {
+        return EventEncoders.CBOR.encodePipeline(this.pipeline);
+    }
+}
@@ -0,0 +1,56 @@
+package com.citizenweb.tooling.taskpipeline.benchmarks;
+
+import com.citizenweb.tooling.taskpipeline.core.model.DataStreamer;
+import com.citizenweb.tooling.taskpipeline.core.model.Monitor;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.utils.EventStoreSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State changes notified by several threads at once, all for the same {@link Pipeline} :
+ * {@link DataStreamer#triggerNotification(Pipeline, Monitor)} exports on the calling thread, while
+ * {@link DataStreamer#submitNotification(Pipeline, Monitor)} only hands the change off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class NotificationBenchmark {
+
+    @Param({"100"})
+    public int size;
+
+    private final DataStreamer streamer = DataStreamer.getInstance();
+    private Pipeline pipeline;
+    private Monitor changed;
+
+    @Setup(Level.Trial)
+    public void executePipeline() {
+        this.streamer.configure(EventStoreSettings.builder().capacityPerPipeline(64).build());
+        this.pipeline = new Pipeline("Benchmark", TaskGraphs.layered(this.size, TaskGraphs.MERGE));
+        this.pipeline.execute().forEach((task, result) -> result.join());
+        this.changed = this.pipeline.getTasks().stream().findAny().map(Task::getMonitor).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreSettings() {
+        this.streamer.flush();
+        this.streamer.configure(EventStoreSettings.defaults());
+    }
+
+    @Benchmark
+    public void triggerNotification() {
+        this.streamer.triggerNotification(this.pipeline, this.changed);
+    }
+
+    @Benchmark
+    public void submitNotification() {
+        this.streamer.submitNotification(this.pipeline, this.changed);
+    }
+}
@@ -0,0 +1,37 @@
+package com.citizenweb.tooling.taskpipeline.benchmarks;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.model.WorkGroup;
+import com.citizenweb.tooling.taskpipeline.core.model.WorkGroupOptimizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WorkGroupOptimizer#DEFAULT_OPTIMIZER} over generated DAGs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptimizerBenchmark {
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int size;
+
+    private Set<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void buildGraph() {
+        this.tasks = TaskGraphs.layered(this.size, TaskGraphs.NO_OP);
+    }
+
+    @Benchmark
+    public Collection<WorkGroup> defaultOptimizer() {
+        return WorkGroupOptimizer.DEFAULT_OPTIMIZER.optimize(this.tasks);
+    }
+}
@@ -0,0 +1,85 @@
+package com.citizenweb.tooling.taskpipeline.benchmarks;
+
+import com.citizenweb.tooling.taskpipeline.core.model.LongOperation;
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelinePlan;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.utils.ChunkType;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same numeric pipeline, source → doubler → sum, with boxed {@link Operation}s and with {@link LongOperation}s
+ * exchanging long[] chunks.<br>
+ * Run it with the GC profiler to compare allocation rates : {@code java -jar target/benchmarks.jar Primitive -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrimitiveOperationBenchmark {
+
+    private static final int ELEMENTS = 1 << 20;
+
+    private PipelinePlan boxedPlan;
+    private Task boxedSum;
+    private PipelinePlan chunkedPlan;
+    private Task chunkedSum;
+
+    @Setup
+    public void compilePlans() {
+        Operation source = inputs -> Flux.range(0, ELEMENTS).map(i -> (long) i);
+        Operation doubler = inputs -> inputs[0].cast(Long.class).map(value -> value * 2);
+        Operation sum = inputs -> inputs[0].cast(Long.class).reduce(0L, Long::sum).flux();
+        Task boxedSource = new Task("Source", source, Collections.emptyList());
+        Task boxedDoubler = new Task("Doubler", doubler, List.of(boxedSource));
+        this.boxedSum = new Task("Sum", sum, List.of(boxedDoubler));
+        this.boxedPlan = PipelinePlan.compile("Boxed", Set.of(boxedSource, boxedDoubler, this.boxedSum));
+
+        int chunkSize = ChunkType.DEFAULT_CHUNK_SIZE;
+        LongOperation chunkedSource = inputs -> Flux.range(0, ELEMENTS / chunkSize).map(index -> {
+            long[] chunk = new long[chunkSize];
+            for (int i = 0; i < chunkSize; i++) {
+                chunk[i] = (long) index * chunkSize + i;
+            }
+            return chunk;
+        });
+        LongOperation chunkedDoubler = inputs -> inputs.get(0).map(chunk -> {
+            long[] doubled = new long[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                doubled[i] = chunk[i] * 2;
+            }
+            return doubled;
+        });
+        LongOperation chunkedTotal = inputs -> inputs.get(0)
+                .reduceWith(() -> new long[1], (total, chunk) -> {
+                    for (long value : chunk) {
+                        total[0] += value;
+                    }
+                    return total;
+                })
+                .flux();
+        Task primitiveSource = new Task("Source", chunkedSource, Collections.emptyList());
+        Task primitiveDoubler = new Task("Doubler", chunkedDoubler, List.of(primitiveSource));
+        this.chunkedSum = new Task("Sum", chunkedTotal, List.of(primitiveDoubler));
+        this.chunkedPlan = PipelinePlan.compile("Chunked",
+                Set.of(primitiveSource, primitiveDoubler, this.chunkedSum));
+    }
+
+    @Benchmark
+    public long boxed() {
+        return this.boxedPlan.execute().getResult(this.boxedSum).flux(Long.class).blockLast();
+    }
+
+    @Benchmark
+    public long chunked() {
+        return this.chunkedPlan.execute().getResult(this.chunkedSum).flux(long[].class).blockLast()[0];
+    }
+}
@@ -0,0 +1,68 @@
+package com.citizenweb.tooling.taskpipeline.benchmarks;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+
+/**
+ * Generates the DAGs of {@link Task}s the benchmarks run on. The same seed always gives the same graph.
+ */
+final class TaskGraphs {
+
+    /** Does nothing, so that only the engine is measured */
+    static final Operation NO_OP = inputs -> Flux.empty();
+    /** Emits a few elements, merging all of its inputs */
+    static final Operation MERGE = inputs -> inputs.length == 0 ? Flux.range(0, 10) : Flux.merge(inputs);
+
+    private TaskGraphs() {
+    }
+
+    /**
+     * Layers of {@code width} Tasks : each Task depends on one or two Tasks of the previous layer, and every
+     * Task but the last one has at least one successor, so the graph has a single terminal Task.
+     * @param size number of Tasks, at least 2
+     * @param operation the {@link Operation} of every Task
+     * @return all the Tasks
+     */
+    static Set<Task> layered(int size, Operation operation) {
+        Random random = new Random(42);
+        int width = Math.max(1, (int) Math.sqrt(size));
+        Set<Task> tasks = new HashSet<>(size * 2);
+        List<Task> previousLayer = new ArrayList<>();
+        int created = 0;
+        while (created < size - 1) {
+            List<Task> layer = new ArrayList<>(width);
+            for (int i = 0; i < width && created < size - 1; i++, created++) {
+                List<Task> predecessors = new ArrayList<>(2);
+                if (!previousLayer.isEmpty()) {
+                    predecessors.add(previousLayer.get(i % previousLayer.size()));
+                    Task other = previousLayer.get(random.nextInt(previousLayer.size()));
+                    if (!predecessors.contains(other)) {
+                        predecessors.add(other);
+                    }
+                }
+                layer.add(new Task("Task " + created, operation, predecessors));
+            }
+            /* A layer narrower than the previous one must still consume all of it */
+            for (int i = layer.size(); i < previousLayer.size(); i++) {
+                Task orphan = previousLayer.get(i);
+                if (orphan.getSuccessors().isEmpty()) {
+                    Task consumer = new Task("Task " + created++, operation, List.of(orphan));
+                    layer.add(consumer);
+                }
+            }
+            tasks.addAll(layer);
+            previousLayer = layer;
+        }
+        List<Task> lastLayer = new ArrayList<>();
+        for (Task task : previousLayer) {
+            if (task.getSuccessors().isEmpty()) {
+                lastLayer.add(task);
+            }
+        }
+        tasks.add(new Task("Terminal", operation, lastLayer));
+        return tasks;
+    }
+}
@@ -0,0 +1,128 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.BatchingPolicy;
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics of a batched edge, from a {@link Task} to one of its successors : distributions of the size of
+ * the batches, and of their latency, ie the time between the arrival of their first element and their emission.<br>
+ * Distributions are kept in power-of-two buckets, so recording a batch allocates nothing and percentiles are
+ * upper bounds, at most twice the actual value.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class BatchMetrics {
+
+    private static final int BUCKETS = 64;
+    /** No batch being filled */
+    private static final long NO_BATCH = -1;
+
+    /** Number of batches emitted, all subscriptions together */
+    @ToString.Include
+    private final LongAdder batches = new LongAdder();
+    /** Number of elements emitted in batches */
+    @ToString.Include
+    private final LongAdder elements = new LongAdder();
+    private final AtomicLongArray sizeBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxSize = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Groups the elements of a {@link Flux} into batches, measured by these metrics.
+     * @param flux the output of a {@link Task}
+     * @param policy how the elements are grouped
+     * @return the batches
+     */
+    public <T> Flux<List<T>> batch(Flux<T> flux, BatchingPolicy policy) {
+        return Flux.defer(() -> {
+            AtomicLong batchStart = new AtomicLong(NO_BATCH);
+            return policy.apply(flux.doOnNext(element -> {
+                        if (batchStart.get() == NO_BATCH) {
+                            batchStart.compareAndSet(NO_BATCH, System.nanoTime());
+                        }
+                    }))
+                    .doOnNext(batch -> {
+                        long startedAt = batchStart.getAndSet(NO_BATCH);
+                        this.record(batch.size(), startedAt == NO_BATCH ? 0 : System.nanoTime() - startedAt);
+                    });
+        });
+    }
+
+    private void record(int size, long latencyNanos) {
+        this.batches.increment();
+        this.elements.add(size);
+        this.sizeBuckets.incrementAndGet(bucketOf(size));
+        this.latencyBuckets.incrementAndGet(bucketOf(latencyNanos));
+        this.maxSize.accumulateAndGet(size, Math::max);
+        this.maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    /** @return the bucket holding values from 2^(index-1) inclusive to 2^index exclusive, 0 for 0 */
+    private static int bucketOf(long value) {
+        return value <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+
+    /** @return the upper bound of the bucket holding the given percentile, at most the largest value recorded */
+    private static long percentile(AtomicLongArray buckets, long count, long max, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    /** @return the number of batches emitted so far */
+    public long getBatchCount() {
+        return this.batches.sum();
+    }
+
+    /** @return the number of elements emitted in batches so far */
+    public long getElementCount() {
+        return this.elements.sum();
+    }
+
+    /** @return the mean number of elements per batch, 0 without any batch */
+    public double getMeanBatchSize() {
+        long batches = this.getBatchCount();
+        return batches == 0 ? 0 : (double) this.getElementCount() / batches;
+    }
+
+    /** @return the largest batch so far */
+    public long getMaxBatchSize() {
+        return this.maxSize.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the number of elements that the given share of the batches do not exceed
+     */
+    public long getBatchSizePercentile(double percentile) {
+        return percentile(this.sizeBuckets, this.getBatchCount(), this.maxSize.get(), percentile);
+    }
+
+    /** @return the highest batch latency so far, in nanoseconds */
+    public long getMaxLatencyNanos() {
+        return this.maxLatencyNanos.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency, in nanoseconds, that the given share of the batches do not exceed
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        return percentile(this.latencyBuckets, this.getBatchCount(), this.maxLatencyNanos.get(), percentile);
+    }
+}
@@ -0,0 +1,129 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.BufferPolicy;
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Live gauges of the queue of an edge, from a {@link Task} to one of its successors : the elements waiting for the
+ * successor's {@link Scheduler}, and their estimated heap size.<br>
+ * The queue of a subscription that ends is discarded, so the gauges are back to 0 before the end is signaled.<br>
+ * Only the dropped elements are counted for an edge which {@link BufferPolicy} is not {@link BufferPolicy#gauged()} :
+ * the other gauges stay at 0.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class BufferMetrics {
+
+    /** Elements currently queued, all subscriptions together */
+    @ToString.Include
+    private final AtomicLong occupancy = new AtomicLong();
+    /** Estimated bytes of the queued elements */
+    @ToString.Include
+    private final AtomicLong retainedBytes = new AtomicLong();
+    /** Highest occupancy so far */
+    private final AtomicLong peakOccupancy = new AtomicLong();
+    /** Highest retained bytes so far */
+    private final AtomicLong peakRetainedBytes = new AtomicLong();
+    /** Elements that went through the queue */
+    private final LongAdder delivered = new LongAdder();
+    /** Elements dropped because the queue was full */
+    @ToString.Include
+    private final LongAdder dropped = new LongAdder();
+    /** Capacity of the queue, as last configured */
+    private volatile int capacity;
+
+    /**
+     * Publishes the elements of a {@link Flux} through a queue, measured by these gauges.
+     * @param flux the output of a {@link Task}
+     * @param policy size and overflow strategy of the queue
+     * @param scheduler the {@link Scheduler} of the consumer
+     * @return the elements, published on the scheduler
+     */
+    public <T> Flux<T> publishOn(Flux<T> flux, BufferPolicy policy, Scheduler scheduler) {
+        this.capacity = policy.getCapacity();
+        if (!policy.isGauged()) {
+            return policy.apply(flux, scheduler, null, element -> this.dropped.increment());
+        }
+        ToLongFunction<Object> sizer = policy.getElementSize();
+        return Flux.defer(() -> {
+            AtomicLong queued = new AtomicLong();
+            AtomicLong queuedBytes = new AtomicLong();
+            Runnable discarded = () -> {
+                this.occupancy.addAndGet(-queued.getAndSet(0));
+                this.retainedBytes.addAndGet(-queuedBytes.getAndSet(0));
+            };
+            return policy.apply(flux, scheduler,
+                    element -> this.enqueued(sizer.applyAsLong(element), queued, queuedBytes),
+                    element -> {
+                        this.dequeued(sizer.applyAsLong(element), queued, queuedBytes);
+                        this.dropped.increment();
+                    })
+                    .doOnNext(element -> {
+                        this.dequeued(sizer.applyAsLong(element), queued, queuedBytes);
+                        this.delivered.increment();
+                    })
+                    .doOnTerminate(discarded)
+                    .doOnCancel(discarded);
+        });
+    }
+
+    private void enqueued(long bytes, AtomicLong queued, AtomicLong queuedBytes) {
+        queued.incrementAndGet();
+        queuedBytes.addAndGet(bytes);
+        long occupancy = this.occupancy.incrementAndGet();
+        long retained = this.retainedBytes.addAndGet(bytes);
+        if (occupancy > this.peakOccupancy.get()) {
+            this.peakOccupancy.accumulateAndGet(occupancy, Math::max);
+        }
+        if (retained > this.peakRetainedBytes.get()) {
+            this.peakRetainedBytes.accumulateAndGet(retained, Math::max);
+        }
+    }
+
+    private void dequeued(long bytes, AtomicLong queued, AtomicLong queuedBytes) {
+        queued.decrementAndGet();
+        queuedBytes.addAndGet(-bytes);
+        this.occupancy.decrementAndGet();
+        this.retainedBytes.addAndGet(-bytes);
+    }
+
+    /** @return the capacity of the queue, 0 before any subscription */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /** @return the number of elements currently queued */
+    public long getOccupancy() {
+        return this.occupancy.get();
+    }
+
+    /** @return the highest number of elements queued so far */
+    public long getPeakOccupancy() {
+        return this.peakOccupancy.get();
+    }
+
+    /** @return the estimated heap size of the elements currently queued, in bytes */
+    public long getRetainedBytes() {
+        return this.retainedBytes.get();
+    }
+
+    /** @return the highest estimated heap size of the queued elements so far, in bytes */
+    public long getPeakRetainedBytes() {
+        return this.peakRetainedBytes.get();
+    }
+
+    /** @return the number of elements that went through a gauged queue so far */
+    public long getDeliveredCount() {
+        return this.delivered.sum();
+    }
+
+    /** @return the number of elements dropped so far, because the queue was full */
+    public long getDroppedCount() {
+        return this.dropped.sum();
+    }
+}
@@ -0,0 +1,306 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.CheckpointSerializer;
+import com.citizenweb.tooling.taskpipeline.core.utils.CheckpointSerializers;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Local spill directory of the checkpointed {@link Task}s' outputs.<br>
+ * The output of a Task {@link Task#setCheckpointed(boolean) marked as checkpointed} is written here while it
+ * flows, and kept once complete. The next executions of the same {@link Pipeline} or {@link PipelinePlan}
+ * replay it instead of calling the Task's {@link Operation} again : upstream Tasks that already succeeded are not
+ * computed again when a failed execution is resumed.<br>
+ * Checkpoints are identified by the name of the Pipeline or plan, their scope, by the ID of the run they belong to,
+ * and by the name of the Task : concurrent runs of the same plan never share their checkpoints, and a failed run is
+ * resumed by executing it again under the same run ID. They are kept until {@link #clear(String) cleared}.<br>
+ * Each checkpoint file holds the elements of one output, each one serialized by the {@link CheckpointSerializer}
+ * of the Task, or of the store, and preceded by its length. An output is first written into a temporary file, and
+ * only becomes a checkpoint once complete : a failed or cancelled output leaves nothing behind. A checkpoint ending
+ * in the middle of an element fails its replay.<br>
+ * Files are written and read on the {@link ExecutionProfile#BLOCKING_IO} scheduler, never on the Task's own.
+ */
+@Slf4j
+public class CheckpointStore {
+
+    /** First bytes of a checkpoint file */
+    private static final int MAGIC = 0x54504B31;
+    private static final String CHECKPOINT_SUFFIX = ".ckpt";
+
+    /** Root of the spill directory */
+    @Getter
+    private final Path directory;
+    /** Serializer of the {@link Task}s that do not declare their own */
+    @Getter
+    private final CheckpointSerializer serializer;
+    /** Runs the blocking file accesses */
+    private final Scheduler ioScheduler = ExecutionProfile.BLOCKING_IO.getScheduler();
+
+    /** A store using {@link CheckpointSerializers#JAVA Java serialization} */
+    public CheckpointStore(Path directory) {
+        this(directory, CheckpointSerializers.JAVA);
+    }
+
+    public CheckpointStore(@NonNull Path directory, @NonNull CheckpointSerializer serializer) {
+        this.directory = directory;
+        this.serializer = serializer;
+    }
+
+    /**
+     * @param scope name of the {@link Pipeline} or {@link PipelinePlan}
+     * @param run ID of the run
+     * @param task a {@link Task}
+     * @return TRUE if a complete output of the Task has been checkpointed
+     */
+    public boolean contains(String scope, String run, Task task) {
+        return Files.isRegularFile(this.pathOf(scope, run, task));
+    }
+
+    /**
+     * Deletes the checkpoint of a {@link Task} : the next execution will call its {@link Operation} again.
+     * @param scope name of the {@link Pipeline} or {@link PipelinePlan}
+     * @param run ID of the run
+     * @param task a {@link Task}
+     */
+    public void remove(String scope, String run, Task task) {
+        try {
+            Files.deleteIfExists(this.pathOf(scope, run, task));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Deletes all the checkpoints of a {@link Pipeline} or {@link PipelinePlan}, all runs together.
+     * @param scope name of the {@link Pipeline} or {@link PipelinePlan}
+     */
+    public void clear(String scope) {
+        deleteTree(this.directory.resolve(encode(scope)));
+    }
+
+    /**
+     * Deletes all the checkpoints of a run, once it fully succeeded for instance.
+     * @param scope name of the {@link Pipeline} or {@link PipelinePlan}
+     * @param run ID of the run
+     */
+    public void clear(String scope, String run) {
+        deleteTree(this.directory.resolve(encode(scope)).resolve(encode(run)));
+    }
+
+    private static void deleteTree(Path root) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes the output of a {@link Task} while it flows. Each subscription writes its own temporary file, which
+     * becomes the checkpoint once the output is complete.<br>
+     * The elements are handed to the {@link ExecutionProfile#BLOCKING_IO} scheduler to be written : the output is
+     * emitted from there.<br>
+     * Failing to write never fails the output : the checkpoint is given up, and the error logged. A cancelled
+     * output is not checkpointed either, quietly.
+     * @param scope name of the {@link Pipeline} or {@link PipelinePlan}
+     * @param run ID of the run
+     * @param task the checkpointed {@link Task}
+     * @param output its output {@link Flux}
+     * @return the same output, checkpointed
+     */
+    public <T> Flux<T> record(String scope, String run, Task task, Flux<T> output) {
+        return Flux.using(() -> new Spill(this.pathOf(scope, run, task), this.serializerOf(task)),
+                spill -> output.publishOn(this.ioScheduler).doOnNext(spill::write).doOnComplete(spill::commit),
+                Spill::discard)
+                .subscribeOn(this.ioScheduler);
+    }
+
+    /**
+     * Reads back the checkpointed output of a {@link Task}, lazily : nothing is read until subscribed.
+     * @param scope name of the {@link Pipeline} or {@link PipelinePlan}
+     * @param run ID of the run
+     * @param task the checkpointed {@link Task}
+     * @return the elements of the output, in their original order
+     * @throws UncheckedIOException through the Flux, if the checkpoint ends in the middle of an element
+     */
+    public Flux<?> replay(String scope, String run, Task task) {
+        Path path = this.pathOf(scope, run, task);
+        CheckpointSerializer taskSerializer = this.serializerOf(task);
+        return Flux.using(() -> open(path),
+                in -> Flux.generate(sink -> {
+                    try {
+                        sink.next(readElement(in, taskSerializer, path));
+                    } catch (EOFException end) {
+                        sink.complete();
+                    } catch (IOException ex) {
+                        sink.error(new UncheckedIOException("Unable to replay checkpoint " + path, ex));
+                    }
+                }),
+                in -> {
+                    try {
+                        in.close();
+                    } catch (IOException ex) {
+                        log.warn("Unable to close checkpoint {}", path, ex);
+                    }
+                })
+                .subscribeOn(this.ioScheduler);
+    }
+
+    /** Opens a checkpoint file, positioned on its first element */
+    private static DataInputStream open(Path path) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        if (in.readInt() != MAGIC) {
+            in.close();
+            throw new IOException("Not a checkpoint file : " + path);
+        }
+        return in;
+    }
+
+    /**
+     * @throws EOFException at the end of the output only, ie on a record boundary
+     * @throws IOException if the checkpoint ends within an element, its length included
+     */
+    private static Object readElement(DataInputStream in, CheckpointSerializer serializer, Path path)
+            throws IOException {
+        int firstByte = in.read();
+        if (firstByte < 0) {
+            throw new EOFException();
+        }
+        byte[] bytes;
+        try {
+            int length = firstByte << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8
+                    | in.readUnsignedByte();
+            if (length < 0) {
+                throw new IOException("Corrupted checkpoint " + path + " : negative element length " + length);
+            }
+            bytes = new byte[length];
+            in.readFully(bytes);
+        } catch (EOFException truncated) {
+            throw new IOException("Truncated checkpoint " + path, truncated);
+        }
+        return serializer.deserialize(bytes);
+    }
+
+    private CheckpointSerializer serializerOf(Task task) {
+        CheckpointSerializer taskSerializer = task.getCheckpointSerializer();
+        return taskSerializer != null ? taskSerializer : this.serializer;
+    }
+
+    /** @return the file of the checkpoint, names being encoded so that any of them is a valid file name */
+    Path pathOf(String scope, String run, Task task) {
+        return this.directory.resolve(encode(scope)).resolve(encode(run))
+                .resolve(encode(task.getName()) + CHECKPOINT_SUFFIX);
+    }
+
+    private static String encode(String name) {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The output of one subscription, being written into a temporary file.<br>
+     * Elements are written and committed on the IO scheduler, while a cancellation discards the file from any
+     * thread : both are exclusive, and a discard once committed does nothing.
+     */
+    private static final class Spill {
+        private final Path target;
+        private final CheckpointSerializer serializer;
+        private Path temporary;
+        private DataOutputStream out;
+        private boolean committed;
+
+        Spill(Path target, CheckpointSerializer serializer) {
+            this.target = target;
+            this.serializer = serializer;
+            try {
+                Files.createDirectories(target.getParent());
+                this.temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+                this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.temporary)));
+                this.out.writeInt(MAGIC);
+            } catch (IOException ex) {
+                this.giveUp(ex);
+            }
+        }
+
+        synchronized void write(Object element) {
+            if (this.out == null) {
+                return;
+            }
+            try {
+                byte[] bytes = this.serializer.serialize(element);
+                this.out.writeInt(bytes.length);
+                this.out.write(bytes);
+            } catch (IOException | RuntimeException ex) {
+                this.giveUp(ex);
+            }
+        }
+
+        synchronized void commit() {
+            if (this.out == null) {
+                return;
+            }
+            try {
+                this.out.close();
+                this.out = null;
+                Files.move(this.temporary, this.target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                this.committed = true;
+            } catch (IOException ex) {
+                this.giveUp(ex);
+            }
+        }
+
+        /** Deletes the temporary file of an output that did not complete */
+        synchronized void discard() {
+            if (!this.committed) {
+                this.closeAndDelete();
+            }
+        }
+
+        private void giveUp(Exception ex) {
+            log.error("Unable to write checkpoint {} : the output is not checkpointed", this.target, ex);
+            this.closeAndDelete();
+        }
+
+        private void closeAndDelete() {
+            try {
+                if (this.out != null) {
+                    this.out.close();
+                    this.out = null;
+                }
+                if (this.temporary != null) {
+                    Files.deleteIfExists(this.temporary);
+                }
+            } catch (IOException ex) {
+                log.warn("Unable to delete temporary checkpoint {}", this.temporary, ex);
+            }
+        }
+    }
+
+}
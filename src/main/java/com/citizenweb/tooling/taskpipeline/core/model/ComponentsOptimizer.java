@@ -0,0 +1,35 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.TaskUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link WorkGroupOptimizer#COMPONENTS_OPTIMIZER} : one {@link WorkGroup} by weakly connected component of the
+ * graph.<br>
+ * Within a WorkGroup, the Tasks farthest from a terminal Task, ie heading the longest chains, are assembled first.
+ */
+@Slf4j
+final class ComponentsOptimizer implements WorkGroupOptimizer {
+
+    @Override
+    public Collection<WorkGroup> optimize(Set<Task> allTasks) {
+        Map<Task, Integer> ranks = TaskUtils.rankTasks(allTasks);
+        Comparator<Task> priority = Comparator.<Task>comparingInt(ranks::get).reversed()
+                .thenComparing(Task::getName);
+        List<WorkGroup> workGroups = new ArrayList<>();
+        for (Set<Task> component : TaskUtils.connectedComponents(allTasks)) {
+            WorkGroup workGroup = new WorkGroup(component, priority);
+            log.info("WorkGroup [ {} ] : {} tasks, width {}, critical path {}", workGroup.getName(),
+                    component.size(), workGroup.getWidth(), workGroup.getCriticalPathLength());
+            workGroups.add(workGroup);
+        }
+        return workGroups;
+    }
+}
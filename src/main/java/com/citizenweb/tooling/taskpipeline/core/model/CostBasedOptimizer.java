@@ -0,0 +1,153 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.TaskUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link WorkGroupOptimizer} driven by the historical cost of the {@link Task}s, so that long branches are no
+ * longer scheduled last :
+ * <ul>
+ *     <li>the critical path cost of each Task, ie its own cost plus the most expensive chain of successors, gives
+ *     its priority : within a {@link WorkGroup}, the starting Tasks, then the ready ones, are assembled by
+ *     decreasing critical path cost</li>
+ *     <li>the work paths of the terminal Tasks are balanced across the available cores : the most expensive path
+ *     first, each one given to the least loaded WorkGroup (Longest Processing Time first)</li>
+ *     <li>WorkGroups are returned by decreasing critical path cost, so that the longest is launched first</li>
+ * </ul>
+ * A Task without history costs the average of the measured ones. Without any history at all, the structural
+ * {@link WorkGroupOptimizer#DEFAULT_OPTIMIZER} is used.
+ */
+@Slf4j
+public class CostBasedOptimizer implements WorkGroupOptimizer {
+
+    /** Measured costs of the {@link Task}s */
+    @Getter
+    private final TaskCostHistory history;
+    /** Largest number of {@link WorkGroup}s, the available cores by default */
+    @Getter
+    private final int parallelism;
+
+    public CostBasedOptimizer(TaskCostHistory history) {
+        this(history, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CostBasedOptimizer(@NonNull TaskCostHistory history, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+        this.history = history;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public Collection<WorkGroup> optimize(Set<Task> allTasks) {
+        Map<Task, Long> costs = this.costs(allTasks);
+        if (costs == null) {
+            log.info("No history for any of the {} tasks : using the default optimizer", allTasks.size());
+            return WorkGroupOptimizer.DEFAULT_OPTIMIZER.optimize(allTasks);
+        }
+        Map<Task, Long> criticalPaths = criticalPathCosts(allTasks, costs);
+        Comparator<Task> priority = Comparator.<Task>comparingLong(criticalPaths::get).reversed()
+                .thenComparing(Comparator.<Task>comparingLong(costs::get).reversed())
+                .thenComparing(Task::getName);
+
+        Map<Task, Set<Task>> workPaths = TaskUtils.collectWorkPaths(
+                allTasks.stream().filter(Task.isTerminalTask).collect(Collectors.toList()));
+        List<Set<Task>> paths = workPaths.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Task, Set<Task>>>comparingLong(
+                                path -> totalCost(path.getValue(), costs)).reversed()
+                        .thenComparing(Map.Entry::getKey, priority))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        PriorityQueue<Bin> bins = new PriorityQueue<>(Comparator.comparingLong(bin -> bin.load));
+        for (Set<Task> path : paths) {
+            Bin bin = bins.size() < this.parallelism ? new Bin() : bins.poll();
+            for (Task task : path) {
+                if (bin.tasks.add(task)) {
+                    bin.load += costs.get(task);
+                }
+            }
+            bins.add(bin);
+        }
+
+        List<WorkGroup> workGroups = bins.stream()
+                .sorted(Comparator.<Bin>comparingLong(bin -> criticalPathCost(bin, criticalPaths)).reversed())
+                .map(bin -> {
+                    WorkGroup workGroup = new WorkGroup(bin.tasks, priority);
+                    log.info("WorkGroup [ {} ] : estimated load {} ms, critical path {} ms", workGroup.getName(),
+                            bin.load, criticalPathCost(bin, criticalPaths));
+                    return workGroup;
+                })
+                .collect(Collectors.toList());
+        return workGroups;
+    }
+
+    /**
+     * @return the cost of each {@link Task}, NULL if none of them has any history.
+     * Each Task costs at least 1, so that the structure of the graph is taken into account for the cheapest ones.
+     */
+    private Map<Task, Long> costs(Set<Task> allTasks) {
+        Map<Task, Long> costs = new HashMap<>(allTasks.size() * 2);
+        long total = 0;
+        for (Task task : allTasks) {
+            OptionalLong cost = this.history.costOf(task.getName());
+            if (cost.isPresent()) {
+                costs.put(task, cost.getAsLong() + 1);
+                total += cost.getAsLong() + 1;
+            }
+        }
+        if (costs.isEmpty()) {
+            return null;
+        }
+        long averageCost = total / costs.size();
+        allTasks.forEach(task -> costs.putIfAbsent(task, averageCost));
+        return costs;
+    }
+
+    /**
+     * The critical path cost of a {@link Task} is its own cost plus the one of its most expensive successor :
+     * computed from the terminal Tasks up to the initial ones, level after level.
+     */
+    private static Map<Task, Long> criticalPathCosts(Set<Task> allTasks, Map<Task, Long> costs) {
+        List<Set<Task>> levels = TaskUtils.levelTasks(allTasks);
+        Map<Task, Long> criticalPaths = new HashMap<>(allTasks.size() * 2);
+        for (int level = levels.size() - 1; level >= 0; level--) {
+            for (Task task : levels.get(level)) {
+                long successorsCost = 0;
+                for (Task successor : task.getSuccessors()) {
+                    successorsCost = Math.max(successorsCost, criticalPaths.getOrDefault(successor, 0L));
+                }
+                criticalPaths.put(task, costs.get(task) + successorsCost);
+            }
+        }
+        return criticalPaths;
+    }
+
+    private static long totalCost(Set<Task> tasks, Map<Task, Long> costs) {
+        return tasks.stream().mapToLong(costs::get).sum();
+    }
+
+    private static long criticalPathCost(Bin bin, Map<Task, Long> criticalPaths) {
+        return bin.tasks.stream().mapToLong(criticalPaths::get).max().orElse(0);
+    }
+
+    /** Tasks given to one {@link WorkGroup}, and their total cost */
+    private static final class Bin {
+        private final Set<Task> tasks = new LinkedHashSet<>();
+        private long load;
+    }
+
+}
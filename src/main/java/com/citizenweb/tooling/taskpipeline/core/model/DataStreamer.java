@@ -1,27 +1,32 @@
 package com.citizenweb.tooling.taskpipeline.core.model;
 
-import com.citizenweb.tooling.taskpipeline.core.utils.PipelineDTO;
-import com.citizenweb.tooling.taskpipeline.core.utils.ServerSentEventCounter;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.citizenweb.tooling.taskpipeline.core.utils.*;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
+import java.util.function.LongFunction;
 
 /**
  * The {@link DataStreamer} is in charge of exporting the {@link Pipeline}'s current state for display purpose.<br>
- * It is a Singleton.
+ * Pipelines share a Singleton, see {@link #getInstance()}. Independent instances keep event stores of their own.
  */
 @Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -29,63 +34,420 @@ public class DataStreamer {
 
     /** A {@link ServerSentEvent} has to be named */
     private final String SSE_EVENT_NAME = "Pipeline";
-    /** For each {@link Pipeline} we store a collection of {@link ServerSentEvent}s */
-    private final ConcurrentHashMap<Pipeline, CopyOnWriteArrayList<ServerSentEvent<String>>> notificationsMap = new ConcurrentHashMap<>();
+    /** Reconnection delay advertised to SSE clients */
+    private static final Duration RETRY_DELAY = Duration.of(1, ChronoUnit.SECONDS);
+    /** Name of the events carrying a {@link PipelineSnapshotDTO}, in {@link NotificationMode#DELTA} mode */
+    private final String SNAPSHOT_EVENT_NAME = "Snapshot";
+    /** Name of the events carrying a {@link MonitorDTO}, in {@link NotificationMode#DELTA} mode */
+    private final String DELTA_EVENT_NAME = "Delta";
+    /** For each {@link Pipeline}, identified by its {@link Monitor} ID, we store a bounded collection of {@link ServerSentEvent}s */
+    private final ConcurrentHashMap<String, PipelineEvents> notificationsMap = new ConcurrentHashMap<>();
+    /** Retention rules of the {@link #notificationsMap} */
+    private volatile EventStoreSettings settings = EventStoreSettings.defaults();
+    /** Number of events currently stored */
+    private final AtomicLong storedEvents = new AtomicLong();
+    /** Number of events dropped so far */
+    private final AtomicLong evictedEvents = new AtomicLong();
+    /** Number of {@link Pipeline}s forgotten so far */
+    private final AtomicLong evictedPipelines = new AtomicLong();
+    /** Number of state changes merged into another event so far */
+    private final AtomicLong coalescedChanges = new AtomicLong();
+    /** Background thread publishing the submitted state changes */
+    private final Scheduler publisher = Schedulers.newSingle("pipeline-notifications", true);
+    /** Live stream of all {@link Pipeline}s' events, replaying as many of them as the current settings say */
+    private volatile Sinks.Many<ServerSentEvent<String>> allEvents = newLiveSink(this.settings.getLiveReplaySize());
+    /** Pipelines are published concurrently, while the shared sink must be fed one event at a time */
+    private final Object allEventsLock = new Object();
+    /** Time of the last sweep, in milliseconds */
+    private final AtomicLong lastSweep = new AtomicLong();
     /** Stores the unique instance of {@link DataStreamer} */
     private static final AtomicReference<DataStreamer> DATA_STREAMER = new AtomicReference<>(new DataStreamer());
-    /** Converts a {@link Pipeline} into a {@link PipelineDTO} */
-    private final Function<Pipeline, PipelineDTO> convertToDTO = PipelineDTO::new;
-    /** Converts a {@link PipelineDTO} into a {@link ServerSentEvent} */
-    private final Function<PipelineDTO,ServerSentEvent<String>> convertToSSE = dto -> {
-        ObjectWriter ow = new ObjectMapper().writer().withDefaultPrettyPrinter();
-        String json;
-        try {
-            json = ow.writeValueAsString(dto);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
-        return ServerSentEvent.<String>builder()
-                .id(String.valueOf(ServerSentEventCounter.getEventID()))
-                .event(SSE_EVENT_NAME)
-                .retry(Duration.of(1, ChronoUnit.SECONDS))
-                .data(json)
-                .build();
-    };
-
     /** Returns the sole instance of {@link DataStreamer} */
     public static DataStreamer getInstance() {
         return DATA_STREAMER.get();
     }
 
-    /** Creates a {@link Flux} based on the Map's content */
-    public synchronized Flux<ServerSentEvent<String>> exportData() {
-        log.info("In Exporter -> Queue size = " + notificationsMap.size());
-        return Flux.create(sse -> notificationsMap.values().stream()
-                .flatMap(Collection::stream)
-                .forEach(sse::next));
+    /**
+     * @return a new {@link DataStreamer}, sharing nothing with the Singleton : to be given to a {@link StateNotifier},
+     * then {@link #dispose() disposed} once done
+     */
+    public static DataStreamer newInstance() {
+        return new DataStreamer();
+    }
+
+    /** Stops the background publisher and completes the live streams. Submitted changes are no longer published */
+    public void dispose() {
+        this.publisher.dispose();
+        notificationsMap.values().forEach(PipelineEvents::complete);
+        synchronized (this.allEventsLock) {
+            this.allEvents.tryEmitComplete();
+        }
     }
 
-    /** Creates a {@link Flux} based on Map's content for a given {@link Pipeline} */
-    public synchronized Flux<ServerSentEvent<String>> exportData(Pipeline pipeline) {
+    /**
+     * Changes the retention rules of the event store. Buffers already allocated for a {@link Pipeline} keep their
+     * capacity.<br>
+     * A new {@link EventStoreSettings#getLiveReplaySize()} replaces the live stream of all Pipelines : its current
+     * subscribers are completed, and reconnect as SSE clients do.
+     * @param settings the new {@link EventStoreSettings}
+     */
+    public void configure(EventStoreSettings settings) {
+        Objects.requireNonNull(settings, "Settings can't be NULL");
+        synchronized (this.allEventsLock) {
+            if (settings.getLiveReplaySize() != this.settings.getLiveReplaySize()) {
+                Sinks.Many<ServerSentEvent<String>> previous = this.allEvents;
+                this.allEvents = newLiveSink(settings.getLiveReplaySize());
+                previous.tryEmitComplete();
+            }
+            this.settings = settings;
+        }
+    }
+
+    /**
+     * Live stream of the events of all {@link Pipeline}s.<br>
+     * The stream is hot and shared by all subscribers : it only emits events notified after the subscription, plus
+     * the last {@link EventStoreSettings#getLiveReplaySize()} ones.
+     */
+    public Flux<ServerSentEvent<String>> exportData() {
         log.info("In Exporter -> Queue size = " + notificationsMap.size());
-        return Flux.create(sse -> notificationsMap.entrySet().stream()
-                .filter(entry -> pipeline == entry.getKey())
-                .map(Map.Entry::getValue)
-                .flatMap(Collection::stream)
-                .forEach(sse::next));
+        return this.applyOverflowStrategy(this.allEvents.asFlux());
+    }
+
+    /**
+     * Live stream of the events of a given {@link Pipeline}, completed once the Pipeline is evicted from the store.
+     * @return an empty {@link Flux} if the Pipeline has not been notified yet
+     * @see #exportData(String)
+     */
+    public Flux<ServerSentEvent<String>> exportData(Pipeline pipeline) {
+        return this.exportData(pipeline.getMonitor().getId());
+    }
+
+    /**
+     * Live stream of the events of a given {@link Pipeline}, completed once the Pipeline is evicted from the store.<br>
+     * The stream is hot and shared by all subscribers : it only emits events notified after the subscription, plus
+     * the last {@link EventStoreSettings#getLiveReplaySize()} ones.
+     * @param pipelineId ID of the Pipeline's {@link Monitor}
+     * @return an empty {@link Flux} if the Pipeline is unknown
+     */
+    public Flux<ServerSentEvent<String>> exportData(String pipelineId) {
+        PipelineEvents events = notificationsMap.get(pipelineId);
+        return events == null ? Flux.empty() : this.applyOverflowStrategy(events.live());
+    }
+
+    /**
+     * All the events still stored for a given {@link Pipeline}, oldest first.
+     * @param pipeline the {@link Pipeline}
+     * @return a finite {@link Flux}
+     */
+    public Flux<ServerSentEvent<String>> exportHistory(Pipeline pipeline) {
+        PipelineEvents events = notificationsMap.get(pipeline.getMonitor().getId());
+        return events == null ? Flux.empty() : Flux.defer(() -> Flux.fromIterable(events.snapshot()));
+    }
+
+    /**
+     * Hands off the change of the given {@link Monitor} without waiting for its export : it is queued, then
+     * published in the background along with all the changes of the same {@link Pipeline} submitted within
+     * {@link EventStoreSettings#getCoalescingWindow()}.<br>
+     * With {@link NotificationMode#SNAPSHOT}, a single snapshot is published for all of them. With
+     * {@link NotificationMode#DELTA}, a single delta is published for each changed Monitor.
+     * @param pipeline the {@link Pipeline} the {@link Monitor} belongs to
+     * @param changed the {@link Monitor} whose state changed
+     */
+    public void submitNotification(Pipeline pipeline, Monitor changed) {
+        PipelineEvents events = notificationsMap.get(pipeline.getMonitor().getId());
+        if (events == null) {
+            EventStoreSettings currentSettings = this.settings;
+            events = notificationsMap.computeIfAbsent(pipeline.getMonitor().getId(),
+                    id -> new PipelineEvents(currentSettings, pipeline));
+        }
+        events.pendingChanges.offer(changed);
+        if (events.publicationScheduled.compareAndSet(false, true)) {
+            PipelineEvents scheduled = events;
+            this.publisher.schedule(() -> this.publishPendingChanges(scheduled),
+                    this.settings.getCoalescingWindow().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Publishes right away all the changes submitted so far, whatever the coalescing window */
+    public void flush() {
+        notificationsMap.values().forEach(this::publishPendingChanges);
     }
 
     /** Calling this method will snapshot the state of the given {@link Pipeline} */
-    public synchronized void triggerNotification(Pipeline pipeline) {
+    public void triggerNotification(Pipeline pipeline) {
+        this.triggerNotification(pipeline, pipeline.getMonitor());
+    }
+
+    /**
+     * Calling this method will export the change of the given {@link Monitor} :
+     * <ul>
+     *     <li>with {@link NotificationMode#SNAPSHOT}, the state of the whole {@link Pipeline}</li>
+     *     <li>with {@link NotificationMode#DELTA}, the Monitor's state only, except for the very first event of the
+     *     Pipeline which is a full snapshot</li>
+     * </ul>
+     * The event is built and published on the calling thread, see {@link #submitNotification(Pipeline, Monitor)}
+     * for a hand-off that never waits.
+     * @param pipeline the {@link Pipeline} the {@link Monitor} belongs to
+     * @param changed the {@link Monitor} whose state changed
+     */
+    public void triggerNotification(Pipeline pipeline, Monitor changed) {
         log.info("In Consumer -> Pipeline = " + pipeline);
-        CopyOnWriteArrayList<ServerSentEvent<String>> serverSentEvents;
-        if (notificationsMap.get(pipeline) == null) {
-            serverSentEvents = new CopyOnWriteArrayList<>();
+        EventStoreSettings currentSettings = this.settings;
+        long now = currentSettings.getClock().millis();
+        String pipelineId = pipeline.getMonitor().getId();
+        NotificationMode mode = currentSettings.getNotificationMode();
+        EventEncoder encoder = currentSettings.getEncoder();
+        LongFunction<ServerSentEvent<String>> eventFactory = sequence -> {
+            if (mode == NotificationMode.SNAPSHOT) {
+                return this.toSSE(SSE_EVENT_NAME, encoder.encodePipeline(pipeline), encoder);
+            }
+            return sequence == 0 ? this.toSSE(SNAPSHOT_EVENT_NAME, encoder.encodeSnapshot(sequence, pipeline), encoder)
+                    : this.toSSE(DELTA_EVENT_NAME, encoder.encodeDelta(pipelineId, sequence, changed), encoder);
+        };
+        boolean completed = isCompleted(pipeline);
+        long ageCutoff = now - currentSettings.getMaxEventAge().toMillis();
+        /* An entry evicted in the meantime takes no more events : they go to a new one */
+        while (!notificationsMap.computeIfAbsent(pipelineId, id -> new PipelineEvents(currentSettings, pipeline))
+                .append(eventFactory, now, completed, ageCutoff)) {
+            log.debug("Pipeline {} evicted while notified", pipelineId);
+        }
+        long previousSweep = this.lastSweep.get();
+        if (now - previousSweep >= currentSettings.getSweepInterval().toMillis()
+                && this.lastSweep.compareAndSet(previousSweep, now)) {
+            this.evictExpired();
+        }
+    }
+
+    /**
+     * A client detecting a gap in the sequence numbers asks for a new full snapshot of the {@link Pipeline}. It is
+     * sent to all the subscribers, and following deltas are numbered after it.
+     * @param pipelineId ID of the Pipeline's {@link Monitor}
+     * @return FALSE if the {@link Pipeline} is unknown or already gone
+     */
+    public boolean resync(String pipelineId) {
+        PipelineEvents events = notificationsMap.get(pipelineId);
+        Pipeline pipeline = events == null ? null : events.pipeline.get();
+        if (pipeline == null) {
+            return false;
+        }
+        EventStoreSettings currentSettings = this.settings;
+        long now = currentSettings.getClock().millis();
+        EventEncoder encoder = currentSettings.getEncoder();
+        return events.append(
+                sequence -> this.toSSE(SNAPSHOT_EVENT_NAME, encoder.encodeSnapshot(sequence, pipeline), encoder),
+                now, isCompleted(pipeline), now - currentSettings.getMaxEventAge().toMillis());
+    }
+
+    /**
+     * Drops events older than {@link EventStoreSettings#getMaxEventAge()} and forgets completed {@link Pipeline}s
+     * not notified for {@link EventStoreSettings#getCompletedPipelineGracePeriod()}.<br>
+     * A Pipeline that never completes is forgotten as well once all its events are gone and it has not been notified
+     * for {@link EventStoreSettings#getMaxEventAge()}.<br>
+     * It is called regularly while notifications keep coming, but can also be called at will.
+     */
+    public synchronized void evictExpired() {
+        EventStoreSettings currentSettings = this.settings;
+        long now = currentSettings.getClock().millis();
+        long ageCutoff = now - currentSettings.getMaxEventAge().toMillis();
+        long graceCutoff = now - currentSettings.getCompletedPipelineGracePeriod().toMillis();
+        notificationsMap.values().forEach(events -> {
+            if (events.evict(ageCutoff, graceCutoff)) {
+                this.evictedPipelines.incrementAndGet();
+            }
+        });
+    }
+
+    /** @return a snapshot of the event store size and evictions */
+    public EventStoreMetrics getMetrics() {
+        return new EventStoreMetrics(notificationsMap.size(), storedEvents.get(), evictedEvents.get(),
+                evictedPipelines.get(), coalescedChanges.get());
+    }
+
+    /**
+     * Drains the changes submitted for a {@link Pipeline} and publishes them as few events as possible.<br>
+     * A {@link #flush()} and the scheduled publication drain one after the other, so that the events are published
+     * in order, and the next submission schedules a new publication.
+     */
+    private void publishPendingChanges(PipelineEvents events) {
+        synchronized (events.drainLock) {
+            this.drainPendingChanges(events);
+        }
+    }
+
+    private void drainPendingChanges(PipelineEvents events) {
+        events.publicationScheduled.set(false);
+        Map<String, Monitor> changes = new LinkedHashMap<>();
+        int submitted = 0;
+        Monitor changed;
+        while ((changed = events.pendingChanges.poll()) != null) {
+            changes.put(changed.getId(), changed);
+            submitted++;
+        }
+        Pipeline pipeline = events.pipeline.get();
+        if (changes.isEmpty() || pipeline == null) {
+            return;
+        }
+        if (this.settings.getNotificationMode() == NotificationMode.SNAPSHOT) {
+            this.triggerNotification(pipeline);
+            this.coalescedChanges.addAndGet(submitted - 1);
         } else {
-            serverSentEvents = notificationsMap.get(pipeline);
+            changes.values().forEach(monitor -> this.triggerNotification(pipeline, monitor));
+            this.coalescedChanges.addAndGet(submitted - changes.size());
+        }
+    }
+
+    /** Wraps an encoded payload into a named {@link ServerSentEvent}, binary payloads being Base64-encoded */
+    private ServerSentEvent<String> toSSE(String eventName, byte[] payload, EventEncoder encoder) {
+        return ServerSentEvent.<String>builder()
+                .id(String.valueOf(ServerSentEventCounter.getEventID()))
+                .event(eventName)
+                .retry(RETRY_DELAY)
+                .data(encoder.isBinary() ? Base64.getEncoder().encodeToString(payload)
+                        : new String(payload, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * Each subscriber of a live stream gets its own overflow handling, so a slow one never holds back the others.
+     */
+    private Flux<ServerSentEvent<String>> applyOverflowStrategy(Flux<ServerSentEvent<String>> live) {
+        EventStoreSettings currentSettings = this.settings;
+        switch (currentSettings.getSlowSubscriberStrategy()) {
+            case DROP:
+                return live.onBackpressureDrop();
+            case LATEST:
+                return live.onBackpressureLatest();
+            case ERROR:
+                return live.onBackpressureError();
+            default:
+                return live.onBackpressureBuffer(currentSettings.getSubscriberBufferSize(),
+                        BufferOverflowStrategy.DROP_OLDEST);
+        }
+    }
+
+    /**
+     * Hot stream fed with every event.<br>
+     * It has no buffer of its own, its subscribers' overflow strategy requests everything upfront.
+     */
+    private static <T> Sinks.Many<T> newLiveSink(int replaySize) {
+        return replaySize > 0 ? Sinks.many().replay().limit(replaySize) : Sinks.many().multicast().directBestEffort();
+    }
+
+    /** A {@link Pipeline} is completed once its {@link Monitor} reached a final status */
+    private static boolean isCompleted(Pipeline pipeline) {
+        ProcessingStatus status = pipeline.getMonitor().getStatus();
+        return status == ProcessingStatus.DONE || status == ProcessingStatus.IN_ERROR;
+    }
+
+    /**
+     * Stored events of a single {@link Pipeline}.<br>
+     * Only a weak reference to the Pipeline is kept, so that a finished Pipeline can be garbage collected.
+     */
+    private class PipelineEvents {
+        private final String pipelineId;
+        private final WeakReference<Pipeline> pipeline;
+        private final EventRingBuffer<ServerSentEvent<String>> buffer;
+        /** Live stream shared by all of this {@link Pipeline}'s subscribers */
+        private final Sinks.Many<ServerSentEvent<String>> sink;
+        /** Sequence number of the next event */
+        private long sequence;
+        /** Time of the last event, in milliseconds */
+        private long lastUpdate;
+        /** Status of the {@link Pipeline} at the time of the last event */
+        private boolean completed;
+        /** Changes submitted by any thread, drained by the publisher */
+        private final Queue<Monitor> pendingChanges = new ConcurrentLinkedQueue<>();
+        /** Whether a publication of the pending changes is already scheduled */
+        private final AtomicBoolean publicationScheduled = new AtomicBoolean();
+        /** Held while the pending changes are drained and published */
+        private final Object drainLock = new Object();
+        /** Once removed from the store, the entry takes no more events */
+        private boolean evicted;
+
+        PipelineEvents(EventStoreSettings settings, Pipeline pipeline) {
+            this.pipelineId = pipeline.getMonitor().getId();
+            this.pipeline = new WeakReference<>(pipeline);
+            this.buffer = new EventRingBuffer<>(settings.getCapacityPerPipeline());
+            this.sink = newLiveSink(settings.getLiveReplaySize());
+            this.lastUpdate = settings.getClock().millis();
+            this.completed = isCompleted(pipeline);
+        }
+
+        /**
+         * Numbers, stores and emits a new event.
+         * @param eventFactory builds the event from its sequence number
+         * @return FALSE if the entry has been evicted : the event is not built
+         */
+        synchronized boolean append(LongFunction<ServerSentEvent<String>> eventFactory, long now, boolean completed,
+                                    long ageCutoff) {
+            if (this.evicted) {
+                return false;
+            }
+            NotificationEvent notification = new NotificationEvent();
+            notification.begin();
+            long eventSequence = this.sequence++;
+            ServerSentEvent<String> event = eventFactory.apply(eventSequence);
+            if (notification.shouldCommit()) {
+                notification.pipelineId = this.pipelineId;
+                notification.eventName = event.event();
+                notification.sequence = eventSequence;
+                notification.payloadSize = event.data() != null ? event.data().length() : 0;
+                notification.commit();
+            }
+            this.lastUpdate = now;
+            this.completed = completed;
+            this.sink.tryEmitNext(event);
+            synchronized (allEventsLock) {
+                allEvents.tryEmitNext(event);
+            }
+            int evicted = this.buffer.add(event, now) + this.buffer.evictOlderThan(ageCutoff);
+            storedEvents.addAndGet(1 - evicted);
+            evictedEvents.addAndGet(evicted);
+            return true;
+        }
+
+        /**
+         * Drops the events older than the age cutoff, then removes the whole entry from the store once it is expired.
+         * Both happen under the same lock as {@link #append}, so an event is either stored and counted before the
+         * removal or handed to a new entry.
+         * @return TRUE if the entry has been removed
+         */
+        synchronized boolean evict(long ageCutoff, long graceCutoff) {
+            int aged = this.buffer.evictOlderThan(ageCutoff);
+            storedEvents.addAndGet(-aged);
+            evictedEvents.addAndGet(aged);
+            if (this.evicted || !this.isExpired(graceCutoff, ageCutoff)
+                    || !notificationsMap.remove(this.pipelineId, this)) {
+                return false;
+            }
+            this.evicted = true;
+            int size = this.buffer.size();
+            storedEvents.addAndGet(-size);
+            evictedEvents.addAndGet(size);
+            this.sink.tryEmitComplete();
+            return true;
+        }
+
+        /**
+         * @return TRUE for a completed {@link Pipeline} past its grace period, or for any Pipeline left without
+         * events and not notified since the age cutoff
+         */
+        private boolean isExpired(long graceCutoff, long ageCutoff) {
+            return this.completed ? this.lastUpdate < graceCutoff
+                    : this.buffer.size() == 0 && this.lastUpdate < ageCutoff;
+        }
+
+        synchronized List<ServerSentEvent<String>> snapshot() {
+            return this.buffer.toList();
+        }
+
+        Flux<ServerSentEvent<String>> live() {
+            return this.sink.asFlux();
+        }
+
+        synchronized void complete() {
+            this.sink.tryEmitComplete();
         }
-        serverSentEvents.add(convertToDTO.andThen(convertToSSE).apply(pipeline));
-        this.notificationsMap.put(pipeline, serverSentEvents);
     }
 
 }
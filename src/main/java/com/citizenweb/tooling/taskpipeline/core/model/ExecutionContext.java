@@ -0,0 +1,195 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * State of a single execution of {@link WorkGroup}s : input slots, outputs and, for an isolated execution, the
+ * {@link Monitor}s. The {@link Task}s and WorkGroups themselves are left untouched, so that they can be executed
+ * again, or by several executions at once.<br>
+ * Input slots and monitors are filled once, before the execution starts, then only read.
+ */
+final class ExecutionContext {
+
+    /** ID of the executing {@link Pipeline} or {@link PipelineRun}, for tracing */
+    @Getter
+    private final String pipelineId;
+    /** Receives the state changes of the execution */
+    @Getter
+    private final Notifier notifier;
+    /** {@link ExecutionProfile} of the {@link Task}s that do not declare their own */
+    @Getter
+    private final ExecutionProfile defaultProfile;
+    /** Output of every {@link Task} of the execution */
+    @Getter
+    private final SharedOutputs sharedOutputs;
+    /** Where the checkpointed {@link Task}s' outputs are kept. NULL for no checkpoint */
+    @Getter
+    private final CheckpointStore checkpoints;
+    /** Name of the executing {@link Pipeline} or {@link PipelinePlan}, identifying its checkpoints */
+    @Getter
+    private final String checkpointScope;
+    /** ID of the run the checkpoints belong to, within their scope */
+    @Getter
+    private final String checkpointRun;
+    /** Keeps the outputs of the {@link Task}s having a cache key. NULL for no cache */
+    @Getter
+    private final ResultCache resultCache;
+    /** Cache key of each cacheable {@link Task} already assembled, fingerprint of its inputs included */
+    private final Map<Task, String> cacheKeys = new ConcurrentHashMap<>();
+    /** Input slots of every {@link Task} of the execution */
+    private final Map<Task, InputSlots> inputSlots;
+    /** Monitors of the execution. NULL when the {@link Monitorable}s' own Monitors are used */
+    private final Map<Monitorable, Monitor> monitors;
+    /** Metrics of the batched inputs of each consuming {@link Task}, for an isolated execution only */
+    private final Map<Task, Map<Task, BatchMetrics>> batchMetrics = new ConcurrentHashMap<>();
+    /** Gauges of the input queues of each consuming {@link Task}, for an isolated execution only */
+    private final Map<Task, Map<Task, BufferMetrics>> bufferMetrics = new ConcurrentHashMap<>();
+
+    private ExecutionContext(String pipelineId, Notifier notifier, ExecutionProfile defaultProfile,
+                             SharedOutputs sharedOutputs, CheckpointStore checkpoints, String checkpointScope,
+                             String checkpointRun, ResultCache resultCache, Collection<Task> tasks,
+                             Map<Monitorable, Monitor> monitors) {
+        this.pipelineId = pipelineId;
+        this.notifier = notifier;
+        this.defaultProfile = defaultProfile;
+        this.sharedOutputs = sharedOutputs;
+        this.checkpoints = checkpoints;
+        this.checkpointScope = checkpointScope;
+        this.checkpointRun = checkpointRun;
+        this.resultCache = resultCache;
+        this.inputSlots = new IdentityHashMap<>(tasks.size() * 2);
+        tasks.forEach(task -> this.inputSlots.put(task, new InputSlots(task.getPredecessors().size())));
+        this.monitors = monitors;
+    }
+
+    /**
+     * An execution reporting its state through the {@link Monitor}s of the {@link Task}s and {@link WorkGroup}s :
+     * the one of a {@link Pipeline}.
+     * @param sharedOutputs where the outputs are published, to be read by the caller
+     * @param checkpoints where the checkpointed {@link Task}s' outputs are kept, NULL for none
+     * @param checkpointRun ID of the run the checkpoints belong to
+     * @param resultCache keeps the outputs of the {@link Task}s having a cache key, NULL for none
+     */
+    static ExecutionContext shared(String pipelineId, Notifier notifier, ExecutionProfile defaultProfile,
+                                   SharedOutputs sharedOutputs, CheckpointStore checkpoints,
+                                   String checkpointScope, String checkpointRun, ResultCache resultCache,
+                                   Collection<Task> tasks) {
+        return new ExecutionContext(pipelineId, notifier, defaultProfile, sharedOutputs, checkpoints,
+                checkpointScope, checkpointRun, resultCache, tasks, null);
+    }
+
+    /**
+     * An execution with Monitors of its own, isolated from any other execution of the same {@link Task}s : the one
+     * of a {@link PipelinePlan}.
+     * @param checkpointRun ID of the run the checkpoints belong to
+     * @param ranks rank of each {@link Task}, copied into its new {@link Monitor}
+     */
+    static ExecutionContext isolated(String pipelineId, Notifier notifier, ExecutionProfile defaultProfile,
+                                     CheckpointStore checkpoints, String checkpointScope, String checkpointRun,
+                                     ResultCache resultCache, Collection<Task> tasks, Collection<WorkGroup> workGroups,
+                                     Map<Task, Integer> ranks) {
+        Map<Monitorable, Monitor> monitors = new IdentityHashMap<>((tasks.size() + workGroups.size()) * 2);
+        tasks.forEach(task -> {
+            Monitor monitor = new Monitor(task.getMonitor().getType());
+            monitor.setRank(ranks.getOrDefault(task, 0));
+            monitors.put(task, monitor);
+        });
+        workGroups.forEach(workGroup -> monitors.put(workGroup, new Monitor(workGroup.getMonitor().getType())));
+        return new ExecutionContext(pipelineId, notifier, defaultProfile, new SharedOutputs(), checkpoints,
+                checkpointScope, checkpointRun, resultCache, tasks, monitors);
+    }
+
+    /** @return the {@link Monitor} of the given object for this execution */
+    Monitor monitorOf(Monitorable monitorable) {
+        return this.monitors == null ? monitorable.getMonitor() : this.monitors.get(monitorable);
+    }
+
+    /**
+     * @param producer a batched 'predecessor' of the consumer
+     * @param consumer a {@link Task} of the execution
+     * @return the metrics of the batches sent by the producer to the consumer during this execution, NULL if the
+     * edge is not batched
+     */
+    BatchMetrics batchMetricsOf(Task producer, Task consumer) {
+        if (this.monitors == null || consumer.getInputBatching(producer) == null) {
+            return consumer.getBatchMetrics(producer);
+        }
+        return edgeMetrics(this.batchMetrics, producer, consumer, BatchMetrics::new);
+    }
+
+    /**
+     * @param producer a 'predecessor' of the consumer
+     * @param consumer a {@link Task} of the execution
+     * @return the gauges of the queue from the producer to the consumer during this execution
+     */
+    BufferMetrics bufferMetricsOf(Task producer, Task consumer) {
+        if (this.monitors == null) {
+            return consumer.getBufferMetrics(producer);
+        }
+        consumer.slotIndexOf(producer);
+        return edgeMetrics(this.bufferMetrics, producer, consumer, BufferMetrics::new);
+    }
+
+    private static <M> M edgeMetrics(Map<Task, Map<Task, M>> metrics, Task producer, Task consumer,
+                                     Supplier<M> factory) {
+        return metrics.computeIfAbsent(consumer, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(producer, p -> factory.get());
+    }
+
+    /** @return the input slots of the given {@link Task} for this execution, NULL if it is not part of it */
+    InputSlots inputSlotsOf(Task task) {
+        return this.inputSlots.get(task);
+    }
+
+    /**
+     * Computes the key of a {@link Task}'s output in the {@link ResultCache}, once all of its predecessors have been
+     * assembled.
+     * @return NULL if the Task, or any of its predecessors, is not cacheable
+     */
+    String cacheKeyOf(Task task) {
+        if (this.resultCache == null || task.getCacheKey() == null) {
+            return null;
+        }
+        List<String> inputKeys = new ArrayList<>(task.getPredecessors().size());
+        for (Task predecessor : task.getPredecessors()) {
+            String inputKey = this.cacheKeys.get(predecessor);
+            if (inputKey == null) {
+                return null;
+            }
+            inputKeys.add(inputKey);
+        }
+        String key = ResultCache.keyOf(task.getCacheKey(), inputKeys);
+        this.cacheKeys.put(task, key);
+        return key;
+    }
+
+    /** @return the number of successors of the given {@link Task} taking part in this execution */
+    int consumerCountOf(Task producer) {
+        int consumers = 0;
+        for (Task successor : producer.getSuccessors()) {
+            if (this.inputSlots.containsKey(successor)) {
+                consumers++;
+            }
+        }
+        return consumers;
+    }
+
+    /**
+     * Stores the output of a 'predecessor' into the input slots of a {@link Task}.
+     * @return TRUE if this {@link Flux} was the last missing input, ie the Task is now ready to be processed.
+     * FALSE for a Task which is not part of this execution.
+     */
+    boolean inject(Task producer, Task consumer, Flux<?> flux) {
+        InputSlots slots = this.inputSlots.get(consumer);
+        return slots != null && slots.fill(consumer.slotIndexOf(producer), flux);
+    }
+}
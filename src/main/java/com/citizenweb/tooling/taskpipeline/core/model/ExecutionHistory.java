@@ -0,0 +1,618 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.HistoryRecord;
+import com.citizenweb.tooling.taskpipeline.core.utils.HistoryStoreSettings;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingStatus;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Local, append-only store of the executions of {@link Task}s, {@link WorkGroup}s and {@link Pipeline}s, kept
+ * once the Pipelines are gone : for post-mortems, and to feed a {@link TaskCostHistory}.<br>
+ * Each ended execution is a fixed-width record of {@value #RECORD_SIZE} bytes, written into memory-mapped segment
+ * files. Names are stored once, in a dictionary file, and referenced by their index :
+ * <pre>
+ * 0  type (ordinal + 1, 0 for a free slot)   1  status    2  reserved
+ * 4  name ref    8  pipeline name ref    12 rank
+ * 16 pipeline ID (UUID, 2 longs)        32 monitor ID (UUID, 2 longs)
+ * 48 start time (ms)    56 end time (ms)    64 duration (ns)
+ * 72 time to first element (ns)    80 active time (ns)    88 element count
+ * </pre>
+ * A new segment is started once the current one is full, and the oldest ones are deleted according to the
+ * {@link HistoryStoreSettings} : when a segment is started, and periodically so that an idle store ages out too.<br>
+ * {@link #submit(Pipeline, Monitor)} only captures the {@link Monitor}'s values and hands them off : records are
+ * written by a single background thread, never by the Task threads. The executions of a {@link PipelinePlan} given
+ * this store are recorded under the ID of their {@link PipelineRun}.
+ */
+@Slf4j
+public class ExecutionHistory implements Closeable {
+
+    /** Size of a record, in bytes */
+    static final int RECORD_SIZE = 96;
+    private static final int TYPE = 0;
+    private static final int STATUS = 1;
+    private static final int NAME = 4;
+    private static final int PIPELINE_NAME = 8;
+    private static final int RANK = 12;
+    private static final int PIPELINE_ID = 16;
+    private static final int MONITOR_ID = 32;
+    private static final int START_TIME = 48;
+    private static final int END_TIME = 56;
+    private static final int DURATION = 64;
+    private static final int TIME_TO_FIRST_ELEMENT = 72;
+    private static final int ACTIVE_TIME = 80;
+    private static final int ELEMENT_COUNT = 88;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".hist";
+    private static final String NAMES_FILE = "names.dict";
+    private static final ProcessingType[] TYPES = ProcessingType.values();
+    private static final ProcessingStatus[] STATUSES = ProcessingStatus.values();
+    /** Name indexes kept for the most recent {@link Pipeline}s */
+    private static final int INDEXED_PIPELINES = 64;
+    /** Longest delay between two applications of the retention rules */
+    private static final Duration RETENTION_PERIOD = Duration.ofMinutes(1);
+
+    /** Location, segment size and retention rules */
+    @Getter
+    private final HistoryStoreSettings settings;
+    /** Number of records of a full segment */
+    private final int recordsPerSegment;
+    /** Segments, from the oldest to the current one */
+    private final Deque<Segment> segments = new ConcurrentLinkedDeque<>();
+    /** Reference of each name */
+    private final Map<String, Integer> nameRefs = new ConcurrentHashMap<>();
+    /** Names, by reference */
+    private final List<String> names = new CopyOnWriteArrayList<>();
+    /** Appends the new names to the dictionary file */
+    private final FileChannel namesChannel;
+    /** Executions submitted by any thread, drained by the writer */
+    private final Queue<Entry> pendingEntries = new ConcurrentLinkedQueue<>();
+    /** Whether a drain of the pending entries is already scheduled */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    /** Background thread writing the records, and applying the retention rules */
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pipeline-history");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Names of the {@link Monitorable}s of the most recent {@link Pipeline}s, by Monitor ID. Writer only */
+    private final Map<String, Map<String, String>> pipelineIndexes =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+                    return this.size() > INDEXED_PIPELINES;
+                }
+            };
+    /** Guards the hand-off of a submission against the shutdown of the writer */
+    private final Object submissionLock = new Object();
+    /** Set once closed : further submissions are ignored */
+    private volatile boolean closed;
+
+    private ExecutionHistory(HistoryStoreSettings settings) throws IOException {
+        this.settings = settings;
+        this.recordsPerSegment = settings.getSegmentSize() / RECORD_SIZE;
+        if (this.recordsPerSegment < 1) {
+            throw new IllegalArgumentException("A segment must hold at least one record of " + RECORD_SIZE + " bytes");
+        }
+        Files.createDirectories(settings.getDirectory());
+        this.namesChannel = this.loadNames(settings.getDirectory().resolve(NAMES_FILE));
+        this.loadSegments();
+        long retentionPeriod = Math.max(1, Math.min(settings.getMaxSegmentAge().toMillis(),
+                RETENTION_PERIOD.toMillis()));
+        this.writer.scheduleWithFixedDelay(this::expireSegments, retentionPeriod, retentionPeriod,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the store, creating it if needed. Records and names left by a previous store in the same directory are
+     * read back.
+     * @param settings location, segment size and retention rules
+     * @throws UncheckedIOException if the directory or its files can't be opened
+     */
+    public static ExecutionHistory open(HistoryStoreSettings settings) {
+        try {
+            return new ExecutionHistory(settings);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open the execution history in " + settings.getDirectory(), ex);
+        }
+    }
+
+    /**
+     * Hands off the execution of a {@link Monitorable} of the given {@link Pipeline}, once ended. The Monitor's
+     * values are captured right away, the record is written in the background.
+     * @param pipeline the executing {@link Pipeline}
+     * @param monitor the {@link Monitor} that just changed. Ignored unless DONE or IN_ERROR
+     */
+    public void submit(Pipeline pipeline, Monitor monitor) {
+        this.submit(pipeline.getMonitor().getId(), pipeline.getName(), () -> indexNames(pipeline), monitor);
+    }
+
+    /**
+     * Same as {@link #submit(Pipeline, Monitor)}, for an execution of a {@link PipelinePlan}
+     * @param plan the executed {@link PipelinePlan}
+     * @param context the execution, whose ID is the {@link PipelineRun}'s
+     * @param monitor the {@link Monitor} that just changed, in the given execution
+     */
+    void submit(PipelinePlan plan, ExecutionContext context, Monitor monitor) {
+        this.submit(context.getPipelineId(), plan.getName(), () -> indexNames(plan, context), monitor);
+    }
+
+    private void submit(String pipelineId, String pipelineName, Supplier<Map<String, String>> names,
+                        Monitor monitor) {
+        ProcessingStatus status = monitor.getStatus();
+        if (status != ProcessingStatus.DONE && status != ProcessingStatus.IN_ERROR) {
+            return;
+        }
+        synchronized (this.submissionLock) {
+            if (this.closed) {
+                return;
+            }
+            this.pendingEntries.offer(new Entry(pipelineId, pipelineName, names, monitor, status));
+            if (this.drainScheduled.compareAndSet(false, true)) {
+                this.writer.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Writes all the submitted executions, then forces the segments and the dictionary to the storage device.
+     * Ignored once closed
+     */
+    public void flush() {
+        CompletableFuture<Void> flushed;
+        synchronized (this.submissionLock) {
+            if (this.closed) {
+                return;
+            }
+            flushed = this.drainAndForce();
+        }
+        flushed.join();
+    }
+
+    /** @return completed once the writer has drained the submissions and forced the files */
+    private CompletableFuture<Void> drainAndForce() {
+        return CompletableFuture.runAsync(() -> {
+            this.drain();
+            this.segments.getLast().buffer.force();
+            try {
+                this.namesChannel.force(false);
+            } catch (IOException ex) {
+                log.error("Unable to force the names of the execution history", ex);
+            }
+        }, this.writer);
+    }
+
+    /** @return all the executions of the given {@link Pipeline}, oldest first */
+    public List<HistoryRecord> scanPipeline(String pipelineId) {
+        UUID id;
+        try {
+            id = UUID.fromString(pipelineId);
+        } catch (IllegalArgumentException ex) {
+            return Collections.emptyList();
+        }
+        long mostSignificant = id.getMostSignificantBits();
+        long leastSignificant = id.getLeastSignificantBits();
+        return this.scan((buffer, offset) -> buffer.getLong(offset + PIPELINE_ID) == mostSignificant
+                && buffer.getLong(offset + PIPELINE_ID + Long.BYTES) == leastSignificant);
+    }
+
+    /** @return all the executions of the {@link Monitorable}s with the given name, oldest first */
+    public List<HistoryRecord> scanName(String name) {
+        Integer ref = this.nameRefs.get(name);
+        if (ref == null) {
+            return Collections.emptyList();
+        }
+        int nameRef = ref;
+        return this.scan((buffer, offset) -> buffer.getInt(offset + NAME) == nameRef);
+    }
+
+    /** @return all the executions still stored, oldest first */
+    public List<HistoryRecord> scanAll() {
+        return this.scan((buffer, offset) -> true);
+    }
+
+    /** Feeds the given {@link TaskCostHistory} with all the {@link Task} executions stored, oldest first */
+    public void replayInto(TaskCostHistory costs) {
+        this.scan((buffer, offset) -> buffer.get(offset + TYPE) == ProcessingType.TASK.ordinal() + 1
+                && buffer.get(offset + STATUS) == ProcessingStatus.DONE.ordinal())
+                .forEach(record -> costs.record(record.getName(), record.getDurationNanos() / 1_000_000));
+    }
+
+    /** @return the number of records currently stored, all segments together */
+    public long getRecordCount() {
+        return this.segments.stream().mapToLong(segment -> segment.records).sum();
+    }
+
+    /** @return the number of segment files currently stored */
+    public int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * Writes all the submitted executions and releases the files : the segments are dropped, to be unmapped once
+     * garbage collected, so that nothing is read from a closed store. Later submissions and flushes are ignored
+     */
+    @Override
+    public void close() {
+        CompletableFuture<Void> flushed;
+        synchronized (this.submissionLock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            flushed = this.drainAndForce();
+        }
+        flushed.join();
+        this.writer.shutdown();
+        try {
+            if (!this.writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("The writer of the execution history is still running");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.segments.clear();
+        try {
+            this.namesChannel.close();
+        } catch (IOException ex) {
+            log.error("Unable to close the names of the execution history", ex);
+        }
+    }
+
+    /**
+     * Reads the records of every segment matching the filter. The records being written are never read : each
+     * segment is only read up to its last complete record.
+     */
+    private List<HistoryRecord> scan(RecordFilter filter) {
+        List<HistoryRecord> records = new ArrayList<>();
+        for (Segment segment : this.segments) {
+            int count = segment.records;
+            ByteBuffer buffer = segment.buffer.duplicate();
+            for (int i = 0, offset = 0; i < count; i++, offset += RECORD_SIZE) {
+                if (filter.test(buffer, offset)) {
+                    records.add(this.decode(buffer, offset));
+                }
+            }
+        }
+        return records;
+    }
+
+    private HistoryRecord decode(ByteBuffer buffer, int offset) {
+        return new HistoryRecord(
+                uuid(buffer, offset + PIPELINE_ID),
+                this.names.get(buffer.getInt(offset + PIPELINE_NAME)),
+                uuid(buffer, offset + MONITOR_ID),
+                this.names.get(buffer.getInt(offset + NAME)),
+                TYPES[buffer.get(offset + TYPE) - 1],
+                STATUSES[buffer.get(offset + STATUS)],
+                buffer.getInt(offset + RANK),
+                buffer.getLong(offset + START_TIME),
+                buffer.getLong(offset + END_TIME),
+                buffer.getLong(offset + DURATION),
+                buffer.getLong(offset + TIME_TO_FIRST_ELEMENT),
+                buffer.getLong(offset + ACTIVE_TIME),
+                buffer.getLong(offset + ELEMENT_COUNT));
+    }
+
+    private static String uuid(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES)).toString();
+    }
+
+    /** Writes the pending entries. Writer thread only */
+    private void drain() {
+        this.drainScheduled.set(false);
+        Entry entry;
+        while ((entry = this.pendingEntries.poll()) != null) {
+            try {
+                this.write(entry);
+            } catch (IOException | RuntimeException ex) {
+                log.error("Unable to write an execution into the history", ex);
+            }
+        }
+    }
+
+    /** Writes a record into the current segment, the type last : a record is complete once its type is set */
+    private void write(Entry entry) throws IOException {
+        Segment segment = this.segments.getLast();
+        if (segment.records == this.recordsPerSegment) {
+            segment = this.roll();
+        }
+        UUID pipelineId = UUID.fromString(entry.pipelineId);
+        UUID monitorId = UUID.fromString(entry.monitorId);
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = segment.records * RECORD_SIZE;
+        buffer.put(offset + STATUS, (byte) entry.status.ordinal());
+        buffer.putInt(offset + NAME, this.nameRef(this.nameOf(entry)));
+        buffer.putInt(offset + PIPELINE_NAME, this.nameRef(entry.pipelineName));
+        buffer.putInt(offset + RANK, entry.rank);
+        buffer.putLong(offset + PIPELINE_ID, pipelineId.getMostSignificantBits());
+        buffer.putLong(offset + PIPELINE_ID + Long.BYTES, pipelineId.getLeastSignificantBits());
+        buffer.putLong(offset + MONITOR_ID, monitorId.getMostSignificantBits());
+        buffer.putLong(offset + MONITOR_ID + Long.BYTES, monitorId.getLeastSignificantBits());
+        buffer.putLong(offset + START_TIME, entry.startTime);
+        buffer.putLong(offset + END_TIME, entry.endTime);
+        buffer.putLong(offset + DURATION, entry.durationNanos);
+        buffer.putLong(offset + TIME_TO_FIRST_ELEMENT, entry.timeToFirstElementNanos);
+        buffer.putLong(offset + ACTIVE_TIME, entry.activeNanos);
+        buffer.putLong(offset + ELEMENT_COUNT, entry.elementCount);
+        buffer.put(offset + TYPE, (byte) (entry.type.ordinal() + 1));
+        segment.records++;
+        segment.lastWrite = System.currentTimeMillis();
+    }
+
+    /** @return the name of the executed {@link Monitorable}, looked up among the ones of its {@link Pipeline} */
+    private String nameOf(Entry entry) {
+        Map<String, String> index = this.pipelineIndexes.get(entry.pipelineId);
+        String name = index == null ? null : index.get(entry.monitorId);
+        if (name == null) {
+            index = entry.names.get();
+            this.pipelineIndexes.put(entry.pipelineId, index);
+            name = index.getOrDefault(entry.monitorId, "");
+        }
+        return name;
+    }
+
+    private static Map<String, String> indexNames(Pipeline pipeline) {
+        Map<String, String> index = new HashMap<>();
+        index.put(pipeline.getMonitor().getId(), pipeline.getName());
+        pipeline.getTasks().forEach(task -> index.put(task.getMonitor().getId(), task.getName()));
+        if (pipeline.getWorkGroups() != null) {
+            pipeline.getWorkGroups().forEach(group -> index.put(group.getMonitor().getId(), group.getName()));
+        }
+        return index;
+    }
+
+    private static Map<String, String> indexNames(PipelinePlan plan, ExecutionContext context) {
+        Map<String, String> index = new HashMap<>();
+        index.put(context.getPipelineId(), plan.getName());
+        plan.getTasks().forEach(task -> index.put(context.monitorOf(task).getId(), task.getName()));
+        plan.getWorkGroups().forEach(group -> index.put(context.monitorOf(group).getId(), group.getName()));
+        return index;
+    }
+
+    /** @return the reference of the name, appended to the dictionary the first time. Writer thread only */
+    private int nameRef(String name) throws IOException {
+        Integer ref = this.nameRefs.get(name);
+        if (ref != null) {
+            return ref;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes).flip();
+        while (entry.hasRemaining()) {
+            this.namesChannel.write(entry);
+        }
+        int newRef = this.names.size();
+        this.names.add(name);
+        this.nameRefs.put(name, newRef);
+        return newRef;
+    }
+
+    /** Reads the dictionary back, dropping an entry left incomplete by a crash */
+    private FileChannel loadNames(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+        while (content.hasRemaining() && channel.read(content) >= 0) {
+            // reads the whole dictionary
+        }
+        content.flip();
+        while (content.remaining() >= Integer.BYTES) {
+            int length = content.getInt(content.position());
+            if (length < 0 || content.remaining() < Integer.BYTES + length) {
+                break;
+            }
+            content.position(content.position() + Integer.BYTES);
+            byte[] bytes = new byte[length];
+            content.get(bytes);
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            this.nameRefs.put(name, this.names.size());
+            this.names.add(name);
+        }
+        channel.truncate(content.position());
+        channel.position(content.position());
+        return channel;
+    }
+
+    /** Maps the existing segments, the last one being the current one, or starts the first segment */
+    private void loadSegments() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(this.settings.getDirectory())) {
+            files = paths.filter(path -> segmentIndex(path) >= 0)
+                    .sorted((left, right) -> Long.compare(segmentIndex(left), segmentIndex(right)))
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            if (Files.size(file) != (long) this.recordsPerSegment * RECORD_SIZE) {
+                log.warn("Ignoring history segment {} : its size does not match the settings", file);
+                continue;
+            }
+            Segment segment = new Segment(segmentIndex(file), file, map(file, this.recordsPerSegment));
+            segment.records = countRecords(segment.buffer, this.recordsPerSegment);
+            segment.lastWrite = Files.getLastModifiedTime(file).toMillis();
+            this.segments.addLast(segment);
+        }
+        if (this.segments.isEmpty()) {
+            this.segments.addLast(this.newSegment(0));
+        }
+    }
+
+    /** Starts a new segment, then applies the retention rules. Writer thread only */
+    private Segment roll() throws IOException {
+        Segment full = this.segments.getLast();
+        full.buffer.force();
+        Segment segment = this.newSegment(full.index + 1);
+        this.segments.addLast(segment);
+        this.deleteExpiredSegments();
+        return segment;
+    }
+
+    /**
+     * Applies the retention rules without waiting for a new segment : a current segment too old to be kept is
+     * rolled, so that its records are deleted as well. Writer thread only
+     */
+    private void expireSegments() {
+        try {
+            Segment current = this.segments.getLast();
+            if (current.records > 0 && current.lastWrite < this.oldestKept()) {
+                this.roll();
+            } else {
+                this.deleteExpiredSegments();
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.error("Unable to apply the retention rules of the execution history", ex);
+        }
+    }
+
+    /** Deletes the oldest segments, the current one excepted. Writer thread only */
+    private void deleteExpiredSegments() throws IOException {
+        long oldest = this.oldestKept();
+        while (this.segments.size() > 1 && (this.segments.size() > this.settings.getMaxSegments()
+                || this.segments.getFirst().lastWrite < oldest)) {
+            Segment expired = this.segments.removeFirst();
+            Files.deleteIfExists(expired.path);
+        }
+    }
+
+    /** @return the time of the oldest write kept by the retention rules, in milliseconds */
+    private long oldestKept() {
+        return System.currentTimeMillis() - this.settings.getMaxSegmentAge().toMillis();
+    }
+
+    private Segment newSegment(long index) throws IOException {
+        Path path = this.settings.getDirectory().resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index,
+                SEGMENT_SUFFIX));
+        Segment segment = new Segment(index, path, map(path, this.recordsPerSegment));
+        segment.lastWrite = System.currentTimeMillis();
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, int records) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_SIZE);
+        }
+    }
+
+    /** Records are contiguous : binary search of the first free slot */
+    private static int countRecords(ByteBuffer buffer, int capacity) {
+        int low = 0;
+        int high = capacity;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.get(middle * RECORD_SIZE + TYPE) != 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /** @return the index of a segment file, -1 for any other file */
+    private static long segmentIndex(Path path) {
+        String fileName = path.getFileName().toString();
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+                    fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /** Selects records without decoding them */
+    @FunctionalInterface
+    private interface RecordFilter {
+        boolean test(ByteBuffer buffer, int offset);
+    }
+
+    /** A memory-mapped segment file */
+    private static final class Segment {
+        private final long index;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        /** Number of complete records : written by the writer only, read by any scan */
+        private volatile int records;
+        /** Time of the last write, in milliseconds */
+        private volatile long lastWrite;
+
+        Segment(long index, Path path, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    /** Values of a {@link Monitor}, captured when submitted */
+    private static final class Entry {
+        private final String pipelineId;
+        private final String pipelineName;
+        /** Names of the {@link Monitorable}s of the execution, by Monitor ID : only indexed once per execution */
+        private final Supplier<Map<String, String>> names;
+        private final String monitorId;
+        private final ProcessingType type;
+        private final ProcessingStatus status;
+        private final int rank;
+        private final long startTime;
+        private final long endTime;
+        private final long durationNanos;
+        private final long timeToFirstElementNanos;
+        private final long activeNanos;
+        private final long elementCount;
+
+        Entry(String pipelineId, String pipelineName, Supplier<Map<String, String>> names, Monitor monitor,
+              ProcessingStatus status) {
+            FlowMetrics metrics = monitor.getFlowMetrics();
+            this.pipelineId = pipelineId;
+            this.pipelineName = pipelineName;
+            this.names = names;
+            this.monitorId = monitor.getId();
+            this.type = monitor.getType();
+            this.status = status;
+            this.rank = monitor.getRank();
+            this.startTime = monitor.getStartTime();
+            this.endTime = monitor.getEndTime();
+            this.durationNanos = monitor.getDurationNanos();
+            this.timeToFirstElementNanos = metrics.getTimeToFirstElementNanos();
+            this.activeNanos = metrics.getActiveNanos();
+            this.elementCount = metrics.getElementCount();
+        }
+    }
+
+}
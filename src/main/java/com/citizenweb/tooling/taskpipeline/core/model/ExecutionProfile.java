@@ -0,0 +1,51 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import lombok.Getter;
+import lombok.ToString;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Tells on which {@link Scheduler} the {@link Operation} of a {@link Task} is run.<br>
+ * A {@link Task} blocking on I/O must not be run on the CPU-sized pool shared by all the {@link Pipeline}s of the
+ * process, or it would starve all of them.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public final class ExecutionProfile {
+
+    /** Non-blocking computations, run on {@link Schedulers#parallel()} */
+    public static final ExecutionProfile CPU_BOUND = new ExecutionProfile("CPU_BOUND", Schedulers::parallel);
+    /** Blocking calls (JDBC, files, remote services...), run on {@link Schedulers#boundedElastic()} */
+    public static final ExecutionProfile BLOCKING_IO = new ExecutionProfile("BLOCKING_IO", Schedulers::boundedElastic);
+
+    /** Name of the profile, for logging */
+    @Getter
+    @ToString.Include
+    private final String name;
+    /** Resolved at each use, so that a disposed shared {@link Scheduler} is replaced by a new one */
+    private final Supplier<Scheduler> scheduler;
+
+    private ExecutionProfile(String name, Supplier<Scheduler> scheduler) {
+        this.name = name;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * A profile running {@link Task}s on a {@link Scheduler} of your own, which lifecycle remains yours.
+     * @param name name of the profile, for logging
+     * @param scheduler the {@link Scheduler} to use
+     * @return a new {@link ExecutionProfile}
+     */
+    public static ExecutionProfile custom(String name, Scheduler scheduler) {
+        Objects.requireNonNull(scheduler, "A custom ExecutionProfile needs a Scheduler");
+        return new ExecutionProfile(Objects.requireNonNull(name, "An ExecutionProfile has to be named"), () -> scheduler);
+    }
+
+    /** @return the {@link Scheduler} to run {@link Task}s on */
+    public Scheduler getScheduler() {
+        return this.scheduler.get();
+    }
+}
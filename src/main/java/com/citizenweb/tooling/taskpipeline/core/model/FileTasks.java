@@ -0,0 +1,226 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.FileSinkSettings;
+import com.citizenweb.tooling.taskpipeline.core.utils.FileSourceSettings;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Built-in {@link Task}s reading and writing files through {@link FileChannel}s, on the
+ * {@link ExecutionProfile#BLOCKING_IO} profile.
+ * <ul>
+ *     <li>a source Task streams a file, or the files of a directory, as a {@link Flux} of {@link ByteBuffer} chunks,
+ *     optionally split into lines or records. A chunk is only read once requested : the memory held does not
+ *     depend on the size of the files. Memory mapped chunks are sliced from large mapped regions, so that the number
+ *     of mappings does not grow with the number of chunks either</li>
+ *     <li>a sink Task writes the elements it receives with gathering writes, a bounded number of them at a time,
+ *     and emits the number of bytes written once done</li>
+ * </ul>
+ */
+@Slf4j
+public final class FileTasks {
+
+    private FileTasks() {
+    }
+
+    /** Same as {@link #source(String, Path, FileSourceSettings)}, with the default settings */
+    public static Task source(String taskName, Path path) {
+        return source(taskName, path, FileSourceSettings.defaults());
+    }
+
+    /**
+     * @param taskName the name of the {@link Task}
+     * @param path a file, or a directory which files matching the settings' glob are read in name order
+     * @param settings chunk size, memory mapping and framing
+     * @return an initial {@link Task} emitting {@link ByteBuffer}s, read-only when memory mapped
+     */
+    public static Task source(String taskName, Path path, FileSourceSettings settings) {
+        Objects.requireNonNull(path, "A source Task needs a file or a directory");
+        if (settings.getChunkSize() < 1) {
+            throw new IllegalArgumentException("A chunk holds at least one byte, not " + settings.getChunkSize());
+        }
+        if (settings.getMappedRegionSize() < 1) {
+            throw new IllegalArgumentException("A mapped region holds at least one byte, not "
+                    + settings.getMappedRegionSize());
+        }
+        Operation read = inputs -> Mono.fromCallable(() -> filesOf(path, settings.getGlob()))
+                .flatMapIterable(files -> files)
+                .concatMap(file -> settings.getFraming().apply(chunksOf(file, settings)), 1);
+        return new Task(taskName, read, Collections.emptyList(), ExecutionProfile.BLOCKING_IO);
+    }
+
+    /** Same as {@link #sink(String, Path, Task, FileSinkSettings)}, with the default settings */
+    public static Task sink(String taskName, Path file, Task predecessor) {
+        return sink(taskName, file, predecessor, FileSinkSettings.defaults());
+    }
+
+    /**
+     * @param taskName the name of the {@link Task}
+     * @param file the file written, created if needed
+     * @param predecessor produces the elements to write : {@link ByteBuffer}s and byte arrays are written as they
+     *                    are, anything else as the UTF-8 encoding of its String value
+     * @param settings gathering, separator and durability of the writes
+     * @return a {@link Task} emitting the number of bytes written, once all of them are
+     */
+    public static Task sink(String taskName, Path file, Task predecessor, FileSinkSettings settings) {
+        Objects.requireNonNull(file, "A sink Task needs a file");
+        if (settings.getGatherSize() < 1) {
+            throw new IllegalArgumentException("A write gathers at least one element, not "
+                    + settings.getGatherSize());
+        }
+        ByteBuffer separator = settings.getSeparator() == null ? null
+                : ByteBuffer.wrap(settings.getSeparator().clone()).asReadOnlyBuffer();
+        Operation write = inputs -> Flux.using(() -> FileChannel.open(file, openOptions(settings)),
+                channel -> inputs[0]
+                        .buffer(settings.getGatherSize())
+                        .concatMap(elements -> Mono.fromCallable(() -> write(channel, elements, separator)), 1)
+                        .reduce(0L, Long::sum)
+                        .flatMap(written -> Mono.fromCallable(() -> {
+                            if (settings.isForce()) {
+                                channel.force(false);
+                            }
+                            return written;
+                        })),
+                FileTasks::close);
+        return new Task(taskName, write, List.of(predecessor), ExecutionProfile.BLOCKING_IO);
+    }
+
+    /** @return the file itself, or the files of the directory matching the glob, in name order */
+    private static List<Path> filesOf(Path path, String glob) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> directory = Files.newDirectoryStream(path, glob)) {
+            for (Path file : directory) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /** @return the chunks of the file, each one read when requested */
+    private static Flux<ByteBuffer> chunksOf(Path file, FileSourceSettings settings) {
+        return Flux.using(() -> FileChannel.open(file, StandardOpenOption.READ),
+                channel -> Flux.generate(Cursor::new, (Cursor cursor, SynchronousSink<ByteBuffer> sink) -> {
+                    try {
+                        long size = channel.size();
+                        if (cursor.position >= size) {
+                            sink.complete();
+                            return cursor;
+                        }
+                        int length = (int) Math.min(settings.getChunkSize(), size - cursor.position);
+                        sink.next(settings.isMemoryMapped()
+                                ? slice(channel, cursor, length, size, settings.getMappedRegionSize())
+                                : read(channel, cursor.position, length));
+                        cursor.position += length;
+                        return cursor;
+                    } catch (IOException ex) {
+                        sink.error(new UncheckedIOException("Unable to read " + file, ex));
+                        return cursor;
+                    }
+                }),
+                FileTasks::close);
+    }
+
+    /**
+     * @return a read-only slice of the mapped region holding the chunk at the cursor's position, a new region being
+     * mapped from this position once the current one is exhausted
+     */
+    private static ByteBuffer slice(FileChannel channel, Cursor cursor, int length, long size, int regionSize)
+            throws IOException {
+        if (cursor.region == null || cursor.position + length > cursor.regionPosition + cursor.region.capacity()) {
+            long mapped = Math.min(Math.max(regionSize, length), size - cursor.position);
+            cursor.region = channel.map(FileChannel.MapMode.READ_ONLY, cursor.position, mapped);
+            cursor.regionPosition = cursor.position;
+        }
+        int offset = (int) (cursor.position - cursor.regionPosition);
+        return cursor.region.duplicate().position(offset).limit(offset + length).slice();
+    }
+
+    /** @return a heap copy of the given region of the file */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(length);
+        while (chunk.hasRemaining() && channel.read(chunk, position + chunk.position()) >= 0) {
+            // reads until the chunk is full or the file ends
+        }
+        return chunk.flip();
+    }
+
+    /** Writes the elements, and their separators, with as few gathering writes as possible */
+    private static long write(FileChannel channel, List<?> elements, ByteBuffer separator) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[separator == null ? elements.size() : elements.size() * 2];
+        long length = 0;
+        int i = 0;
+        for (Object element : elements) {
+            buffers[i] = toBuffer(element);
+            length += buffers[i++].remaining();
+            if (separator != null) {
+                buffers[i] = separator.duplicate();
+                length += buffers[i++].remaining();
+            }
+        }
+        long written = 0;
+        while (written < length) {
+            written += channel.write(buffers);
+        }
+        return written;
+    }
+
+    private static ByteBuffer toBuffer(Object element) {
+        if (element instanceof ByteBuffer) {
+            return ((ByteBuffer) element).duplicate();
+        }
+        if (element instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) element);
+        }
+        if (element instanceof CharSequence) {
+            return StandardCharsets.UTF_8.encode(CharBuffer.wrap((CharSequence) element));
+        }
+        return StandardCharsets.UTF_8.encode(String.valueOf(element));
+    }
+
+    private static OpenOption[] openOptions(FileSinkSettings settings) {
+        return settings.isAppend()
+                ? new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND}
+                : new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING};
+    }
+
+    /** Position of the next chunk of a file, and the mapped region it is sliced from */
+    private static final class Cursor {
+        private long position;
+        private MappedByteBuffer region;
+        private long regionPosition;
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            log.warn("Unable to close a file channel : {}", ex.toString());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runtime metrics of the output {@link Flux} of a {@link Task} : they measure the data actually flowing, not the
+ * assembly of the Flux.<br>
+ * All times are read from {@link System#nanoTime()}, and each element only costs a counter increment.
+ */
+@ToString
+public class FlowMetrics {
+
+    /** Number of elements emitted, all subscriptions together */
+    private final LongAdder elements = new LongAdder();
+    /** Number of subscriptions currently running */
+    private final AtomicInteger activeSubscriptions = new AtomicInteger();
+    /** Number of subscriptions terminated by an error, during the current active period */
+    private final AtomicInteger errors = new AtomicInteger();
+    /** Number of subscriptions terminated by an error, all periods together */
+    private final LongAdder totalErrors = new LongAdder();
+    /** Time spent with at least one running subscription, not including the current period */
+    private final AtomicLong activeNanos = new AtomicLong();
+    /** Start of the current active period */
+    private volatile long activeSince;
+    private volatile boolean subscribed;
+    private volatile long firstSubscriptionNanos;
+    private volatile boolean emitted;
+    private volatile long firstElementNanos;
+    /** How the last subscription ended, NULL while none did */
+    private volatile SignalType terminalSignal;
+
+    /**
+     * Hooks the metrics on the lifecycle of a {@link Flux}.
+     * @param flux the output of a {@link Task}
+     * @param onStart called when a first subscription starts while none is running
+     * @param onEnd called when the last running subscription ends, with TRUE if any subscription of the active period
+     *              that just ended failed
+     * @return the instrumented {@link Flux}
+     */
+    public <T> Flux<T> instrument(Flux<T> flux, Runnable onStart, Consumer<Boolean> onEnd) {
+        return flux
+                .doOnSubscribe(subscription -> {
+                    long now = System.nanoTime();
+                    if (this.activeSubscriptions.getAndIncrement() == 0) {
+                        this.activeSince = now;
+                        if (!this.subscribed) {
+                            this.firstSubscriptionNanos = now;
+                            this.subscribed = true;
+                        }
+                        onStart.run();
+                    }
+                })
+                .doOnNext(element -> {
+                    if (!this.emitted) {
+                        this.firstElementNanos = System.nanoTime();
+                        this.emitted = true;
+                    }
+                    this.elements.increment();
+                })
+                .doOnComplete(() -> this.subscriptionEnded(SignalType.ON_COMPLETE, onEnd))
+                .doOnError(error -> this.subscriptionEnded(SignalType.ON_ERROR, onEnd))
+                .doOnCancel(() -> this.subscriptionEnded(SignalType.CANCEL, onEnd));
+    }
+
+    /** Called before the end of the subscription is signaled downstream, so that the subscriber sees final metrics */
+    private void subscriptionEnded(SignalType signal, Consumer<Boolean> onEnd) {
+        this.terminalSignal = signal;
+        if (signal == SignalType.ON_ERROR) {
+            this.errors.incrementAndGet();
+            this.totalErrors.increment();
+        }
+        if (this.activeSubscriptions.decrementAndGet() == 0) {
+            this.activeNanos.addAndGet(System.nanoTime() - this.activeSince);
+            /* The next period starts without errors */
+            onEnd.accept(this.errors.getAndSet(0) > 0);
+        }
+    }
+
+    /** @return the number of elements emitted so far */
+    public long getElementCount() {
+        return this.elements.sum();
+    }
+
+    /** @return nanoseconds between the first subscription and the first element, -1 if none yet */
+    public long getTimeToFirstElementNanos() {
+        return this.emitted ? this.firstElementNanos - this.firstSubscriptionNanos : -1;
+    }
+
+    /** @return nanoseconds spent with at least one running subscription, including the current one */
+    public long getActiveNanos() {
+        long active = this.activeNanos.get();
+        return this.activeSubscriptions.get() > 0 ? active + System.nanoTime() - this.activeSince : active;
+    }
+
+    /** @return elements per second of active time */
+    public double getThroughput() {
+        long activeNanos = this.getActiveNanos();
+        return activeNanos > 0 ? this.getElementCount() * (double) TimeUnit.SECONDS.toNanos(1) / activeNanos : 0;
+    }
+
+    /** @return the number of subscriptions terminated by an error so far */
+    public long getErrorCount() {
+        return this.totalErrors.sum();
+    }
+
+    /** @return the number of subscriptions currently running */
+    public int getActiveSubscriptions() {
+        return this.activeSubscriptions.get();
+    }
+
+    /** @return how the last subscription ended : complete, error or cancel. NULL while none did */
+    public SignalType getTerminalSignal() {
+        return this.terminalSignal;
+    }
+}
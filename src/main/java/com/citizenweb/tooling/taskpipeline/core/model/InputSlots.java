@@ -0,0 +1,68 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size, indexed storage for the input {@link Flux}es of a {@link Task}.<br>
+ * There is one slot per 'predecessor', in the same order as the predecessors were declared, and a counter of the
+ * slots that are still empty. Filling a slot and knowing whether the {@link Task} is ready are both O(1), so the
+ * {@link WorkGroup} can dispatch a Task the very moment its last input arrives, without polling.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public final class InputSlots {
+
+    /** One slot per predecessor, filled only once */
+    private final AtomicReferenceArray<Flux<?>> slots;
+    /** Number of slots still waiting for a {@link Flux} */
+    @ToString.Include
+    private final AtomicInteger missingInputs;
+
+    InputSlots(int size) {
+        this.slots = new AtomicReferenceArray<>(size);
+        this.missingInputs = new AtomicInteger(size);
+    }
+
+    /**
+     * Stores a {@link Flux} in the given slot. A slot already filled is left untouched.
+     * @param index position of the producing predecessor
+     * @param flux the produced {@link Flux}
+     * @return TRUE if this call filled the last missing slot
+     */
+    boolean fill(int index, Flux<?> flux) {
+        if (this.slots.compareAndSet(index, null, flux)) {
+            return this.missingInputs.decrementAndGet() == 0;
+        }
+        return false;
+    }
+
+    /** @return TRUE if every slot holds a {@link Flux} */
+    public boolean isComplete() {
+        return this.missingInputs.get() == 0;
+    }
+
+    /** @return the number of slots still waiting for a {@link Flux} */
+    public int getMissingInputs() {
+        return this.missingInputs.get();
+    }
+
+    /** @return the number of slots, ie the number of predecessors */
+    public int size() {
+        return this.slots.length();
+    }
+
+    /**
+     * Snapshot of the slots, ready to be given to an {@link Operation}.
+     * @return an array of {@link Flux}es in predecessors order
+     */
+    public Flux<?>[] toArray() {
+        Flux<?>[] array = new Flux[this.slots.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = this.slots.get(i);
+        }
+        return array;
+    }
+}
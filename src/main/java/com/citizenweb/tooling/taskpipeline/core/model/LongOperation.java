@@ -0,0 +1,37 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.exceptions.TaskExecutionException;
+import com.citizenweb.tooling.taskpipeline.core.utils.ChunkType;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link Operation} exchanging long[] chunks instead of boxed {@link Long}s : a chunk travels as a single
+ * element, and its values are never boxed.<br>
+ * Within a {@link Pipeline} or a {@link PipelinePlan}, the boxed outputs of ordinary {@link Task}s are gathered into
+ * chunks before they reach this Operation, and its chunks are unboxed before they reach an ordinary Task. The output
+ * of a terminal Task wrapping this Operation is made of long[] chunks.
+ * @see ChunkType
+ */
+@FunctionalInterface
+public interface LongOperation extends Operation {
+
+    /**
+     * Processes chunks of values.
+     * @param inputs the chunks coming from preceding Operations, in the order of the predecessors
+     * @return the output chunks
+     */
+    Flux<long[]> processLongs(List<Flux<long[]>> inputs) throws TaskExecutionException;
+
+    /** Adapts the inputs into chunks, whatever their elements, then processes them */
+    @Override
+    default Flux<?> process(Flux<?>... inputs) throws TaskExecutionException {
+        List<Flux<long[]>> chunks = new ArrayList<>(inputs.length);
+        for (Flux<?> input : inputs) {
+            chunks.add(ChunkType.longs(input));
+        }
+        return this.processLongs(chunks);
+    }
+}
@@ -4,13 +4,13 @@ import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingStatus;
 import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingType;
 import lombok.*;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Object in charge of life cycle management for any {@link Monitorable} object.<br>
- * It contains all the data that will be exported to the Front End for display purpose.
+ * It contains all the data that will be exported to the Front End for display purpose.<br>
+ * State transitions allocate nothing : times are kept as raw milliseconds and nanoseconds.
  */
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -24,20 +24,29 @@ public class Monitor {
     private final ProcessingType type;
     /** Current status of the monitored object */
     @Getter @Setter
-    private ProcessingStatus status;
-    /** Starting time */
-    @Getter @Setter
-    private LocalDateTime startTime;
-    /** Ending time */
-    @Getter @Setter
-    private LocalDateTime endTime;
+    private volatile ProcessingStatus status;
+    /** Starting time, in milliseconds since the epoch. 0 if not started yet */
+    @Getter
+    private volatile long startTime;
+    /** Ending time, in milliseconds since the epoch. 0 if not ended yet */
+    @Getter
+    private volatile long endTime;
+    /** Starting time, from {@link System#nanoTime()}, to compute the duration */
+    @ToString.Exclude
+    private volatile long startNanos;
     /** Computed duration : Ending time - Starting time in Millis */
     @Getter @Setter
-    private long duration;
+    private volatile long duration;
+    /** Same as {@link #duration}, in nanoseconds */
+    @Getter
+    private volatile long durationNanos;
     /** Locates a task within a work path. Terminal task is rank 1 by default. Other tasks ranks depend
      * on their respective location compared to the terminal task */
     @Getter @Setter
     private int rank;
+    /** Metrics of the data flowing out of the monitored {@link Task} */
+    @Getter
+    private final FlowMetrics flowMetrics = new FlowMetrics();
 
     public Monitor(ProcessingType monitoredObject) {
         this.type = monitoredObject;
@@ -49,26 +58,32 @@ public class Monitor {
      * Set Status to RUNNING
      */
     public void statusToRunning() {
+        this.startNanos = System.nanoTime();
+        this.startTime = System.currentTimeMillis();
+        this.endTime = 0;
         this.status = ProcessingStatus.RUNNING;
-        this.startTime = LocalDateTime.now();
     }
 
     /**
      * Set Status to DONE
      */
     public void statusToDone() {
-        this.status = ProcessingStatus.DONE;
-        this.endTime = LocalDateTime.now();
-        this.duration = Duration.between(startTime, endTime).toMillis();
+        this.end(ProcessingStatus.DONE);
     }
 
     /**
      * Set Status to ERROR
      */
     public void statusToError() {
-        this.status = ProcessingStatus.IN_ERROR;
-        this.endTime = LocalDateTime.now();
-        this.duration = Duration.between(startTime, endTime).toMillis();
+        this.end(ProcessingStatus.IN_ERROR);
+    }
+
+    private void end(ProcessingStatus finalStatus) {
+        long now = System.nanoTime();
+        this.endTime = System.currentTimeMillis();
+        this.durationNanos = this.startTime == 0 ? 0 : now - this.startNanos;
+        this.duration = TimeUnit.NANOSECONDS.toMillis(this.durationNanos);
+        this.status = finalStatus;
     }
 
 }
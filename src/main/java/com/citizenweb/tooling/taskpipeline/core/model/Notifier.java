@@ -13,4 +13,13 @@ public interface Notifier {
      */
     void notifyStateChange();
 
+    /**
+     * Notifies the {@link DataStreamer} that the given {@link Monitor} just changed.<br>
+     * By default, the whole {@link Pipeline}'s state is exported.
+     * @param changed the {@link Monitor} of the {@link Monitorable} whose state changed
+     */
+    default void notifyStateChange(Monitor changed) {
+        this.notifyStateChange();
+    }
+
 }
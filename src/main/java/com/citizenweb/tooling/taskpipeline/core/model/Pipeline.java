@@ -1,15 +1,22 @@
 package com.citizenweb.tooling.taskpipeline.core.model;
 
+import com.citizenweb.tooling.taskpipeline.core.utils.OrchestrationExecutors;
+import com.citizenweb.tooling.taskpipeline.core.utils.PipelineExecutionEvent;
 import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingType;
 import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link Pipeline} contains all the logic needed to consume {@link Task}s in the most efficient way
@@ -29,9 +36,58 @@ public class Pipeline extends Monitorable {
     private final WorkGroupOptimizer optimizer;
 
     @Getter
-    private Collection<WorkGroup> workGroups;
+    private volatile Collection<WorkGroup> workGroups;
 
-    /** Pipeline's execution results in producing {@link CompletableFuture} */
+    /** Compiled by the first execution, then reused by the next ones : the optimizer runs only once */
+    private volatile PipelinePlan plan;
+
+    /** Output of every {@link Task}, assembled once and shared by all the {@link WorkGroup}s */
+    @Getter
+    private SharedOutputs sharedOutputs;
+
+    /** {@link ExecutionProfile} of the {@link Task}s that do not declare their own */
+    @NonNull
+    @Getter @Setter
+    private ExecutionProfile defaultProfile = ExecutionProfile.CPU_BOUND;
+
+    /**
+     * Runs the orchestration of the {@link WorkGroup}s, never the {@link Task}s' {@link Operation}s.<br>
+     * Wrap it into a {@link com.citizenweb.tooling.taskpipeline.core.utils.MonitoredExecutor} to get its queue
+     * depth.
+     * @see OrchestrationExecutors
+     */
+    @NonNull
+    @Getter @Setter
+    private Executor executor = OrchestrationExecutors.defaultExecutor();
+
+    /** Stores the ended executions of this Pipeline and of its objects. NULL for no history */
+    @Getter @Setter
+    private ExecutionHistory history;
+
+    /**
+     * Keeps the outputs of the checkpointed {@link Task}s, under the name of this Pipeline and its
+     * {@link #checkpointRun} : executing it again, or another Pipeline of the same name and run, resumes from them.
+     * NULL for no checkpoint
+     */
+    @Getter @Setter
+    private CheckpointStore checkpoints;
+
+    /**
+     * ID of the run the checkpoints of this Pipeline belong to : the ID of its {@link Monitor} by default. Give a new
+     * Pipeline the run of an earlier one, of the same name, to resume from its checkpoints
+     */
+    @NonNull
+    @Getter @Setter
+    private String checkpointRun;
+
+    /**
+     * Keeps the outputs of the {@link Task}s having a cache key : share the same cache between Pipelines to share
+     * their common outputs. NULL for no cache
+     */
+    @Getter @Setter
+    private ResultCache resultCache;
+
+    /** Orchestration of each {@link WorkGroup}, completed once all of its {@link Task}s are assembled */
     private final ConcurrentHashMap<String, CompletableFuture<?>> runningWorkGroups = new ConcurrentHashMap<>();
 
     public Pipeline(String name, Set<Task> tasksToProcess) {
@@ -39,6 +95,7 @@ public class Pipeline extends Monitorable {
         super.setNotifier(new StateNotifier(this));
         this.tasks = tasksToProcess;
         this.optimizer = WorkGroupOptimizer.DEFAULT_OPTIMIZER;
+        this.checkpointRun = super.monitor.getId();
     }
 
     public Pipeline(String name, Set<Task> tasksToProcess, WorkGroupOptimizer optimizer) {
@@ -46,37 +103,91 @@ public class Pipeline extends Monitorable {
         super.setNotifier(new StateNotifier(this));
         this.tasks = tasksToProcess;
         this.optimizer = optimizer;
+        this.checkpointRun = super.monitor.getId();
     }
 
     /**
      * From the given tasks, compute all possible paths, ie all the tasks to process
-     * in order to complete a 'terminal' (final, ending) {@link Task}
+     * in order to complete a 'terminal' (final, ending) {@link Task}.<br>
+     * The paths are computed by the first execution only. Each execution gets new input slots and outputs, so
+     * that a Pipeline can be executed again once the previous execution is over. For concurrent executions, use a
+     * {@link PipelinePlan}.
+     *
+     * @return a {@link TaskResult} for each terminal {@link Task} : no data flows until it is subscribed
      */
-    public Map<String, CompletableFuture<?>> execute() {
+    public Map<Task, TaskResult> execute() {
+        PipelineExecutionEvent event = new PipelineExecutionEvent();
+        event.begin();
         super.monitor.statusToRunning();
-        this.workGroups = this.optimizer.optimize(this.tasks);
+        this.compilePlan();
+        this.sharedOutputs = new SharedOutputs();
         this.propagatePipeline();
-        super.notifier.notifyStateChange();
+        ExecutionContext context = ExecutionContext.shared(super.monitor.getId(), super.notifier,
+                this.defaultProfile, this.sharedOutputs, this.checkpoints, this.getName(), this.checkpointRun,
+                this.resultCache, this.tasks);
+        super.notifier.notifyStateChange(super.monitor);
         log.info("Found {} work paths", workGroups.size());
-        this.workGroups.parallelStream().forEach(workGroup -> {
-            CompletableFuture<?> future = workGroup.execute();
+        Map<Task, TaskResult> results = new LinkedHashMap<>();
+        this.runningWorkGroups.clear();
+        this.workGroups.forEach(workGroup -> {
+            CompletableFuture<?> future = workGroup.execute(this.executor, context);
             runningWorkGroups.put(workGroup.getName(), future);
+            workGroup.getResults().forEach(results::putIfAbsent);
         });
         super.getMonitor().statusToDone();
-        super.getNotifier().notifyStateChange();
-        return this.runningWorkGroups;
+        super.getNotifier().notifyStateChange(super.getMonitor());
+        if (event.shouldCommit()) {
+            event.pipelineId = super.monitor.getId();
+            event.pipelineName = this.getName();
+            event.tasks = this.tasks.size();
+            event.workGroups = this.workGroups.size();
+            event.commit();
+        }
+        return results;
+    }
+
+    /** Compiles the plan the first time only, even when several threads execute the Pipeline at once */
+    private void compilePlan() {
+        if (this.plan == null) {
+            synchronized (this) {
+                if (this.plan == null) {
+                    PipelinePlan compiled = PipelinePlan.compile(this.getName(), this.tasks, this.optimizer);
+                    this.workGroups = compiled.getWorkGroups();
+                    this.plan = compiled;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the orchestration of each {@link WorkGroup} of the last execution, by WorkGroup name
+     */
+    public Map<String, CompletableFuture<?>> getRunningWorkGroups() {
+        return Collections.unmodifiableMap(this.runningWorkGroups);
     }
 
     /**
      * Once the Pipeline is instantiated, it will compute possible {@link WorkGroup}s thanks to its {@link WorkGroupOptimizer}.<br>
      * Then, all objects are known : the pipeline, its WorkGroups and all tasks within each WorkGroup.
      * Each WorkGroup and task must know about their wrapping pipeline in order to trigger state export thanks to
-     * their {@link Notifier}.
+     * their {@link Notifier}.<br>
+     * WorkGroups also share the same {@link SharedOutputs}, so that a {@link Task} belonging to several of them is
+     * processed only once, and the same default {@link ExecutionProfile}.
      */
     private void propagatePipeline() {
         Notifier notifier = new StateNotifier(this);
-        this.workGroups.forEach(workGroup -> workGroup.setNotifier(notifier));
-        this.tasks.forEach(task -> task.setNotifier(notifier));
+        String pipelineId = super.monitor.getId();
+        super.setPipelineId(pipelineId);
+        this.workGroups.forEach(workGroup -> {
+            workGroup.setNotifier(notifier);
+            workGroup.setPipelineId(pipelineId);
+            workGroup.setSharedOutputs(this.sharedOutputs);
+            workGroup.setDefaultProfile(this.defaultProfile);
+        });
+        this.tasks.forEach(task -> {
+            task.setNotifier(notifier);
+            task.setPipelineId(pipelineId);
+        });
     }
 
 }
@@ -0,0 +1,266 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.exceptions.TaskExecutionException;
+import com.citizenweb.tooling.taskpipeline.core.utils.OrchestrationExecutors;
+import com.citizenweb.tooling.taskpipeline.core.utils.PipelineExecutionEvent;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingStatus;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingType;
+import com.citizenweb.tooling.taskpipeline.core.utils.TaskUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.With;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Immutable and already optimized execution plan of a set of {@link Task}s.<br>
+ * The {@link WorkGroupOptimizer} runs once, when the plan is compiled : the plan can then be {@link #execute()
+ * executed} any number of times, concurrently. Each execution is isolated from the others, its input slots,
+ * outputs and {@link Monitor}s being kept by a {@link PipelineRun} of its own.<br>
+ * Executions report their state changes to the plan's {@link Notifier}, which does nothing by default.
+ */
+@Slf4j
+@Getter
+public final class PipelinePlan {
+
+    /** A {@link Notifier} ignoring all state changes */
+    private static final Notifier NO_NOTIFICATION = () -> { };
+
+    /** Name of the plan, given to each of its executions */
+    private final String name;
+    /** All the {@link Task}s to process */
+    private final Set<Task> tasks;
+    /** {@link WorkGroup}s computed by the {@link WorkGroupOptimizer} */
+    private final Collection<WorkGroup> workGroups;
+    /** Rank of each {@link Task}, copied into the {@link Monitor}s of each execution */
+    @Getter(AccessLevel.NONE)
+    private final Map<Task, Integer> ranks;
+    /** Runs the orchestration of the {@link WorkGroup}s of each execution */
+    @With
+    @NonNull
+    private final Executor executor;
+    /** {@link ExecutionProfile} of the {@link Task}s that do not declare their own */
+    @With
+    @NonNull
+    private final ExecutionProfile defaultProfile;
+    /** Receives the state changes of every execution */
+    @With
+    @NonNull
+    private final Notifier notifier;
+    /**
+     * Keeps the outputs of the checkpointed {@link Task}s, under the name of the plan and the ID of each run. NULL for
+     * no checkpoint
+     */
+    @With
+    private final CheckpointStore checkpoints;
+    /** Keeps the outputs of the {@link Task}s having a cache key, for all executions. NULL for no cache */
+    @With
+    private final ResultCache resultCache;
+    /** Stores the ended executions, under the ID of their {@link PipelineRun}. NULL for no history */
+    @With
+    private final ExecutionHistory history;
+
+    private PipelinePlan(String name, Set<Task> tasks, Collection<WorkGroup> workGroups, Map<Task, Integer> ranks,
+                         @NonNull Executor executor, @NonNull ExecutionProfile defaultProfile,
+                         @NonNull Notifier notifier, CheckpointStore checkpoints,
+                         ResultCache resultCache, ExecutionHistory history) {
+        this.name = name;
+        this.tasks = tasks;
+        this.workGroups = workGroups;
+        this.ranks = ranks;
+        this.executor = executor;
+        this.defaultProfile = defaultProfile;
+        this.notifier = notifier;
+        this.checkpoints = checkpoints;
+        this.resultCache = resultCache;
+        this.history = history;
+    }
+
+    /**
+     * Compiles a plan with the {@link WorkGroupOptimizer#DEFAULT_OPTIMIZER}.
+     * @see #compile(String, Set, WorkGroupOptimizer)
+     */
+    public static PipelinePlan compile(String name, Set<Task> tasks) {
+        return compile(name, tasks, WorkGroupOptimizer.DEFAULT_OPTIMIZER);
+    }
+
+    /**
+     * Computes the {@link WorkGroup}s of the given {@link Task}s, once for all the executions of the plan.<br>
+     * The plan runs on the default orchestration {@link Executor}, with the {@link ExecutionProfile#CPU_BOUND}
+     * default profile, without notification, checkpoint, cache nor history : use the {@code with...} methods to get
+     * a plan with other settings.<br>
+     * The plan ranks the Tasks for its runs without writing into their own {@link Monitor}s : only the optimizer
+     * may, like the {@link WorkGroupOptimizer#DEFAULT_OPTIMIZER} does for the legacy {@link Pipeline}.
+     * @param name name of the plan
+     * @param tasks all the {@link Task}s to process
+     * @param optimizer organizes the {@link Task}s into {@link WorkGroup}s
+     * @throws TaskExecutionException if a {@link Task} needs the output of a Task belonging to no WorkGroup
+     */
+    public static PipelinePlan compile(String name, Set<Task> tasks, WorkGroupOptimizer optimizer) {
+        Objects.requireNonNull(name, "A PipelinePlan has to be named");
+        Set<Task> planTasks = Collections.unmodifiableSet(new HashSet<>(tasks));
+        Collection<WorkGroup> workGroups = Collections.unmodifiableList(
+                new ArrayList<>(optimizer.optimize(planTasks)));
+        checkAllInputsAreProduced(workGroups);
+        Map<Task, Integer> ranks = Collections.unmodifiableMap(TaskUtils.rankTasks(planTasks));
+        log.info("Compiled plan [ {} ] : {} work paths", name, workGroups.size());
+        return new PipelinePlan(name, planTasks, workGroups, ranks, OrchestrationExecutors.defaultExecutor(),
+                ExecutionProfile.CPU_BOUND, NO_NOTIFICATION, null, null, null);
+    }
+
+    /**
+     * Every predecessor of a {@link Task} belonging to a {@link WorkGroup} must itself belong to one of the
+     * WorkGroups, otherwise the Task would never get all of its inputs.
+     */
+    static void checkAllInputsAreProduced(Collection<WorkGroup> workGroups) {
+        Set<Task> scheduledTasks = new HashSet<>();
+        workGroups.forEach(workGroup -> scheduledTasks.addAll(workGroup.getTasks()));
+        scheduledTasks.forEach(task -> task.getPredecessors().stream()
+                .filter(predecessor -> !scheduledTasks.contains(predecessor))
+                .findAny()
+                .ifPresent(predecessor -> {
+                    throw new TaskExecutionException(String.format(
+                            "Task [ %s ] needs the output of task [ %s ] which belongs to no WorkGroup",
+                            task.getName(), predecessor.getName()));
+                }));
+    }
+
+    /**
+     * Launches a new execution of the plan : its {@link WorkGroup}s are orchestrated on the plan's
+     * {@link Executor}, and nothing flows until the caller subscribes to the results.<br>
+     * The execution stays RUNNING until the data of all of its terminal {@link Task}s stopped flowing, or until
+     * one of its WorkGroups failed to be assembled.
+     * @return the new execution, holding a {@link TaskResult} for each terminal {@link Task}
+     */
+    public PipelineRun execute() {
+        return this.execute(null);
+    }
+
+    /**
+     * Same as {@link #execute()}, resuming an earlier execution from its checkpoints : the checkpointed
+     * {@link Task}s it completed are replayed, the other ones are checkpointed under the same run.
+     * @param checkpointRun the {@link PipelineRun#getCheckpointRun() checkpoint run} of the earlier execution. NULL
+     *                      for a run of its own
+     * @return the new execution, holding a {@link TaskResult} for each terminal {@link Task}
+     */
+    public PipelineRun execute(String checkpointRun) {
+        PipelineExecutionEvent event = new PipelineExecutionEvent();
+        event.begin();
+        Monitor runMonitor = new Monitor(ProcessingType.PIPELINE);
+        RunNotifier runNotifier = new RunNotifier(this, runMonitor);
+        ExecutionContext context = ExecutionContext.isolated(runMonitor.getId(), runNotifier, this.defaultProfile,
+                this.checkpoints, this.name, checkpointRun != null ? checkpointRun : runMonitor.getId(),
+                this.resultCache, this.tasks, this.workGroups, this.ranks);
+        runNotifier.context = context;
+        runMonitor.statusToRunning();
+        this.notifier.notifyStateChange(runMonitor);
+        Map<Task, TaskResult> results = new LinkedHashMap<>();
+        Map<WorkGroup, CompletableFuture<?>> orchestrations = new LinkedHashMap<>();
+        this.workGroups.forEach(workGroup -> workGroup.getEndingTasks()
+                .forEach(endingTask -> runNotifier.awaitEndOf(context.monitorOf(endingTask))));
+        for (WorkGroup workGroup : this.workGroups) {
+            CompletableFuture<?> orchestration = workGroup.execute(this.executor, context);
+            orchestration.whenComplete((assembled, error) -> {
+                if (error != null) {
+                    runNotifier.end(true);
+                }
+            });
+            orchestrations.put(workGroup, orchestration);
+            workGroup.getEndingTasks().forEach(endingTask -> results.computeIfAbsent(endingTask,
+                    task -> new TaskResult(task, context.getSharedOutputs().output(task))));
+        }
+        if (event.shouldCommit()) {
+            event.pipelineId = runMonitor.getId();
+            event.pipelineName = this.name;
+            event.tasks = this.tasks.size();
+            event.workGroups = this.workGroups.size();
+            event.commit();
+        }
+        return new PipelineRun(this.name, runMonitor, context, results, orchestrations, runNotifier.completion);
+    }
+
+    /**
+     * Notifier of one execution : forwards every state change to the plan's {@link Notifier} and
+     * {@link ExecutionHistory}, and ends the execution once the monitors of all of its terminal {@link Task}s are
+     * DONE or IN_ERROR.
+     */
+    private static final class RunNotifier implements Notifier {
+
+        private final PipelinePlan plan;
+        private final Monitor runMonitor;
+        /** The execution, set as soon as created : before any {@link Task} or {@link WorkGroup} runs */
+        private volatile ExecutionContext context;
+        /** Monitors of the terminal {@link Task}s whose data is still expected to flow */
+        private final Set<Monitor> pendingTerminals = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final AtomicBoolean ended = new AtomicBoolean();
+        /** Completed once the execution is over, whatever its final status */
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private RunNotifier(PipelinePlan plan, Monitor runMonitor) {
+            this.plan = plan;
+            this.runMonitor = runMonitor;
+        }
+
+        private void awaitEndOf(Monitor terminalMonitor) {
+            this.pendingTerminals.add(terminalMonitor);
+        }
+
+        @Override
+        public void notifyStateChange() {
+            this.plan.notifier.notifyStateChange();
+        }
+
+        @Override
+        public void notifyStateChange(Monitor changed) {
+            this.forward(changed);
+            ProcessingStatus status = changed.getStatus();
+            if ((status == ProcessingStatus.DONE || status == ProcessingStatus.IN_ERROR)
+                    && this.pendingTerminals.remove(changed)) {
+                if (status == ProcessingStatus.IN_ERROR) {
+                    this.failed.set(true);
+                }
+                if (this.pendingTerminals.isEmpty()) {
+                    this.end(false);
+                }
+            }
+        }
+
+        private void forward(Monitor changed) {
+            this.plan.notifier.notifyStateChange(changed);
+            if (this.plan.history != null) {
+                this.plan.history.submit(this.plan, this.context, changed);
+            }
+        }
+
+        /** Ends the execution the first time only */
+        private void end(boolean failure) {
+            if (failure) {
+                this.failed.set(true);
+            }
+            if (this.ended.compareAndSet(false, true)) {
+                if (this.failed.get()) {
+                    this.runMonitor.statusToError();
+                } else {
+                    this.runMonitor.statusToDone();
+                }
+                this.forward(this.runMonitor);
+                this.completion.complete(null);
+            }
+        }
+    }
+
+}
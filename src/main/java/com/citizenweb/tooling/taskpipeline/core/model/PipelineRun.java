@@ -0,0 +1,108 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One execution of a {@link PipelinePlan}, returned by {@link PipelinePlan#execute()}.<br>
+ * It keeps the {@link Monitor}s of this execution only : the ones of the {@link Task}s and {@link WorkGroup}s
+ * themselves are never touched by a plan.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class PipelineRun {
+
+    /** Name of the executed {@link PipelinePlan} */
+    @Getter
+    @ToString.Include
+    private final String name;
+    /** Life cycle of the execution as a whole */
+    @Getter
+    @ToString.Include
+    private final Monitor monitor;
+    /** Input slots, outputs and monitors of the execution */
+    private final ExecutionContext context;
+    /** A {@link TaskResult} for each terminal {@link Task} */
+    @Getter
+    private final Map<Task, TaskResult> results;
+    /** Orchestration of each {@link WorkGroup}, completed once all of its {@link Task}s are assembled */
+    private final Map<WorkGroup, CompletableFuture<?>> orchestrations;
+    /** Completed once the {@link #monitor} of the execution is DONE or IN_ERROR */
+    private final CompletableFuture<Void> completion;
+
+    PipelineRun(String name, Monitor monitor, ExecutionContext context, Map<Task, TaskResult> results,
+                Map<WorkGroup, CompletableFuture<?>> orchestrations, CompletableFuture<Void> completion) {
+        this.name = name;
+        this.monitor = monitor;
+        this.context = context;
+        this.results = Collections.unmodifiableMap(results);
+        this.orchestrations = orchestrations;
+        this.completion = completion;
+    }
+
+    /** @return ID of the execution, also given as pipeline ID to its JFR events */
+    public String getId() {
+        return this.monitor.getId();
+    }
+
+    /** @return ID of the run the checkpoints of the execution belong to, its own ID unless resuming another one */
+    public String getCheckpointRun() {
+        return this.context.getCheckpointRun();
+    }
+
+    /**
+     * @param monitorable a {@link Task} or a {@link WorkGroup} of the plan
+     * @return its {@link Monitor} for this execution, NULL if it is not part of the plan
+     */
+    public Monitor getMonitor(Monitorable monitorable) {
+        return this.context.monitorOf(monitorable);
+    }
+
+    /**
+     * @param producer a 'predecessor' of the consumer
+     * @param consumer a {@link Task} of the plan
+     * @return the metrics of the batches sent by the producer to the consumer during this execution, NULL if the
+     * edge is not batched
+     * @see Task#batchInput(Task, com.citizenweb.tooling.taskpipeline.core.utils.BatchingPolicy)
+     */
+    public BatchMetrics getBatchMetrics(Task producer, Task consumer) {
+        return this.context.batchMetricsOf(producer, consumer);
+    }
+
+    /**
+     * @param producer a 'predecessor' of the consumer
+     * @param consumer a {@link Task} of the plan
+     * @return the gauges of the queue from the producer to the consumer during this execution
+     * @see Task#bufferInput(Task, com.citizenweb.tooling.taskpipeline.core.utils.BufferPolicy)
+     */
+    public BufferMetrics getBufferMetrics(Task producer, Task consumer) {
+        return this.context.bufferMetricsOf(producer, consumer);
+    }
+
+    /**
+     * @param task a terminal {@link Task} of the plan
+     * @return the handle on its output, NULL if the Task is not terminal
+     */
+    public TaskResult getResult(Task task) {
+        return this.results.get(task);
+    }
+
+    /** @return completed once every {@link WorkGroup} of the execution has been assembled */
+    public CompletableFuture<Void> assembled() {
+        Collection<CompletableFuture<?>> futures = this.orchestrations.values();
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * @return completed once the data of every terminal {@link Task} stopped flowing, or once the assembly failed :
+     * the {@link #getMonitor() monitor} then tells whether the execution is DONE or IN_ERROR
+     */
+    public CompletableFuture<Void> completed() {
+        return this.completion.copy();
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.ResultCacheMetrics;
+import com.citizenweb.tooling.taskpipeline.core.utils.ResultCacheSettings;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of {@link Task} outputs, shared by all the {@link Pipeline}s and {@link PipelinePlan}s it is given to.<br>
+ * A Task opts in by declaring a {@link Task#setCacheKey(String) cache key}. Its output is then cached under this key
+ * and a fingerprint of its inputs, ie of the keys of its predecessors : a Task whose predecessors are not all cached
+ * is never cached.<br>
+ * The first lookup of a key computes the output once, and every execution asking for the same key meanwhile
+ * shares this computation. The elements are kept and replayed to the next executions, until the output expires,
+ * or is evicted : the least recently used outputs go first once the {@link ResultCacheSettings} bounds are
+ * exceeded. A failed output is never kept.<br>
+ * Each {@link #lookup(String)} counts as a hit or a miss : the statistics are exported with the state of the
+ * Pipelines using the cache.
+ */
+@Slf4j
+public class ResultCache {
+
+    /** Expiration and eviction rules */
+    @Getter
+    private final ResultCacheSettings settings;
+    /** Cached outputs, from the least recently used one. Guarded by this */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** Number of elements of the completed outputs. Guarded by this */
+    private long weight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public ResultCache() {
+        this(ResultCacheSettings.defaults());
+    }
+
+    public ResultCache(@NonNull ResultCacheSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * @param key the key of an output, see {@link #keyOf(String, List)}
+     * @return the cached output, completed or being computed, NULL if there is none : a miss
+     */
+    public synchronized Flux<?> lookup(String key) {
+        Entry entry = this.entries.get(key);
+        if (entry == null || this.expired(key, entry)) {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return entry.output;
+    }
+
+    /**
+     * Caches a freshly assembled output, unless another execution cached one for the same key meanwhile.<br>
+     * Not counted in the statistics : the {@link #lookup(String)} that missed the output already was.
+     * @param key the key of the output, see {@link #keyOf(String, List)}
+     * @param output the output {@link Flux}, computed once by the first subscription to the returned Flux
+     * @return the cached output, to be subscribed instead of the given one
+     */
+    public synchronized Flux<?> share(String key, Flux<?> output) {
+        Entry entry = this.entries.get(key);
+        if (entry != null && !this.expired(key, entry)) {
+            return entry.output;
+        }
+        Entry newEntry = new Entry(key, output);
+        this.entries.put(key, newEntry);
+        this.evict();
+        return newEntry.output;
+    }
+
+    /** Drops the output cached under the given key, if any */
+    public synchronized void invalidate(String key) {
+        Entry entry = this.entries.remove(key);
+        if (entry != null) {
+            this.weight -= entry.weight;
+        }
+    }
+
+    /** Drops all the cached outputs */
+    public synchronized void invalidateAll() {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /** @return the current size and statistics of the cache */
+    public synchronized ResultCacheMetrics getMetrics() {
+        return new ResultCacheMetrics(this.entries.size(), this.weight, this.hits.sum(), this.misses.sum(),
+                this.evictions.sum(), this.expirations.sum());
+    }
+
+    /**
+     * @param cacheKey the key declared by a {@link Task}
+     * @param inputKeys the keys of its predecessors' outputs, in the order of its inputs
+     * @return the key of the Task's output : the declared key alone for an initial Task, followed by a fingerprint
+     * of its inputs otherwise
+     */
+    public static String keyOf(String cacheKey, List<String> inputKeys) {
+        if (inputKeys.isEmpty()) {
+            return cacheKey;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", ex);
+        }
+        for (String inputKey : inputKeys) {
+            digest.update(inputKey.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        byte[] fingerprint = digest.digest();
+        StringBuilder key = new StringBuilder(cacheKey.length() + 17).append(cacheKey).append('#');
+        for (int i = 0; i < 8; i++) {
+            key.append(Character.forDigit((fingerprint[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(fingerprint[i] & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /** Drops an expired output. Guarded by this */
+    private boolean expired(String key, Entry entry) {
+        long completedAt = entry.completedAt;
+        if (completedAt < 0 || this.settings.getClock().millis() - completedAt
+                < this.settings.getTimeToLive().toMillis()) {
+            return false;
+        }
+        this.entries.remove(key);
+        this.weight -= entry.weight;
+        this.expirations.increment();
+        return true;
+    }
+
+    /** An output has been fully computed : it is now weighted and its time to live starts */
+    private synchronized void completed(Entry entry, long elements) {
+        if (this.entries.get(entry.key) != entry) {
+            return;
+        }
+        entry.weight = elements;
+        entry.completedAt = this.settings.getClock().millis();
+        this.weight += elements;
+        this.evict();
+    }
+
+    /** An output failed : it is not kept, the next lookup computes it again */
+    private synchronized void failed(Entry entry, Throwable error) {
+        if (this.entries.get(entry.key) == entry) {
+            this.entries.remove(entry.key);
+            log.warn("Output cached under key {} failed and is not kept : {}", entry.key, error.toString());
+        }
+    }
+
+    /**
+     * Evicts the least recently used completed outputs until both bounds are respected. Outputs being computed are
+     * never evicted. Guarded by this
+     */
+    private void evict() {
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while ((this.weight > this.settings.getMaxWeight() || this.entries.size() > this.settings.getMaxEntries())
+                && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.completedAt >= 0) {
+                iterator.remove();
+                this.weight -= entry.weight;
+                this.evictions.increment();
+            }
+        }
+    }
+
+    /** An output, computed once and replayed to all of its subscribers */
+    private final class Entry {
+        private final String key;
+        private final Flux<?> output;
+        /** Number of elements, once completed. Guarded by the cache */
+        private long weight;
+        /** Completion time in milliseconds, -1 while being computed */
+        private volatile long completedAt = -1;
+
+        Entry(String key, Flux<?> source) {
+            this.key = key;
+            AtomicLong elements = new AtomicLong();
+            this.output = source
+                    .doOnNext(element -> elements.incrementAndGet())
+                    .doOnComplete(() -> ResultCache.this.completed(this, elements.get()))
+                    .doOnError(error -> ResultCache.this.failed(this, error))
+                    .cache();
+        }
+    }
+
+}
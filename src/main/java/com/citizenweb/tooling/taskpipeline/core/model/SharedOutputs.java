@@ -0,0 +1,81 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Output {@link Flux}es of all the {@link Task}s of one {@link Pipeline} execution.<br>
+ * Since a {@link WorkGroupOptimizer} may put the same {@link Task} into several {@link WorkGroup}s, WorkGroups
+ * share this object instead of processing such a Task each on its own :
+ * <ul>
+ *     <li>a Task is assembled exactly once, by the WorkGroup that first {@link #claim(Task) claims} it</li>
+ *     <li>its output {@link Flux} is then {@link #publish(Task, Flux) published} here for every WorkGroup that
+ *     needs it</li>
+ *     <li>an output consumed by several successors is published as a cached {@link Flux} : it is computed once,
+ *     and its elements are kept to be replayed to each successor, whenever it subscribes</li>
+ * </ul>
+ */
+public class SharedOutputs {
+
+    /** Output of each {@link Task}, completed once the Task has been assembled */
+    private final Map<Task, CompletableFuture<Flux<?>>> outputs = new ConcurrentHashMap<>();
+    /** {@link Task}s some {@link WorkGroup} has already taken in charge */
+    private final Set<Task> claimedTasks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Takes the responsibility of assembling a {@link Task}.
+     * @param task the {@link Task} to assemble
+     * @return TRUE for the first caller only
+     */
+    public boolean claim(Task task) {
+        return this.claimedTasks.add(task);
+    }
+
+    /**
+     * Makes the output of a {@link Task} available to all {@link WorkGroup}s.
+     * @param task the assembled {@link Task}
+     * @param flux its output {@link Flux}
+     */
+    public void publish(Task task, Flux<?> flux) {
+        this.output(task).complete(flux);
+    }
+
+    /**
+     * A {@link Task} could not be assembled : neither it nor anything downstream will ever produce an output.
+     * @param task the failing {@link Task}
+     * @param throwable the cause
+     */
+    public void fail(Task task, Throwable throwable) {
+        Deque<Task> toFail = new ArrayDeque<>();
+        toFail.push(task);
+        while (!toFail.isEmpty()) {
+            Task current = toFail.pop();
+            if (this.output(current).completeExceptionally(throwable)) {
+                current.getSuccessors().forEach(toFail::push);
+            }
+        }
+    }
+
+    /**
+     * @param task a {@link Task}
+     * @return the future output of this {@link Task}
+     */
+    public CompletableFuture<Flux<?>> output(Task task) {
+        return this.outputs.computeIfAbsent(task, t -> new CompletableFuture<>());
+    }
+
+    /**
+     * @param task a {@link Task}
+     * @return TRUE if the output of this {@link Task} has already been published
+     */
+    public boolean isAssembled(Task task) {
+        CompletableFuture<Flux<?>> output = this.outputs.get(task);
+        return output != null && output.isDone() && !output.isCompletedExceptionally();
+    }
+}
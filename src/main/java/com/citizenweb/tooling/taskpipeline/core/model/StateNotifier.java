@@ -4,7 +4,8 @@ import lombok.Getter;
 
 /**
  * The {@link StateNotifier} contains a reference to the {@link Pipeline}. Thus; when its {@link #notifyStateChange()}
- * will be triggered, it will send the {@link Pipeline}'s current state to the {@link DataStreamer}.
+ * will be triggered, it will send the {@link Pipeline}'s current state to the {@link DataStreamer}.<br>
+ * The change is only handed off : the calling thread never waits for the export.
  */
 public class StateNotifier implements Notifier {
 
@@ -12,10 +13,19 @@ public class StateNotifier implements Notifier {
     private final Pipeline parent;
     /** The {@link DataStreamer} that will effectively export the {@link Pipeline}'s state */
     @Getter
-    private final DataStreamer streamer = DataStreamer.getInstance();
+    private final DataStreamer streamer;
 
     public StateNotifier(Pipeline parent) {
+        this(parent, DataStreamer.getInstance());
+    }
+
+    /**
+     * @param parent the {@link Pipeline} to notify about
+     * @param streamer exports the Pipeline's state instead of the shared {@link DataStreamer}
+     */
+    public StateNotifier(Pipeline parent, DataStreamer streamer) {
         this.parent = parent;
+        this.streamer = streamer;
     }
 
     /**
@@ -23,7 +33,20 @@ public class StateNotifier implements Notifier {
      */
     @Override
     public void notifyStateChange() {
-        this.streamer.triggerNotification(this.parent);
+        this.streamer.submitNotification(this.parent, this.parent.getMonitor());
+    }
+
+    /**
+     * Sends the {@link Pipeline} and the changed {@link Monitor} to the {@link DataStreamer}, and to the
+     * Pipeline's {@link ExecutionHistory} if any
+     */
+    @Override
+    public void notifyStateChange(Monitor changed) {
+        this.streamer.submitNotification(this.parent, changed);
+        ExecutionHistory history = this.parent.getHistory();
+        if (history != null) {
+            history.submit(this.parent, changed);
+        }
     }
 
 }
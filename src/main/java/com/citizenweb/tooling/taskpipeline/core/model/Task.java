@@ -1,20 +1,24 @@
 package com.citizenweb.tooling.taskpipeline.core.model;
 
 import com.citizenweb.tooling.taskpipeline.core.exceptions.TaskExecutionException;
+import com.citizenweb.tooling.taskpipeline.core.utils.BatchingPolicy;
+import com.citizenweb.tooling.taskpipeline.core.utils.BufferPolicy;
+import com.citizenweb.tooling.taskpipeline.core.utils.CheckpointSerializer;
+import com.citizenweb.tooling.taskpipeline.core.utils.PartitioningPolicy;
 import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingType;
+import com.citizenweb.tooling.taskpipeline.core.utils.TaskFlowEvent;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.function.BiConsumer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * A {@link Task} is a wrapper for an {@link Operation} object.<br>
@@ -53,6 +57,87 @@ public class Task extends Monitorable implements Operation {
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     private final LinkedHashSet<Task> successors = new LinkedHashSet<>();
+    /**
+     * Each time a 'predecessor' produces a {@link Flux}, it is stored in its own slot, in the right order for
+     * further execution.<br>
+     * These slots are for a standalone use of the Task : {@link Pipeline}s and {@link PipelinePlan}s give each of
+     * their executions slots of its own.
+     */
+    @NonNull
+    @Getter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final InputSlots inputSlots;
+    /** Position of each 'predecessor' within the {@link #inputSlots} */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<Task, Integer> slotIndexes;
+    /**
+     * Where the wrapped {@link Operation} is run. When NULL, the {@link Pipeline}'s default profile applies.
+     */
+    @Getter @Setter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ExecutionProfile executionProfile;
+    /**
+     * Opt-in : the output of a checkpointed Task is written to the {@link CheckpointStore} of the executing
+     * {@link Pipeline} or {@link PipelinePlan}, and replayed by its next executions instead of calling the
+     * {@link Operation} again.
+     */
+    @Getter @Setter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean checkpointed;
+    /** Format of the checkpointed output. When NULL, the {@link CheckpointStore}'s serializer applies */
+    @Getter @Setter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CheckpointSerializer checkpointSerializer;
+    /**
+     * Opt-in : the output of a Task with a cache key is kept by the {@link ResultCache} of the executing
+     * {@link Pipeline} or {@link PipelinePlan}, and shared with all the executions asking for the same key and inputs
+     */
+    @Getter @Setter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String cacheKey;
+    /** Batching of the elements received from each 'predecessor'. A predecessor missing here is not batched */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<Task, BatchingPolicy> inputBatching = new ConcurrentHashMap<>();
+    /**
+     * Opt-in : the {@link Operation} of a Task receiving batches gets a {@link Flux} of {@link List}s from each
+     * batched predecessor. Otherwise, batches are unbatched right before the Operation, so that only the hop between
+     * the two Tasks is amortized.
+     */
+    @Getter @Setter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean receivingBatches;
+    /** Metrics of each batched input, for a standalone use of the Task and for {@link Pipeline}s */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<Task, BatchMetrics> inputBatchMetrics = new ConcurrentHashMap<>();
+    /** Queue of the elements received from each 'predecessor'. A predecessor missing here gets the default one */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<Task, BufferPolicy> inputBuffers = new ConcurrentHashMap<>();
+    /** Gauges of the queue of each input, for a standalone use of the Task and for {@link Pipeline}s */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<Task, BufferMetrics> inputBufferMetrics = new ConcurrentHashMap<>();
+    /** JFR event of each flow currently running, by the {@link Monitor} of its execution. Empty without recording */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<Monitor, TaskFlowEvent> runningFlows = new ConcurrentHashMap<>();
+    /**
+     * Opt-in : the input of a partitioned Task is split into rails, each one processed by the {@link Operation} on
+     * the {@link ExecutionProfile}'s scheduler, concurrently with the other ones. NULL for a single rail
+     */
+    @Getter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private PartitioningPolicy partitioning;
 
     /**
      * This {@link Task} has no <b>successors</b>.
@@ -81,43 +166,236 @@ public class Task extends Monitorable implements Operation {
         /*
          * We organize tasks.
          * If this one has 'predecessors', then we declare it as their successor.
-         * We also prepare the 'inputFluxesMap' by setting - in the right order - their respective result as an Optional.
-         * When a predecessor is executed, its result is stored in this Map as an Optional.of(Flux)
+         * We also prepare the 'inputSlots' : one slot per predecessor, in the right order.
+         * When a predecessor is executed, its result is stored in its slot.
          */
+        this.inputSlots = new InputSlots(this.predecessors.size());
+        Map<Task, Integer> indexes = new HashMap<>(this.predecessors.size() * 2);
         this.predecessors.forEach(p -> {
             p.getSuccessors().add(this);
-            this.inputFluxesMap.put(p, Optional.empty());
+            indexes.put(p, indexes.size());
         });
+        this.slotIndexes = Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * Same as {@link #Task(String, Operation, List)}, with the {@link ExecutionProfile} of the wrapped
+     * {@link Operation}.
+     * @param taskName the name of the current {@link Task} for {@link Monitor}ing and logging
+     * @param wrappedOperation the {@link Operation} wrapped by this {@link Task}
+     * @param predecessors {@link Task}s to be executed before the current one
+     * @param executionProfile where the {@link Operation} is run
+     */
+    public Task(String taskName, Operation wrappedOperation, List<Task> predecessors,
+                ExecutionProfile executionProfile) {
+        this(taskName, wrappedOperation, predecessors);
+        this.executionProfile = executionProfile;
     }
 
     /**
-     * Executes the wrapped {@link Operation}.<br>
+     * Executes the wrapped {@link Operation}, once per rail for a partitioned {@link Task}.<br>
+     * The output {@link Flux} is instrumented : the {@link Task} is RUNNING while its data flows, and its
+     * {@link FlowMetrics} measure it.
      * @param inputs the Flux coming from preceding Operations
      * @return a output {@link Flux}
      */
     @Override
     public Flux<?> process(Flux<?>... inputs) throws TaskExecutionException {
+        return this.process(inputs, super.monitor, super.notifier, this.getPipelineId());
+    }
+
+    /**
+     * Same as {@link #process(Flux[])}, the {@link Monitor} and {@link Notifier} being the ones of the given
+     * execution.
+     */
+    Flux<?> process(Flux<?>[] inputs, ExecutionContext context) throws TaskExecutionException {
+        return this.process(inputs, context, UnaryOperator.identity());
+    }
+
+    /**
+     * Same as {@link #process(Flux[], ExecutionContext)}, the output of the {@link Operation} going through the given
+     * function before being instrumented.
+     * @param wrapper shares the output through a {@link ResultCache} for instance
+     */
+    Flux<?> process(Flux<?>[] inputs, ExecutionContext context, UnaryOperator<Flux<?>> wrapper)
+            throws TaskExecutionException {
+        ExecutionProfile profile = this.executionProfile != null ? this.executionProfile : context.getDefaultProfile();
+        return this.process(inputs, profile, context.monitorOf(this), context.getNotifier(), context.getPipelineId(),
+                wrapper);
+    }
+
+    private Flux<?> process(Flux<?>[] inputs, Monitor monitor, Notifier notifier, String pipelineId) {
+        ExecutionProfile profile = this.executionProfile != null ? this.executionProfile : ExecutionProfile.CPU_BOUND;
+        return this.process(inputs, profile, monitor, notifier, pipelineId, UnaryOperator.identity());
+    }
+
+    private Flux<?> process(Flux<?>[] inputs, ExecutionProfile profile, Monitor monitor, Notifier notifier,
+                            String pipelineId, UnaryOperator<Flux<?>> wrapper) {
+        Flux<?> outputFlux;
         try {
-            super.monitor.statusToRunning();
-            super.notifier.notifyStateChange();
-            Flux<?> outputFlux = this.wrappedOperation.process(inputs);
-            super.monitor.statusToDone();
-            super.notifier.notifyStateChange();
-            return outputFlux;
+            outputFlux = wrapper.apply(this.partitioning == null ? this.wrappedOperation.process(inputs)
+                    : this.partitioning.apply(this.wrappedOperation, inputs[0], profile.getScheduler()));
         } catch (Exception ex) {
-            super.monitor.statusToError();
-            super.notifier.notifyStateChange();
-            String taskSignature = String.format("%s / %s", this.getName(), this.monitor.getId());
+            monitor.statusToError();
+            notifier.notifyStateChange(monitor);
+            String taskSignature = String.format("%s / %s", this.getName(), monitor.getId());
             throw new TaskExecutionException(getErrorMessage(ex, taskSignature));
         }
+        return this.instrument(outputFlux, monitor, notifier, pipelineId);
+    }
+
+    /**
+     * Replays a stored output of this {@link Task} instead of calling its {@link Operation} : the output is
+     * instrumented just like the one of {@link #process(Flux[])}.
+     * @param checkpoint the output read back from the {@link CheckpointStore}, or the {@link ResultCache}
+     */
+    Flux<?> replay(Flux<?> checkpoint, ExecutionContext context) {
+        return this.instrument(checkpoint, context.monitorOf(this), context.getNotifier(), context.getPipelineId());
+    }
+
+    private Flux<?> instrument(Flux<?> output, Monitor monitor, Notifier notifier, String pipelineId) {
+        return monitor.getFlowMetrics().instrument(output,
+                () -> this.flowStarted(monitor, notifier),
+                failed -> this.flowEnded(monitor, notifier, pipelineId, failed));
+    }
+
+    /** The first subscription to the output starts the {@link Task} */
+    private void flowStarted(Monitor monitor, Notifier notifier) {
+        monitor.statusToRunning();
+        notifier.notifyStateChange(monitor);
+        TaskFlowEvent event = new TaskFlowEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            this.runningFlows.put(monitor, event);
+        }
+    }
+
+    /** The {@link Task} is over once no subscription to its output is running anymore */
+    private void flowEnded(Monitor monitor, Notifier notifier, String pipelineId, boolean failed) {
+        if (failed) {
+            monitor.statusToError();
+        } else {
+            monitor.statusToDone();
+        }
+        notifier.notifyStateChange(monitor);
+        TaskFlowEvent event = this.runningFlows.remove(monitor);
+        if (event != null && event.shouldCommit()) {
+            FlowMetrics metrics = monitor.getFlowMetrics();
+            event.pipelineId = pipelineId;
+            event.taskId = monitor.getId();
+            event.taskName = this.getName();
+            event.elements = metrics.getElementCount();
+            event.timeToFirstElement = metrics.getTimeToFirstElementNanos();
+            event.activeTime = metrics.getActiveNanos();
+            event.terminalSignal = metrics.getTerminalSignal() != null ? metrics.getTerminalSignal().name() : null;
+            event.commit();
+        }
+    }
+
+    /**
+     * Once a 'predecessor' has produced its output {@link Flux}, we can store it in the {@link Task#inputSlots}
+     * of the consuming {@link Task}.<br>
+     * @param task the 'predecessor' that produced the {@link Flux}
+     * @param flux the produced {@link Flux}
+     * @return TRUE if this {@link Flux} was the last missing input, ie the {@link Task} is now ready to be processed
+     */
+    public boolean injectFluxFromTask(Task task, Flux<?> flux) {
+        return this.inputSlots.fill(this.slotIndexOf(task), flux);
+    }
+
+    /**
+     * @param task a 'predecessor'
+     * @return the position of its output among the inputs of this {@link Task}
+     */
+    int slotIndexOf(Task task) {
+        Integer index = this.slotIndexes.get(task);
+        if (index == null) {
+            throw new IllegalArgumentException(String.format("Task [ %s ] is not a predecessor of task [ %s ]",
+                    task.getName(), this.getName()));
+        }
+        return index;
+    }
+
+    /**
+     * Splits the input of this {@link Task} into rails processed concurrently, or stops doing so.
+     * @param partitioning how the input is split, NULL for a single rail
+     * @throws IllegalStateException if the Task has not exactly one 'predecessor'
+     */
+    public void setPartitioning(PartitioningPolicy partitioning) {
+        if (partitioning != null && this.predecessors.size() != 1) {
+            throw new IllegalStateException(String.format("Task [ %s ] has %d inputs : only a Task with a single "
+                    + "input can be partitioned", this.getName(), this.predecessors.size()));
+        }
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * Groups the elements received from a 'predecessor' into batches, on the edge between the two {@link Task}s.
+     * @param predecessor the producing Task
+     * @param policy how the elements are grouped, NULL to stop batching them
+     */
+    public void batchInput(Task predecessor, BatchingPolicy policy) {
+        this.slotIndexOf(predecessor);
+        if (policy == null) {
+            this.inputBatching.remove(predecessor);
+        } else {
+            this.inputBatching.put(predecessor, policy);
+        }
+    }
+
+    /**
+     * @param predecessor a 'predecessor' of this {@link Task}
+     * @return how the elements it produces are batched, NULL if they are not
+     */
+    public BatchingPolicy getInputBatching(Task predecessor) {
+        return this.inputBatching.get(predecessor);
+    }
+
+    /**
+     * @param predecessor a batched 'predecessor' of this {@link Task}
+     * @return the metrics of the batches it sent, all {@link Pipeline} executions together. NULL if it is not batched
+     */
+    public BatchMetrics getBatchMetrics(Task predecessor) {
+        return this.inputBatching.containsKey(predecessor)
+                ? this.inputBatchMetrics.computeIfAbsent(predecessor, p -> new BatchMetrics()) : null;
+    }
+
+    /**
+     * Sizes the queue where the elements received from a 'predecessor' wait for the {@link ExecutionProfile}'s
+     * scheduler, and decides what to do once it is full.
+     * @param predecessor the producing Task
+     * @param policy size and overflow strategy of the queue, NULL for {@link BufferPolicy#DEFAULT}
+     */
+    public void bufferInput(Task predecessor, BufferPolicy policy) {
+        this.slotIndexOf(predecessor);
+        if (policy == null) {
+            this.inputBuffers.remove(predecessor);
+        } else {
+            this.inputBuffers.put(predecessor, policy);
+        }
+    }
+
+    /**
+     * @param predecessor a 'predecessor' of this {@link Task}
+     * @return the queue of the elements it produces
+     */
+    public BufferPolicy getInputBuffer(Task predecessor) {
+        return this.inputBuffers.getOrDefault(predecessor, BufferPolicy.DEFAULT);
+    }
+
+    /**
+     * @param predecessor a 'predecessor' of this {@link Task}
+     * @return the gauges of the queue of the elements it produces, all {@link Pipeline} executions together
+     */
+    public BufferMetrics getBufferMetrics(Task predecessor) {
+        this.slotIndexOf(predecessor);
+        return this.inputBufferMetrics.computeIfAbsent(predecessor, p -> new BufferMetrics());
     }
 
     /**
-     * Once a 'predecessor' has produced its output {@link Flux}, we can replace the default {@link Optional#empty()}
-     * in the {@link Task#inputFluxesMap} of the consuming {@link Task}.<br>
+     * All the necessary input fluxes are ready to use
      */
-    public BiConsumer<Task,Flux<?>> injectFluxFromTask = ((task, flux) ->
-            this.inputFluxesMap.replace(task, Optional.empty(), Optional.of(flux)));
+    public static Predicate<Task> hasAllItsNecessaryInputFluxes = task -> task.getInputSlots().isComplete();
 
     /**
      * Retrieve the root cause of an exception :
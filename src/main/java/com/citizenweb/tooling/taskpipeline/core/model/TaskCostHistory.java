@@ -0,0 +1,74 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingStatus;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Historical cost of the {@link Task}s, looked up by Task name, as measured by their {@link Monitor}s during
+ * earlier executions.<br>
+ * Successive measures are smoothed by an exponentially weighted moving average, so that one slow execution does
+ * not outweigh all the previous ones.
+ * @see CostBasedOptimizer
+ */
+public class TaskCostHistory {
+
+    /** Weight of the last measure in the average */
+    private static final double LAST_MEASURE_WEIGHT = 0.3;
+
+    /** Average duration of each {@link Task}, in milliseconds, by Task name */
+    private final Map<String, Double> costs = new ConcurrentHashMap<>();
+
+    /**
+     * @param taskName name of the measured {@link Task}
+     * @param durationMillis its measured duration
+     */
+    public void record(String taskName, long durationMillis) {
+        this.costs.merge(taskName, (double) durationMillis,
+                (average, measure) -> average + LAST_MEASURE_WEIGHT * (measure - average));
+    }
+
+    /**
+     * Records the duration of a {@link Task} whose data flow is over. A Task that failed, or did not run, is ignored.
+     * @param task a {@link Task}
+     * @param monitor its {@link Monitor} for the measured execution
+     */
+    public void record(Task task, Monitor monitor) {
+        if (monitor.getStatus() == ProcessingStatus.DONE) {
+            this.record(task.getName(), monitor.getDuration());
+        }
+    }
+
+    /** Records the duration of each {@link Task} of the last execution of a {@link Pipeline} */
+    public void record(Pipeline pipeline) {
+        this.record(pipeline.getTasks(), Task::getMonitor);
+    }
+
+    /** Records the duration of each {@link Task} of an execution of a {@link PipelinePlan} */
+    public void record(PipelinePlan plan, PipelineRun run) {
+        this.record(plan.getTasks(), run::getMonitor);
+    }
+
+    private void record(Collection<Task> tasks, Function<Task, Monitor> monitors) {
+        tasks.forEach(task -> this.record(task, monitors.apply(task)));
+    }
+
+    /**
+     * @param taskName name of a {@link Task}
+     * @return its average duration in milliseconds, empty if it was never measured
+     */
+    public OptionalLong costOf(String taskName) {
+        Double cost = this.costs.get(taskName);
+        return cost == null ? OptionalLong.empty() : OptionalLong.of(Math.round(cost));
+    }
+
+    /** @return TRUE if no {@link Task} has been measured yet */
+    public boolean isEmpty() {
+        return this.costs.isEmpty();
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.citizenweb.tooling.taskpipeline.core.model;
+
+import lombok.Getter;
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handle on the output of a terminal {@link Task}, returned by {@link Pipeline#execute()}.<br>
+ * Nothing flows until the caller subscribes : either to {@link #flux()}, controlling the demand, or to
+ * {@link #then()} / {@link #toFuture()} / {@link #join()}, only waiting for the data to be fully processed.<br>
+ * The output is cold : each subscription runs the {@link Operation}s again, except for the {@link Task}s shared by
+ * several successors, which are computed once per execution. Share it if it has several consumers.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class TaskResult {
+
+    /** The terminal {@link Task} */
+    @Getter
+    @ToString.Include
+    private final Task task;
+    /** Output of the {@link Task}, available once assembled */
+    private final CompletableFuture<Flux<?>> output;
+
+    TaskResult(Task task, CompletableFuture<Flux<?>> output) {
+        this.task = task;
+        this.output = output;
+    }
+
+    /**
+     * @return the output of the {@link Task}, or an error if it could not be assembled
+     */
+    public Flux<?> flux() {
+        return Mono.fromFuture(this.output).flatMapMany(flux -> flux);
+    }
+
+    /**
+     * @param type type of the elements of the output
+     * @return the output of the {@link Task}, each element being cast into the given type
+     */
+    public <T> Flux<T> flux(Class<T> type) {
+        return this.flux().cast(type);
+    }
+
+    /**
+     * @return a {@link Mono} consuming the whole output, completed once the last element has been processed
+     */
+    public Mono<Void> then() {
+        return this.flux().then();
+    }
+
+    /**
+     * @return consumes the whole output, and is completed once the last element has been processed
+     */
+    public CompletableFuture<Void> toFuture() {
+        return this.then().toFuture();
+    }
+
+    /**
+     * Consumes the whole output and waits for the last element to be processed.
+     * @throws RuntimeException if the {@link Task} or any of its predecessors failed
+     */
+    public void join() {
+        this.then().block();
+    }
+}
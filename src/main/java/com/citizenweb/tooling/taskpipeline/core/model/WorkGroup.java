@@ -1,20 +1,37 @@
 package com.citizenweb.tooling.taskpipeline.core.model;
 
+import com.citizenweb.tooling.taskpipeline.core.utils.BatchingPolicy;
+import com.citizenweb.tooling.taskpipeline.core.utils.BufferPolicy;
+import com.citizenweb.tooling.taskpipeline.core.utils.ChunkType;
+import com.citizenweb.tooling.taskpipeline.core.utils.OrchestrationExecutors;
 import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingType;
+import com.citizenweb.tooling.taskpipeline.core.utils.TaskAssemblyEvent;
+import com.citizenweb.tooling.taskpipeline.core.utils.TaskUtils;
+import com.citizenweb.tooling.taskpipeline.core.utils.WorkGroupPhaseEvent;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.util.CollectionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 
-import java.util.*;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -35,29 +52,79 @@ public class WorkGroup extends Monitorable {
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     private final Set<Task> startingTasks;
-    /** The TERMINAL {@link Task} */
+    /** The TERMINAL {@link Task}s : only one for a work path, several for a whole component of the graph */
     @NonNull
     @Getter
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
-    private final Task endingTask;
+    private final Set<Task> endingTasks;
+    /** The largest number of {@link Task}s of a same topological level, ie that may run concurrently */
+    @Getter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final int width;
+    /** The number of {@link Task}s of the longest chain, ie of topological levels */
+    @Getter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final int criticalPathLength;
     /**
-     * Staging collection for {@link Task}s waiting for being processed.
+     * Outputs shared with the other {@link WorkGroup}s of the same {@link Pipeline} execution.<br>
+     * A standalone WorkGroup keeps its own.
      */
+    @Getter @Setter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private SharedOutputs sharedOutputs = new SharedOutputs();
+    /** {@link ExecutionProfile} of the {@link Task}s that do not declare their own */
     @NonNull
+    @Getter @Setter
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ExecutionProfile defaultProfile = ExecutionProfile.CPU_BOUND;
+
+    /**
+     * Order in which the {@link Task}s are assembled, the first ones being the most urgent.
+     * NULL when the Tasks are assembled as soon as they are ready
+     */
     @Getter
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
-    private final Set<Task> tasksToProcess = ConcurrentHashMap.newKeySet();
-    /** Dedicated {@link Scheduler} */
-    private final Scheduler scheduler = Schedulers.parallel();
+    private final Comparator<Task> priority;
 
     public WorkGroup(Set<Task> taskToProcess) {
+        this(taskToProcess, null);
+    }
+
+    /**
+     * @param taskToProcess the {@link Task}s of the WorkGroup
+     * @param priority order in which the starting Tasks, then the ready ones, are assembled. NULL for no order
+     */
+    public WorkGroup(Set<Task> taskToProcess, Comparator<Task> priority) {
         super(new Monitor(ProcessingType.WORKGROUP),
                 taskToProcess.stream().map(Task::getName).collect(Collectors.joining(",")));
         this.tasks = taskToProcess;
-        this.startingTasks = taskToProcess.stream().filter(Task.isInitialTask).collect(Collectors.toSet());
-        this.endingTask = taskToProcess.stream().filter(Task.isTerminalTask).findAny().orElseThrow();
+        this.priority = priority;
+        this.startingTasks = priority == null
+                ? taskToProcess.stream().filter(Task.isInitialTask).collect(Collectors.toSet())
+                : taskToProcess.stream().filter(Task.isInitialTask).sorted(priority)
+                        .collect(Collectors.toCollection(LinkedHashSet::new));
+        this.endingTasks = taskToProcess.stream().filter(Task.isTerminalTask)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (this.endingTasks.isEmpty()) {
+            throw new NoSuchElementException("A WorkGroup needs at least one terminal task");
+        }
+        List<Set<Task>> levels = TaskUtils.levelTasks(taskToProcess);
+        this.width = levels.stream().mapToInt(Set::size).max().orElse(0);
+        this.criticalPathLength = levels.size();
+    }
+
+    /**
+     * @return the TERMINAL {@link Task}, the first one of a WorkGroup having several
+     * @see #getEndingTasks()
+     */
+    public Task getEndingTask() {
+        return this.endingTasks.iterator().next();
     }
 
     /**
@@ -67,24 +134,51 @@ public class WorkGroup extends Monitorable {
      *     <li>process all intermediate tasks</li>
      *     <li>process all terminal tasks</li>
      * </ol>
+     * on the default orchestration {@link Executor}.
+     * @see OrchestrationExecutors#defaultExecutor()
      */
     public CompletableFuture<?> execute() {
-        return CompletableFuture.supplyAsync( () -> {
-            super.monitor.statusToRunning();
-            super.notifier.notifyStateChange();
-            return this.processStartingTasks();
-                })
-                .thenApply(this::processIntermediateTasks)
-                .thenApply(this::processFinalTasks)
+        return this.execute(OrchestrationExecutors.defaultExecutor());
+    }
+
+    /**
+     * Same as {@link #execute()}, on the given orchestration {@link Executor}.<br>
+     * No step ever blocks its thread : a terminal {@link Task} assembled by another WorkGroup is waited for
+     * asynchronously.
+     * @param executor runs the orchestration steps
+     */
+    public CompletableFuture<?> execute(Executor executor) {
+        return this.execute(executor, ExecutionContext.shared(this.getPipelineId(), super.notifier,
+                this.defaultProfile, this.sharedOutputs, null, null, null, null, this.tasks));
+    }
+
+    /**
+     * Same as {@link #execute(Executor)}, all the state of the execution being kept by the given
+     * {@link ExecutionContext} : the WorkGroup itself is only read, so that several executions may run at once.
+     * @param executor runs the orchestration steps
+     * @param context input slots, outputs and monitors of this execution
+     */
+    CompletableFuture<?> execute(Executor executor, ExecutionContext context) {
+        Monitor monitor = context.monitorOf(this);
+        Notifier notifier = context.getNotifier();
+        Queue<Task> readyTasks = this.priority == null
+                ? new ConcurrentLinkedQueue<>() : new PriorityBlockingQueue<>(11, this.priority);
+        return CompletableFuture.runAsync( () -> {
+            monitor.statusToRunning();
+            notifier.notifyStateChange(monitor);
+            this.processStartingTasks(context, readyTasks);
+                }, executor)
+                .thenRun(() -> this.processIntermediateTasks(context, readyTasks))
+                .thenCompose(nothing -> this.processFinalTasks(context))
                 .whenComplete((result, ex) -> {
                     if (ex != null) {
                         log.error("Error occurred : " + ex.getCause());
-                        super.monitor.statusToError();
-                        super.notifier.notifyStateChange();
+                        monitor.statusToError();
+                        notifier.notifyStateChange(monitor);
                     } else {
                         log.info("Finished processing 'work path' : " + this);
-                        super.monitor.statusToDone();
-                        super.notifier.notifyStateChange();
+                        monitor.statusToDone();
+                        notifier.notifyStateChange(monitor);
                     }
                 });
     }
@@ -93,101 +187,193 @@ public class WorkGroup extends Monitorable {
      * StartingTasks are all {@link Task}s without any predecessors (or previous Task).<br>
      * These {@link Task}s are specific because they do not need any input {@link Flux}.<br>
      * They all will be consumed by the following {@link Task}s.<br>
-     *
-     * @return a {@link WorkGroup}
+     * A starting Task shared with another {@link WorkGroup} is processed by the first one claiming it.
      */
-    private WorkGroup processStartingTasks() {
+    private void processStartingTasks(ExecutionContext context, Queue<Task> readyTasks) {
         log.info("Processing {} 'starting' tasks", this.getStartingTasks().size());
-        this.getStartingTasks().forEach(currentTask -> {
-            Flux<?> flux = currentTask.process(Flux.empty()).publishOn(this.scheduler);
-            currentTask.getSuccessors()
-                    .stream()
-                    .filter(this::taskBelongsToWorkGroup)
-                    .forEach(nextTask -> this.injectFlux(currentTask, nextTask, flux));
-        });
+        WorkGroupPhaseEvent event = new WorkGroupPhaseEvent();
+        event.begin();
+        int assembled = 0;
+        for (Task currentTask : this.getStartingTasks()) {
+            if (context.getSharedOutputs().claim(currentTask)) {
+                this.assemble(currentTask, new Flux<?>[]{Flux.empty()}, context, readyTasks);
+                assembled++;
+            }
+        }
+        this.commitPhase(event, context, "STARTING", assembled);
         log.info("Done");
-        return this;
     }
 
     /**
      * IntermediateTasks have predecessors and successors.<br>
      * They all will be consumed, layer after layer, until we reach the terminal {@link Task}s.<br>
-     *
-     * @param workGroup this object, a wrapper for all tasks dedicated to one single 'final' {@link Task}
+     * A Task is queued by the injection of its last missing input, so each Task is visited only once,
+     * when it is ready, and nothing is ever polled. With a priority, the most urgent ready Task is assembled first.
      */
-    private WorkGroup processIntermediateTasks(WorkGroup workGroup) {
-        log.info("Processing {} 'intermediate' tasks", this.getTasksToProcess().size());
-        /* For the sake of readability */
-        var tasksToProcess = this.getTasksToProcess();
-        if (!CollectionUtils.isEmpty(tasksToProcess)) {
-            Set<Task> tasksToRemoveFromMap = new HashSet<>();
-            while (!this.onlyEndingTaskRemains()) {
-                tasksToProcess.stream()
-                        .filter(Task.isTerminalTask.negate())
-                        .filter(hasAllItsNecessaryInputFluxes)
-                        .forEach(currentTask -> {
-                            Flux<?> flux = currentTask.process(this.removeOptional.andThen(this.convertCollectionToArray)
-                                    .apply(currentTask.getInputFluxesMap().values())).publishOn(this.scheduler);
-                            currentTask.getSuccessors().forEach(nextTask -> this.injectFlux(currentTask, nextTask, flux));
-                            tasksToRemoveFromMap.add(currentTask);
-                        });
-                tasksToRemoveFromMap.forEach(tasksToProcess::remove);
-                tasksToRemoveFromMap.clear();
-            }
+    private void processIntermediateTasks(ExecutionContext context, Queue<Task> readyTasks) {
+        log.info("Processing {} 'ready' tasks", readyTasks.size());
+        WorkGroupPhaseEvent event = new WorkGroupPhaseEvent();
+        event.begin();
+        int assembled = 0;
+        Task currentTask;
+        while ((currentTask = readyTasks.poll()) != null) {
+            this.assemble(currentTask, context.inputSlotsOf(currentTask).toArray(), context, readyTasks);
+            assembled++;
         }
+        this.commitPhase(event, context, "INTERMEDIATE", assembled);
         log.info("Done");
-        return this;
     }
 
     /**
      * FinalTasks (or TerminalTasks) are the {@link Task}s we want to compute the resulting {@link Flux}.<br>
+     * The terminal {@link Task} may have been assembled by another {@link WorkGroup} sharing some of its
+     * predecessors : its output is taken from the {@link SharedOutputs}.<br>
+     * The resulting Flux is not subscribed here : it is handed to the caller through a {@link TaskResult}.
      */
-    private WorkGroup processFinalTasks(WorkGroup workGroup) {
-        log.info("Processing 'terminal' task {}", this.getEndingTask().getName());
-        /* For the sake of readability */
-        var tasksToProcess = this.getTasksToProcess();
-        if (!CollectionUtils.isEmpty(tasksToProcess)) {
-            tasksToProcess.forEach(currentTask -> {
-                Flux<?> flux = currentTask.process(this.getComputedInputFluxes.apply(currentTask));
-                flux.log().subscribe(o -> log.info(String.valueOf(o)));
-            });
+    private CompletableFuture<WorkGroup> processFinalTasks(ExecutionContext context) {
+        log.info("Processing {} 'terminal' tasks", this.endingTasks.size());
+        WorkGroupPhaseEvent event = new WorkGroupPhaseEvent();
+        event.begin();
+        CompletableFuture<?>[] outputs = this.endingTasks.stream()
+                .map(task -> context.getSharedOutputs().output(task))
+                .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(outputs).thenApply(nothing -> {
+            this.commitPhase(event, context, "FINAL", this.endingTasks.size());
+            log.info("Done");
+            return this;
+        });
+    }
+
+    /** Fields are only filled while a JFR recording wants the event */
+    private void commitPhase(WorkGroupPhaseEvent event, ExecutionContext context, String phase,
+                             int assembledTasks) {
+        if (event.shouldCommit()) {
+            event.pipelineId = context.getPipelineId();
+            event.workGroupId = context.monitorOf(this).getId();
+            event.workGroupName = this.getName();
+            event.phase = phase;
+            event.tasks = assembledTasks;
+            event.commit();
         }
-        log.info("Done");
-        return this;
     }
-    /**
-     * Converts a Collection into an Array
-     */
-    Function<Collection<Flux<?>>, Flux<?>[]> convertCollectionToArray = collection -> {
-        Objects.requireNonNull(collection, "Collection is NULL thus can't be converted into Array");
-        Flux<?>[] array = new Flux[collection.size()];
-        return collection.toArray(array);
-    };
-    /** If any {@link Optional} of {@link Flux} are present, will convert them into plain {@link Flux} objects */
-    Function<Collection<Optional<Flux<?>>>, Collection<Flux<?>>> removeOptional = optionals -> {
-        Objects.requireNonNull(optionals, "Collection is NULL thus Optional can't be removed");
-        Collection<Flux<?>> fluxes = new ArrayList<>(optionals.size());
-        optionals.forEach(optional -> fluxes.add(optional.orElseThrow()));
-        return fluxes;
-    };
-    /** {@link Function} composition */
-    Function<Task, Flux<?>[]> getComputedInputFluxes = task -> this.removeOptional.andThen(this.convertCollectionToArray)
-            .apply(task.getInputFluxesMap().values());
+
+    /** @return a handle on the output of the terminal {@link Task}, as assembled by the current execution */
+    public TaskResult getResult() {
+        Task endingTask = this.getEndingTask();
+        return new TaskResult(endingTask, this.sharedOutputs.output(endingTask));
+    }
+
+    /** @return a handle on the output of each terminal {@link Task}, as assembled by the current execution */
+    public Map<Task, TaskResult> getResults() {
+        Map<Task, TaskResult> results = new LinkedHashMap<>();
+        this.endingTasks.forEach(task -> results.put(task, new TaskResult(task, this.sharedOutputs.output(task))));
+        return results;
+    }
 
     /**
-     * Each time a {@link Flux} is produced, we have to inject it as an input for the next {@link Task}.<br>
+     * Processes a {@link Task} and publishes its output {@link Flux} into the {@link SharedOutputs}.<br>
+     * The Flux is then injected into every successor, exactly once per execution : a successor receiving its last
+     * missing input is queued for processing.<br>
+     * The Task's {@link Operation} is run on the {@link Scheduler} of its {@link ExecutionProfile} : an initial Task
+     * is subscribed on it, the inputs of any other Task are published on it, each one through a queue of its own.<br>
+     * The elements of a batched input cross the scheduler as batches.<br>
+     * A checkpointed Task replays its checkpoint, if any, without subscribing to its inputs. Otherwise, its output is
+     * checkpointed while it flows.<br>
+     * A Task having a cache key replays the output cached by any execution, if any, subscribed on its scheduler.
+     * Otherwise, its output is cached for the next executions.<br>
+     * The output of a Task having several successors in the execution is computed once, on the first subscription,
+     * and replayed to each successor.
      */
-    public void injectFlux(Task producer, Task consumer, Flux<?> flux) {
-        consumer.injectFluxFromTask.accept(producer, flux);
-        this.tasksToProcess.add(consumer);
+    private void assemble(Task task, Flux<?>[] inputs, ExecutionContext context, Queue<Task> readyTasks) {
+        TaskAssemblyEvent event = new TaskAssemblyEvent();
+        event.begin();
+        ExecutionProfile profile = task.getExecutionProfile() != null
+                ? task.getExecutionProfile() : context.getDefaultProfile();
+        Scheduler scheduler = profile.getScheduler();
+        SharedOutputs sharedOutputs = context.getSharedOutputs();
+        CheckpointStore checkpoints = task.isCheckpointed() ? context.getCheckpoints() : null;
+        String scope = context.getCheckpointScope();
+        String run = context.getCheckpointRun();
+        String cacheKey = context.cacheKeyOf(task);
+        ResultCache cache = context.getResultCache();
+        UnaryOperator<Flux<?>> sharing = cacheKey == null
+                ? UnaryOperator.identity() : output -> cache.share(cacheKey, output);
+        Flux<?> flux;
+        Flux<?> cached;
+        try {
+            if (checkpoints != null && checkpoints.contains(scope, run, task)) {
+                log.info("Replaying the checkpoint of task {}", task.getName());
+                flux = task.replay(checkpoints.replay(scope, run, task), context);
+                checkpoints = null;
+            } else if (cacheKey != null && (cached = cache.lookup(cacheKey)) != null) {
+                log.info("Replaying the cached output of task {}", task.getName());
+                flux = task.replay(cached, context).subscribeOn(scheduler);
+            } else if (Task.isInitialTask.test(task)) {
+                flux = task.process(inputs, context, sharing).subscribeOn(scheduler);
+            } else {
+                Flux<?>[] scheduledInputs = new Flux<?>[inputs.length];
+                int i = 0;
+                for (Task predecessor : task.getPredecessors()) {
+                    scheduledInputs[i] = this.schedule(predecessor, task, inputs[i], scheduler, context);
+                    i++;
+                }
+                flux = task.process(scheduledInputs, context, sharing);
+            }
+            if (checkpoints != null) {
+                flux = checkpoints.record(scope, run, task, flux);
+            }
+            if (context.consumerCountOf(task) > 1) {
+                flux = flux.cache();
+            }
+        } catch (RuntimeException ex) {
+            sharedOutputs.fail(task, ex);
+            throw ex;
+        }
+        sharedOutputs.publish(task, flux);
+        for (Task nextTask : task.getSuccessors()) {
+            if (context.inject(task, nextTask, flux) && sharedOutputs.claim(nextTask)) {
+                readyTasks.add(nextTask);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.pipelineId = context.getPipelineId();
+            event.taskId = context.monitorOf(task).getId();
+            event.taskName = task.getName();
+            event.executionProfile = profile.getName();
+            event.commit();
+        }
     }
 
     /**
-     * Check the content of the {@link WorkGroup#tasksToProcess} collection.<br>
-     * @return TRUE if only the terminal {@link Task} remains to be processed
+     * Publishes an input of a {@link Task} on the {@link Scheduler} of its {@link ExecutionProfile}, through the
+     * queue sized by the Task's {@link BufferPolicy} for this input.<br>
+     * A batched input crosses the scheduler as batches, one signal for many elements, and is unbatched right after
+     * unless the Task receives batches.<br>
+     * An input of a primitive {@link Operation} crosses the scheduler as chunks of the right type, and the chunks of a
+     * primitive Operation are unboxed right after for an ordinary Operation.
+     * @see ChunkType
      */
-    public boolean onlyEndingTaskRemains() {
-        return this.tasksToProcess.size() == 1 && this.tasksToProcess.contains(this.endingTask);
+    private Flux<?> schedule(Task producer, Task consumer, Flux<?> input, Scheduler scheduler,
+                             ExecutionContext context) {
+        ChunkType produced = ChunkType.of(producer.getWrappedOperation());
+        ChunkType consumed = ChunkType.of(consumer.getWrappedOperation());
+        Flux<?> elements = consumed != null && consumed != produced
+                ? consumed.chunk(input, ChunkType.DEFAULT_CHUNK_SIZE) : input;
+        BufferMetrics queue = context.bufferMetricsOf(producer, consumer);
+        BufferPolicy buffer = consumer.getInputBuffer(producer);
+        BatchingPolicy batching = consumer.getInputBatching(producer);
+        if (batching == null) {
+            return unchunk(produced, consumed, queue.publishOn(elements, buffer, scheduler));
+        }
+        Flux<? extends List<?>> batches = queue.publishOn(
+                context.batchMetricsOf(producer, consumer).batch(elements, batching), buffer, scheduler);
+        return consumer.isReceivingBatches()
+                ? batches : unchunk(produced, consumed, batches.flatMapIterable(Function.identity()));
+    }
+
+    /** @return the boxed values of the chunks, when they are produced by a primitive Operation for an ordinary one */
+    private static Flux<?> unchunk(ChunkType produced, ChunkType consumed, Flux<?> elements) {
+        return produced != null && consumed == null ? produced.unchunk(elements) : elements;
     }
 
     /**
@@ -7,7 +7,8 @@ import java.util.stream.Collectors;
 
 /**
  * A {@link WorkGroupOptimizer} computes all possible {@link WorkGroup}s starting from a set of tasks.<br>
- * We provide a {@link #DEFAULT_OPTIMIZER} that will create one {@link WorkGroup} by 'terminal' {@link Task}.<br>
+ * We provide a {@link #DEFAULT_OPTIMIZER} that will create one {@link WorkGroup} by 'terminal' {@link Task}, and a
+ * {@link #COMPONENTS_OPTIMIZER} that will create one {@link WorkGroup} by connected component of the graph.<br>
  * You can provide your own {@link WorkGroupOptimizer} when instantiating a new {@link Pipeline}.
  */
 @FunctionalInterface
@@ -24,17 +25,27 @@ public interface WorkGroupOptimizer {
     Collection<WorkGroup> optimize(Set<Task> allTasks);
 
     /**
-     * DEFAULT implementation of {@link WorkGroupOptimizer}
+     * DEFAULT implementation of {@link WorkGroupOptimizer}.<br>
+     * Ranks and the ancestors of each terminal {@link Task} are computed in a single walk of the whole graph.
      */
     WorkGroupOptimizer DEFAULT_OPTIMIZER = allTasks -> {
         List<WorkGroup> workGroups = new ArrayList<>();
         Set<Task> terminalTasks = allTasks.stream().filter(Task.isTerminalTask).collect(Collectors.toSet());
-        for (Task task : terminalTasks) {
-            Set<Task> workgroupFromTerminalTask = new HashSet<>();
-            TaskUtils.buildWorkGroupFromTerminalToInitial(workgroupFromTerminalTask, task, 0);
-            workGroups.add(new WorkGroup(workgroupFromTerminalTask));
+        for (Set<Task> workPath : TaskUtils.collectWorkPaths(terminalTasks).values()) {
+            workGroups.add(new WorkGroup(workPath));
         }
         return workGroups;
     };
 
+    /**
+     * Parallelism-maximizing implementation of {@link WorkGroupOptimizer}.<br>
+     * The graph is split into weakly connected components : each {@link Task} belongs to exactly one
+     * {@link WorkGroup}, so no ancestor is shared, and independent components are orchestrated concurrently.
+     * Within a WorkGroup, the Tasks heading the longest chains are assembled first.<br>
+     * The width and critical path length of each WorkGroup are logged, to size the thread pools.
+     * @see WorkGroup#getWidth()
+     * @see WorkGroup#getCriticalPathLength()
+     */
+    WorkGroupOptimizer COMPONENTS_OPTIMIZER = new ComponentsOptimizer();
+
 }
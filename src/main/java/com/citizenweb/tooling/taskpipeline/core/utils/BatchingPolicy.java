@@ -0,0 +1,63 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Getter;
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * How the elements flowing from a {@link com.citizenweb.tooling.taskpipeline.core.model.Task} to one of its
+ * successors are grouped into batches : by size, by time, or by size or time whichever comes first.<br>
+ * A batch only costs one signal on the edge, whatever its number of elements.
+ */
+@Getter
+@ToString
+public final class BatchingPolicy {
+    /** A batch is emitted once it holds this many elements. {@link Integer#MAX_VALUE} for no size bound */
+    private final int maxSize;
+    /** A batch is emitted once its first element is this old. NULL for no time bound */
+    private final Duration maxLatency;
+
+    private BatchingPolicy(int maxSize, Duration maxLatency) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("A batch holds at least one element, not " + maxSize);
+        }
+        if (maxLatency != null && (maxLatency.isZero() || maxLatency.isNegative())) {
+            throw new IllegalArgumentException("The latency of a batch has to be positive, not " + maxLatency);
+        }
+        this.maxSize = maxSize;
+        this.maxLatency = maxLatency;
+    }
+
+    /** @return batches of exactly the given size, but the last one */
+    public static BatchingPolicy bySize(int maxSize) {
+        return new BatchingPolicy(maxSize, null);
+    }
+
+    /** @return batches of all the elements received within the given time, empty time windows being skipped */
+    public static BatchingPolicy byTime(Duration maxLatency) {
+        return new BatchingPolicy(Integer.MAX_VALUE, Objects.requireNonNull(maxLatency, "A latency is required"));
+    }
+
+    /** @return batches emitted as soon as they are full, or as soon as their first element is too old */
+    public static BatchingPolicy bySizeOrTime(int maxSize, Duration maxLatency) {
+        return new BatchingPolicy(maxSize, Objects.requireNonNull(maxLatency, "A latency is required"));
+    }
+
+    /**
+     * @param flux the elements to group
+     * @return the batches, as {@link List}s
+     */
+    public <T> Flux<List<T>> apply(Flux<T> flux) {
+        if (this.maxLatency == null) {
+            return flux.buffer(this.maxSize);
+        }
+        if (this.maxSize == Integer.MAX_VALUE) {
+            return flux.buffer(this.maxLatency).filter(batch -> !batch.isEmpty());
+        }
+        return flux.bufferTimeout(this.maxSize, this.maxLatency);
+    }
+}
@@ -0,0 +1,129 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Getter;
+import lombok.ToString;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size of the queue between a {@link com.citizenweb.tooling.taskpipeline.core.model.Task} and one of its
+ * successors, where the elements wait for the successor's {@link Scheduler}, and what to do once it is full.<br>
+ * The occupancy and retained bytes of the queue are only gauged when asked with {@link #gauged()} : each element
+ * then pays for the updates of gauges shared by all the subscriptions. Dropped elements are always counted.
+ */
+@Getter
+@ToString
+public final class BufferPolicy {
+    /** Estimated heap size of an element, headers and references included */
+    public static final long DEFAULT_ELEMENT_BYTES = 64;
+    /** Array header, on a 64-bit JVM */
+    private static final long ARRAY_HEADER_BYTES = 16;
+    /**
+     * Estimates an element as {@link #DEFAULT_ELEMENT_BYTES}, a primitive array, such as a chunk, by its length and a
+     * batch as the sum of its elements
+     */
+    public static final ToLongFunction<Object> DEFAULT_ELEMENT_SIZE = BufferPolicy::estimateSize;
+    /** Reactor's default queue of {@link Queues#SMALL_BUFFER_SIZE} elements, holding the producer back once full */
+    public static final BufferPolicy DEFAULT = new BufferPolicy(Queues.SMALL_BUFFER_SIZE, OverflowStrategy.BLOCK,
+            DEFAULT_ELEMENT_SIZE, false);
+
+    /** Maximum number of elements waiting in the queue */
+    private final int capacity;
+    /** What to do with the elements arriving while the queue is full */
+    private final OverflowStrategy overflow;
+    /** Estimates the heap size of an element, in bytes */
+    @ToString.Exclude
+    private final ToLongFunction<Object> elementSize;
+    /** TRUE if the occupancy and the retained bytes of the queue are gauged */
+    private final boolean gauged;
+
+    private BufferPolicy(int capacity, OverflowStrategy overflow, ToLongFunction<Object> elementSize,
+                         boolean gauged) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A queue holds at least one element, not " + capacity);
+        }
+        this.capacity = capacity;
+        this.overflow = Objects.requireNonNull(overflow, "An overflow strategy is required");
+        this.elementSize = Objects.requireNonNull(elementSize, "An element size estimator is required");
+        this.gauged = gauged;
+    }
+
+    /**
+     * @param capacity maximum number of elements waiting in the queue
+     * @param overflow what to do with the elements arriving while the queue is full
+     * @return a new {@link BufferPolicy}, estimating the elements' size with {@link #DEFAULT_ELEMENT_SIZE}
+     */
+    public static BufferPolicy of(int capacity, OverflowStrategy overflow) {
+        return new BufferPolicy(capacity, overflow, DEFAULT_ELEMENT_SIZE, false);
+    }
+
+    /**
+     * @param elementSize estimates the heap size of an element, in bytes
+     * @return a copy of this {@link BufferPolicy}, estimating the elements' size with the given function
+     */
+    public BufferPolicy withElementSize(ToLongFunction<Object> elementSize) {
+        return new BufferPolicy(this.capacity, this.overflow, elementSize, this.gauged);
+    }
+
+    /** @return a copy of this {@link BufferPolicy}, gauging the occupancy and the retained bytes of the queue */
+    public BufferPolicy gauged() {
+        return new BufferPolicy(this.capacity, this.overflow, this.elementSize, true);
+    }
+
+    private static long estimateSize(Object element) {
+        if (element instanceof Collection) {
+            long bytes = DEFAULT_ELEMENT_BYTES;
+            for (Object item : (Collection<?>) element) {
+                bytes += estimateSize(item);
+            }
+            return bytes;
+        }
+        if (element instanceof int[]) {
+            return ARRAY_HEADER_BYTES + (long) Integer.BYTES * ((int[]) element).length;
+        }
+        if (element instanceof long[]) {
+            return ARRAY_HEADER_BYTES + (long) Long.BYTES * ((long[]) element).length;
+        }
+        if (element instanceof double[]) {
+            return ARRAY_HEADER_BYTES + (long) Double.BYTES * ((double[]) element).length;
+        }
+        if (element instanceof byte[]) {
+            return ARRAY_HEADER_BYTES + ((byte[]) element).length;
+        }
+        return DEFAULT_ELEMENT_BYTES;
+    }
+
+    /**
+     * Publishes the elements on the given {@link Scheduler} through a queue of {@link #capacity} elements.
+     * @param flux the elements produced by a {@link com.citizenweb.tooling.taskpipeline.core.model.Task}
+     * @param scheduler the {@link Scheduler} of the consumer
+     * @param enqueued called for each element offered to the queue, NULL for none
+     * @param dropped called for each element dropped because the queue is full
+     * @return the elements, published on the scheduler
+     */
+    public <T> Flux<T> apply(Flux<T> flux, Scheduler scheduler, Consumer<? super T> enqueued,
+                             Consumer<? super T> dropped) {
+        Flux<T> offered = enqueued == null ? flux : flux.doOnNext(enqueued);
+        switch (this.overflow) {
+            case DROP:
+                return offered.onBackpressureDrop(dropped).publishOn(scheduler, this.capacity);
+            case LATEST:
+                return offered.onBackpressureBuffer(1, dropped, BufferOverflowStrategy.DROP_OLDEST)
+                        .publishOn(scheduler, this.capacity);
+            case ERROR:
+                return offered.onBackpressureError().publishOn(scheduler, this.capacity);
+            case BUFFER:
+                return offered.onBackpressureBuffer(this.capacity, dropped, BufferOverflowStrategy.DROP_OLDEST)
+                        .publishOn(scheduler, 1);
+            default:
+                return offered.publishOn(scheduler, this.capacity);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import java.io.IOException;
+
+/**
+ * A {@link CheckpointSerializer} turns each element of a checkpointed output into bytes, and back.<br>
+ * The {@link com.citizenweb.tooling.taskpipeline.core.model.CheckpointStore} frames the bytes of each element :
+ * implementations only deal with one element at a time. They must be thread-safe. See
+ * {@link CheckpointSerializers} for the provided ones.
+ */
+public interface CheckpointSerializer {
+
+    /**
+     * @param element an element of the output of a {@link com.citizenweb.tooling.taskpipeline.core.model.Task}
+     * @return its bytes
+     */
+    byte[] serialize(Object element) throws IOException;
+
+    /**
+     * @param bytes the bytes of an element, as serialized
+     * @return the element
+     */
+    Object deserialize(byte[] bytes) throws IOException;
+}
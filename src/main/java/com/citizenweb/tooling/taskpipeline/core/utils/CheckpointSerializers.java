@@ -0,0 +1,63 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * The provided {@link CheckpointSerializer}s
+ */
+public final class CheckpointSerializers {
+
+    /** Java serialization : any {@link java.io.Serializable} element, whatever its type */
+    public static final CheckpointSerializer JAVA = new CheckpointSerializer() {
+        @Override
+        public byte[] serialize(Object element) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(element);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) throws IOException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return in.readObject();
+            } catch (ClassNotFoundException ex) {
+                throw new IOException("Unknown class of checkpointed element", ex);
+            }
+        }
+    };
+
+    private CheckpointSerializers() {
+    }
+
+    /**
+     * Compact JSON, for outputs whose elements all are of the same type.
+     * @param type type of the elements
+     * @return a {@link CheckpointSerializer} reading the elements back as instances of the given type
+     */
+    public static CheckpointSerializer json(Class<?> type) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectWriter writer = mapper.writerFor(type);
+        ObjectReader reader = mapper.readerFor(type);
+        return new CheckpointSerializer() {
+            @Override
+            public byte[] serialize(Object element) throws IOException {
+                return writer.writeValueAsBytes(element);
+            }
+
+            @Override
+            public Object deserialize(byte[] bytes) throws IOException {
+                return reader.readValue(bytes);
+            }
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.DoubleOperation;
+import com.citizenweb.tooling.taskpipeline.core.model.IntOperation;
+import com.citizenweb.tooling.taskpipeline.core.model.LongOperation;
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Primitive chunks exchanged by the {@link IntOperation}s, {@link LongOperation}s and {@link DoubleOperation}s :
+ * arrays of numbers travelling as a single element, so that nothing is boxed between two such Operations.<br>
+ * Adapters turn boxed {@link Number}s, or chunks of another type, into chunks, and chunks back into Numbers for
+ * ordinary {@link Operation}s.
+ */
+public enum ChunkType {
+    /** int[] chunks */
+    INT(int[].class) {
+        @Override
+        Object fromNumbers(List<?> numbers) {
+            int[] chunk = new int[numbers.size()];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = ((Number) numbers.get(i)).intValue();
+            }
+            return chunk;
+        }
+
+        @Override
+        Object fromChunk(Object chunk) {
+            if (chunk instanceof long[]) {
+                return LongStream.of((long[]) chunk).mapToInt(value -> (int) value).toArray();
+            }
+            return DoubleStream.of((double[]) chunk).mapToInt(value -> (int) value).toArray();
+        }
+
+        @Override
+        public Flux<Integer> unchunk(Flux<?> chunks) {
+            return chunks.cast(int[].class).flatMapIterable(ChunkType::boxed);
+        }
+    },
+    /** long[] chunks */
+    LONG(long[].class) {
+        @Override
+        Object fromNumbers(List<?> numbers) {
+            long[] chunk = new long[numbers.size()];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = ((Number) numbers.get(i)).longValue();
+            }
+            return chunk;
+        }
+
+        @Override
+        Object fromChunk(Object chunk) {
+            if (chunk instanceof int[]) {
+                return IntStream.of((int[]) chunk).asLongStream().toArray();
+            }
+            return DoubleStream.of((double[]) chunk).mapToLong(value -> (long) value).toArray();
+        }
+
+        @Override
+        public Flux<Long> unchunk(Flux<?> chunks) {
+            return chunks.cast(long[].class).flatMapIterable(ChunkType::boxed);
+        }
+    },
+    /** double[] chunks */
+    DOUBLE(double[].class) {
+        @Override
+        Object fromNumbers(List<?> numbers) {
+            double[] chunk = new double[numbers.size()];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = ((Number) numbers.get(i)).doubleValue();
+            }
+            return chunk;
+        }
+
+        @Override
+        Object fromChunk(Object chunk) {
+            if (chunk instanceof int[]) {
+                return IntStream.of((int[]) chunk).asDoubleStream().toArray();
+            }
+            return LongStream.of((long[]) chunk).asDoubleStream().toArray();
+        }
+
+        @Override
+        public Flux<Double> unchunk(Flux<?> chunks) {
+            return chunks.cast(double[].class).flatMapIterable(ChunkType::boxed);
+        }
+    };
+
+    /** Number of boxed elements gathered into a chunk */
+    public static final int DEFAULT_CHUNK_SIZE = 1_024;
+
+    /** Class of the chunks */
+    private final Class<?> chunkClass;
+
+    ChunkType(Class<?> chunkClass) {
+        this.chunkClass = chunkClass;
+    }
+
+    /**
+     * @param operation any {@link Operation}
+     * @return the type of the chunks it exchanges, NULL for an ordinary Operation exchanging boxed elements
+     */
+    public static ChunkType of(Operation operation) {
+        if (operation instanceof IntOperation) {
+            return INT;
+        }
+        if (operation instanceof LongOperation) {
+            return LONG;
+        }
+        if (operation instanceof DoubleOperation) {
+            return DOUBLE;
+        }
+        return null;
+    }
+
+    /**
+     * Adapts any {@link Flux} of numbers into chunks of this type, the kind of elements being told by the first one.
+     * Chunks of this type go through untouched.
+     * @param elements boxed {@link Number}s, or chunks of any type
+     * @param chunkSize number of boxed elements gathered into a chunk
+     * @return chunks of this type, failing with an {@link IllegalArgumentException} on an array which is not a chunk
+     */
+    public Flux<?> chunk(Flux<?> elements, int chunkSize) {
+        return elements.switchOnFirst((first, flux) -> {
+            if (!first.hasValue() || this.chunkClass.isInstance(first.get())) {
+                return flux;
+            }
+            if (first.get().getClass().isArray()) {
+                return flux.map(this::convert);
+            }
+            return flux.buffer(chunkSize).map(this::fromNumbers);
+        });
+    }
+
+    /**
+     * @param chunks chunks of this type
+     * @return the boxed elements of the chunks, for an ordinary {@link Operation}
+     */
+    public abstract Flux<? extends Number> unchunk(Flux<?> chunks);
+
+    /** @return a chunk of this type, holding the given {@link Number}s */
+    abstract Object fromNumbers(List<?> numbers);
+
+    /** @return a chunk of this type, holding the values of a chunk of another type */
+    abstract Object fromChunk(Object chunk);
+
+    /** @return the chunk itself if of this type, else a chunk of this type holding its values */
+    private Object convert(Object chunk) {
+        if (this.chunkClass.isInstance(chunk)) {
+            return chunk;
+        }
+        if (!(chunk instanceof int[] || chunk instanceof long[] || chunk instanceof double[])) {
+            throw new IllegalArgumentException("A chunk is an int[], a long[] or a double[], not a "
+                    + chunk.getClass().getSimpleName());
+        }
+        return this.fromChunk(chunk);
+    }
+
+    /** @return int[] chunks out of boxed {@link Number}s, or chunks of any type */
+    public static Flux<int[]> ints(Flux<?> elements) {
+        return INT.chunk(elements, DEFAULT_CHUNK_SIZE).cast(int[].class);
+    }
+
+    /** @return long[] chunks out of boxed {@link Number}s, or chunks of any type */
+    public static Flux<long[]> longs(Flux<?> elements) {
+        return LONG.chunk(elements, DEFAULT_CHUNK_SIZE).cast(long[].class);
+    }
+
+    /** @return double[] chunks out of boxed {@link Number}s, or chunks of any type */
+    public static Flux<double[]> doubles(Flux<?> elements) {
+        return DOUBLE.chunk(elements, DEFAULT_CHUNK_SIZE).cast(double[].class);
+    }
+
+    private static Iterable<Integer> boxed(int[] chunk) {
+        return () -> IntStream.of(chunk).iterator();
+    }
+
+    private static Iterable<Long> boxed(long[] chunk) {
+        return () -> LongStream.of(chunk).iterator();
+    }
+
+    private static Iterable<Double> boxed(double[] chunk) {
+        return () -> DoubleStream.of(chunk).iterator();
+    }
+}
@@ -0,0 +1,45 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Monitor;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * {@link EventEncoder} building the DTOs first, then serializing them as pretty-printed JSON.<br>
+ * It is the historical format, kept for compatibility and as a reference : the
+ * {@link JacksonEventEncoder} produces the same content at a much lower cost.
+ */
+public class DtoEventEncoder implements EventEncoder {
+
+    private final ObjectWriter writer = new ObjectMapper().writer().withDefaultPrettyPrinter();
+
+    @Override
+    public byte[] encodePipeline(Pipeline pipeline) {
+        return this.encode(new PipelineDTO(pipeline));
+    }
+
+    @Override
+    public byte[] encodeSnapshot(long sequence, Pipeline pipeline) {
+        return this.encode(new PipelineSnapshotDTO(sequence, pipeline));
+    }
+
+    @Override
+    public byte[] encodeDelta(String pipelineId, long sequence, Monitor monitor) {
+        return this.encode(new MonitorDTO(pipelineId, sequence, monitor));
+    }
+
+    @Override
+    public boolean isBinary() {
+        return false;
+    }
+
+    private byte[] encode(Object dto) {
+        try {
+            return this.writer.writeValueAsBytes(dto);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
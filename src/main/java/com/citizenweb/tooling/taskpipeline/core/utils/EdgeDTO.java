@@ -0,0 +1,58 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.BatchMetrics;
+import com.citizenweb.tooling.taskpipeline.core.model.BufferMetrics;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import lombok.Data;
+
+/**
+ * This <b>DTO</b> carries the state of an edge, from a {@link Task} to one of its successors : the live gauges of
+ * its queue, at 0 unless the edge is gauged, and, for a batched edge, the batches that crossed it so far.
+ */
+@Data
+public class EdgeDTO {
+    private final String producerId;
+    private final String producerName;
+    private final int bufferCapacity;
+    private final String overflowStrategy;
+    private final boolean gauged;
+    private final long occupancy;
+    private final long peakOccupancy;
+    private final long retainedBytes;
+    private final long peakRetainedBytes;
+    private final long droppedCount;
+    private final String batching;
+    private final long batchCount;
+    private final double meanBatchSize;
+    private final long medianBatchSize;
+    private final long p99BatchSize;
+    private final long medianLatencyMicros;
+    private final long p99LatencyMicros;
+    private final long maxLatencyMicros;
+
+    public EdgeDTO(Task producer, Task consumer) {
+        this.producerId = producer.getMonitor().getId();
+        this.producerName = producer.getName();
+        BufferPolicy buffer = consumer.getInputBuffer(producer);
+        BufferMetrics queue = consumer.getBufferMetrics(producer);
+        this.bufferCapacity = buffer.getCapacity();
+        this.overflowStrategy = buffer.getOverflow().name();
+        this.gauged = buffer.isGauged();
+        this.occupancy = queue.getOccupancy();
+        this.peakOccupancy = queue.getPeakOccupancy();
+        this.retainedBytes = queue.getRetainedBytes();
+        this.peakRetainedBytes = queue.getPeakRetainedBytes();
+        this.droppedCount = queue.getDroppedCount();
+        BatchingPolicy policy = consumer.getInputBatching(producer);
+        this.batching = policy != null ? policy.toString() : "";
+        BatchMetrics batches = consumer.getBatchMetrics(producer);
+        boolean batched = batches != null;
+        this.batchCount = batched ? batches.getBatchCount() : 0;
+        this.meanBatchSize = batched ? batches.getMeanBatchSize() : 0;
+        this.medianBatchSize = batched ? batches.getBatchSizePercentile(50) : 0;
+        this.p99BatchSize = batched ? batches.getBatchSizePercentile(99) : 0;
+        this.medianLatencyMicros = batched ? PipelineDTO.toMicros(batches.getLatencyPercentileNanos(50)) : 0;
+        this.p99LatencyMicros = batched ? PipelineDTO.toMicros(batches.getLatencyPercentileNanos(99)) : 0;
+        this.maxLatencyMicros = batched ? PipelineDTO.toMicros(batches.getMaxLatencyNanos()) : 0;
+    }
+}
@@ -0,0 +1,44 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Monitor;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+
+/**
+ * An {@link EventEncoder} turns a {@link Pipeline}'s state into the payload of an exported event.<br>
+ * The three kinds of payload match the DTOs describing them :
+ * <ul>
+ *     <li>{@link #encodePipeline(Pipeline)} : a {@link PipelineDTO}</li>
+ *     <li>{@link #encodeSnapshot(long, Pipeline)} : a {@link PipelineSnapshotDTO}</li>
+ *     <li>{@link #encodeDelta(String, long, Monitor)} : a {@link MonitorDTO}</li>
+ * </ul>
+ * Implementations must be thread-safe. See {@link EventEncoders} for the provided ones.
+ */
+public interface EventEncoder {
+
+    /**
+     * @param pipeline the {@link Pipeline} to encode
+     * @return the whole state of the Pipeline
+     */
+    byte[] encodePipeline(Pipeline pipeline);
+
+    /**
+     * @param sequence sequence number of the event
+     * @param pipeline the {@link Pipeline} to encode
+     * @return the whole state of the Pipeline, within a numbered envelope
+     */
+    byte[] encodeSnapshot(long sequence, Pipeline pipeline);
+
+    /**
+     * @param pipelineId ID of the {@link Pipeline} the {@link Monitor} belongs to
+     * @param sequence sequence number of the event
+     * @param monitor the {@link Monitor} that changed
+     * @return the state of the single Monitor
+     */
+    byte[] encodeDelta(String pipelineId, long sequence, Monitor monitor);
+
+    /**
+     * @return TRUE if the payloads are not text, they are then Base64-encoded within
+     * {@link org.springframework.http.codec.ServerSentEvent}s
+     */
+    boolean isBinary();
+}
@@ -0,0 +1,23 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * The provided {@link EventEncoder}s
+ */
+public final class EventEncoders {
+
+    /** Compact JSON, the default */
+    public static final EventEncoder JSON = new JacksonEventEncoder(new JsonFactory(), false);
+    /** Pretty-printed JSON built from DTOs, the historical format */
+    public static final EventEncoder DTO_JSON = new DtoEventEncoder();
+    /** Binary JSON, for internal consumers */
+    public static final EventEncoder SMILE = new JacksonEventEncoder(new SmileFactory(), true);
+    /** Concise Binary Object Representation, for internal consumers */
+    public static final EventEncoder CBOR = new JacksonEventEncoder(new CBORFactory(), true);
+
+    private EventEncoders() {
+    }
+}
@@ -0,0 +1,84 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity circular buffer of timestamped events.<br>
+ * Appending is O(1) and never copies the stored events : once the buffer is full, the oldest event is overwritten.
+ * Events older than a given time can also be dropped from the head of the buffer.<br>
+ * This class is not thread-safe, callers have to synchronize on it.
+ *
+ * @param <T> type of the stored events
+ */
+public class EventRingBuffer<T> {
+
+    private final Object[] events;
+    private final long[] timestamps;
+    /** Index of the oldest event */
+    private int head;
+    /** Number of stored events */
+    private int size;
+
+    public EventRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be strictly positive, got " + capacity);
+        }
+        this.events = new Object[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Appends an event, overwriting the oldest one if the buffer is full.
+     * @param event the event to store
+     * @param timestamp time of the event, in milliseconds
+     * @return the number of events dropped to make room, ie 0 or 1
+     */
+    public int add(T event, long timestamp) {
+        int tail = (this.head + this.size) % this.events.length;
+        this.events[tail] = event;
+        this.timestamps[tail] = timestamp;
+        if (this.size == this.events.length) {
+            this.head = (this.head + 1) % this.events.length;
+            return 1;
+        }
+        this.size++;
+        return 0;
+    }
+
+    /**
+     * Drops all events older than the given time.
+     * @param cutoff time in milliseconds, events stored strictly before it are dropped
+     * @return the number of dropped events
+     */
+    public int evictOlderThan(long cutoff) {
+        int evicted = 0;
+        while (this.size > 0 && this.timestamps[this.head] < cutoff) {
+            this.events[this.head] = null;
+            this.head = (this.head + 1) % this.events.length;
+            this.size--;
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /** @return the stored events, oldest first */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            list.add((T) this.events[(this.head + i) % this.events.length]);
+        }
+        return list;
+    }
+
+    /** @return the number of stored events */
+    public int size() {
+        return this.size;
+    }
+
+    /** @return the maximum number of stored events */
+    public int capacity() {
+        return this.events.length;
+    }
+}
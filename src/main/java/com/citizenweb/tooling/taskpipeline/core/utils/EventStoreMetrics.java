@@ -0,0 +1,21 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the {@link com.citizenweb.tooling.taskpipeline.core.model.DataStreamer} event store size and
+ * evictions.
+ */
+@Value
+public class EventStoreMetrics {
+    /** Number of {@link com.citizenweb.tooling.taskpipeline.core.model.Pipeline}s currently stored */
+    int pipelines;
+    /** Number of events currently stored, all Pipelines together */
+    long storedEvents;
+    /** Number of events dropped so far, because of capacity or age */
+    long evictedEvents;
+    /** Number of Pipelines forgotten so far, completed or idle */
+    long evictedPipelines;
+    /** Number of state changes merged into another event so far */
+    long coalescedChanges;
+}
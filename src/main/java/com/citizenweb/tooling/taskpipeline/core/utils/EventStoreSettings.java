@@ -0,0 +1,61 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Retention rules of the {@link com.citizenweb.tooling.taskpipeline.core.model.DataStreamer} event store, and
+ * behaviour of its live streams.
+ */
+@Getter
+@Builder
+@ToString
+public class EventStoreSettings {
+    /** Full snapshots or deltas */
+    @Builder.Default
+    private final NotificationMode notificationMode = NotificationMode.SNAPSHOT;
+    /** Encodes the events' payload */
+    @Builder.Default
+    @ToString.Exclude
+    private final EventEncoder encoder = EventEncoders.JSON;
+    /**
+     * Changes notified by a {@link com.citizenweb.tooling.taskpipeline.core.model.Pipeline} within this window are
+     * published together : at most one snapshot per Pipeline and per window
+     */
+    @Builder.Default
+    private final Duration coalescingWindow = Duration.ofMillis(100);
+    /** Maximum number of events kept for each {@link com.citizenweb.tooling.taskpipeline.core.model.Pipeline} */
+    @Builder.Default
+    private final int capacityPerPipeline = 256;
+    /** Events older than this are dropped */
+    @Builder.Default
+    private final Duration maxEventAge = Duration.ofMinutes(10);
+    /** A completed Pipeline is forgotten once it has not been notified for this long */
+    @Builder.Default
+    private final Duration completedPipelineGracePeriod = Duration.ofMinutes(1);
+    /** Minimum delay between two sweeps of the whole store */
+    @Builder.Default
+    private final Duration sweepInterval = Duration.ofSeconds(1);
+    /** Number of past events replayed to a late subscriber of a live stream, 0 for none */
+    @Builder.Default
+    private final int liveReplaySize = 16;
+    /** What a live stream does with the events a slow subscriber can't keep up with */
+    @Builder.Default
+    private final OverflowStrategy slowSubscriberStrategy = OverflowStrategy.BUFFER;
+    /** Size of the buffer of each live stream subscriber, with {@link OverflowStrategy#BUFFER} */
+    @Builder.Default
+    private final int subscriberBufferSize = 256;
+    /** Time source */
+    @Builder.Default
+    @ToString.Exclude
+    private final Clock clock = Clock.systemUTC();
+
+    /** @return the default settings */
+    public static EventStoreSettings defaults() {
+        return EventStoreSettings.builder().build();
+    }
+}
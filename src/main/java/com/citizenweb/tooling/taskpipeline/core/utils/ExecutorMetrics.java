@@ -0,0 +1,20 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the activity of a {@link MonitoredExecutor}.
+ */
+@Value
+public class ExecutorMetrics {
+    /** Name of the executor */
+    String name;
+    /** Number of tasks submitted and not started yet */
+    long queued;
+    /** Highest number of queued tasks seen so far */
+    long peakQueued;
+    /** Number of tasks currently running */
+    long active;
+    /** Number of tasks run so far */
+    long completed;
+}
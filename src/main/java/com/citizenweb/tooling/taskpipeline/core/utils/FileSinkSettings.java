@@ -0,0 +1,35 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How a sink {@link com.citizenweb.tooling.taskpipeline.core.model.Task} of
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.FileTasks} writes the elements it receives.
+ */
+@Getter
+@Builder
+@ToString
+public class FileSinkSettings {
+    /** Elements are added at the end of an existing file, rather than replacing it */
+    @Builder.Default
+    private final boolean append = false;
+    /**
+     * Number of elements written by a single gathering write. At most twice as many elements are held by the sink
+     * at once : the ones being written, and the ones being gathered
+     */
+    @Builder.Default
+    private final int gatherSize = 64;
+    /** Bytes written after each element, such as a line separator. NULL for none */
+    @ToString.Exclude
+    private final byte[] separator;
+    /** The content is forced to the storage device before the sink completes */
+    @Builder.Default
+    private final boolean force = false;
+
+    /** @return the default settings */
+    public static FileSinkSettings defaults() {
+        return FileSinkSettings.builder().build();
+    }
+}
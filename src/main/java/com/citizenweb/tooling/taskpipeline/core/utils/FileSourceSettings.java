@@ -0,0 +1,43 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How a file, or the files of a directory, are read by a source
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.Task} of
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.FileTasks}.
+ */
+@Getter
+@Builder
+@ToString
+public class FileSourceSettings {
+    /**
+     * Size of the chunks read, in bytes. A chunk is only read once requested, so the memory held by a source is
+     * this size times the number of chunks buffered downstream, whatever the size of the file
+     */
+    @Builder.Default
+    private final int chunkSize = 256 * 1024;
+    /** Chunks are mapped regions of the file, read by the OS on demand, rather than heap copies */
+    @Builder.Default
+    private final boolean memoryMapped = true;
+    /**
+     * Size of the regions of the file mapped at once, in bytes, the chunks being slices of them. A region is only
+     * unmapped once its chunks are garbage collected : few large regions keep the number of mappings low, whatever
+     * the size of the file
+     */
+    @Builder.Default
+    private final int mappedRegionSize = 64 * 1024 * 1024;
+    /** How the chunks are split into frames */
+    @Builder.Default
+    private final Framing framing = Framing.NONE;
+    /** Files of a directory read, in name order */
+    @Builder.Default
+    private final String glob = "*";
+
+    /** @return the default settings */
+    public static FileSourceSettings defaults() {
+        return FileSourceSettings.builder().build();
+    }
+}
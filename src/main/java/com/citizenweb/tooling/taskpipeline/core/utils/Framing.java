@@ -0,0 +1,166 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How the chunks read from a file are split into frames : none, lines, or fixed-length records.<br>
+ * A frame held within a chunk is a slice of it, nothing is copied. Only a frame spanning two chunks is copied, into
+ * a buffer bounded by {@link #maxFrameLength}.
+ */
+@Getter
+@ToString
+public final class Framing {
+    /** Chunks are emitted as they are read */
+    public static final Framing NONE = new Framing(Mode.NONE, 0, 0);
+    /** Longest line accepted by {@link #lines()} */
+    public static final int DEFAULT_MAX_LINE_LENGTH = 1024 * 1024;
+
+    private enum Mode { NONE, LINES, FIXED_LENGTH }
+
+    @Getter(AccessLevel.NONE)
+    private final Mode mode;
+    /** Size of the records, for fixed-length records */
+    private final int recordLength;
+    /** Longest frame accepted : a longer one fails the flow */
+    private final int maxFrameLength;
+
+    private Framing(Mode mode, int recordLength, int maxFrameLength) {
+        this.mode = mode;
+        this.recordLength = recordLength;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /** @return lines ended by '\n' or "\r\n", without their terminator, of at most {@link #DEFAULT_MAX_LINE_LENGTH} */
+    public static Framing lines() {
+        return lines(DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /** @return lines ended by '\n' or "\r\n", without their terminator, of at most the given number of bytes */
+    public static Framing lines(int maxLineLength) {
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("A line holds at least one byte, not " + maxLineLength);
+        }
+        return new Framing(Mode.LINES, 0, maxLineLength);
+    }
+
+    /** @return records of the given number of bytes, the last one being shorter if the file ends early */
+    public static Framing fixedLength(int recordLength) {
+        if (recordLength < 1) {
+            throw new IllegalArgumentException("A record holds at least one byte, not " + recordLength);
+        }
+        return new Framing(Mode.FIXED_LENGTH, recordLength, recordLength);
+    }
+
+    /**
+     * @param chunks the chunks of a single file, in order
+     * @return the frames of the file
+     */
+    public Flux<ByteBuffer> apply(Flux<ByteBuffer> chunks) {
+        if (this.mode == Mode.NONE) {
+            return chunks;
+        }
+        return Flux.defer(() -> {
+            Splitter splitter = new Splitter();
+            return chunks.concatMapIterable(splitter::split, 2)
+                    .concatWith(Mono.fromSupplier(splitter::remainder));
+        });
+    }
+
+    /** Splits the chunks of a single subscription, keeping the beginning of a frame spanning two chunks */
+    private final class Splitter {
+        /** Beginning of the current frame, copied from the previous chunks. NULL while empty */
+        private ByteBuffer carry;
+
+        List<ByteBuffer> split(ByteBuffer chunk) {
+            List<ByteBuffer> frames = new ArrayList<>();
+            int start = chunk.position();
+            int limit = chunk.limit();
+            if (mode == Mode.FIXED_LENGTH) {
+                if (this.carry != null) {
+                    int end = Math.min(limit, start + recordLength - this.carry.position());
+                    this.keep(chunk, start, end);
+                    start = end;
+                    if (this.carry.position() == recordLength) {
+                        frames.add(this.takeCarry());
+                    }
+                }
+                for (; limit - start >= recordLength; start += recordLength) {
+                    frames.add(slice(chunk, start, start + recordLength));
+                }
+            } else {
+                for (int i = start; i < limit; i++) {
+                    if (chunk.get(i) == '\n') {
+                        ByteBuffer line;
+                        if (this.carry != null) {
+                            this.keep(chunk, start, i);
+                            line = this.takeCarry();
+                        } else {
+                            checkLength(i - start);
+                            line = slice(chunk, start, i);
+                        }
+                        frames.add(withoutCarriageReturn(line));
+                        start = i + 1;
+                    }
+                }
+            }
+            if (start < limit) {
+                this.keep(chunk, start, limit);
+            }
+            return frames;
+        }
+
+        /** @return the last frame, not ended by the end of its chunk, if any */
+        ByteBuffer remainder() {
+            if (this.carry == null) {
+                return null;
+            }
+            ByteBuffer frame = this.takeCarry();
+            return mode == Mode.LINES ? withoutCarriageReturn(frame) : frame;
+        }
+
+        /** Copies the given bytes at the end of the current frame */
+        private void keep(ByteBuffer chunk, int from, int to) {
+            int length = (this.carry == null ? 0 : this.carry.position()) + to - from;
+            checkLength(length);
+            if (this.carry == null || this.carry.remaining() < to - from) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.min(maxFrameLength, Math.max(length, 2 * length)));
+                if (this.carry != null) {
+                    larger.put(this.carry.flip());
+                }
+                this.carry = larger;
+            }
+            this.carry.put(slice(chunk, from, to));
+        }
+
+        /** @return the current frame, handed over : the next one starts in a new buffer */
+        private ByteBuffer takeCarry() {
+            ByteBuffer frame = this.carry.flip();
+            this.carry = null;
+            return frame;
+        }
+    }
+
+    /** A frame longer than {@link #maxFrameLength}, a line missing its terminator for instance, fails the flow */
+    private void checkLength(int length) {
+        if (length > this.maxFrameLength) {
+            throw new IllegalStateException(String.format("Frame longer than %d bytes", this.maxFrameLength));
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer chunk, int from, int to) {
+        return chunk.duplicate().limit(to).position(from).slice();
+    }
+
+    private static ByteBuffer withoutCarriageReturn(ByteBuffer line) {
+        int end = line.limit();
+        return end > line.position() && line.get(end - 1) == '\r' ? line.limit(end - 1) : line;
+    }
+}
@@ -0,0 +1,39 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Value;
+
+/**
+ * One execution of a {@link com.citizenweb.tooling.taskpipeline.core.model.Task}, a
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.WorkGroup} or a
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.Pipeline}, as read back from the
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.ExecutionHistory} store.
+ */
+@Value
+public class HistoryRecord {
+    /** ID of the executing Pipeline */
+    String pipelineId;
+    /** Name of the executing Pipeline */
+    String pipelineName;
+    /** ID of the Monitor of the executed object */
+    String monitorId;
+    /** Name of the executed object */
+    String name;
+    /** Type of the executed object */
+    ProcessingType type;
+    /** Final status of the execution */
+    ProcessingStatus status;
+    /** Rank of a Task within its work path */
+    int rank;
+    /** Starting time, in milliseconds since the epoch */
+    long startTime;
+    /** Ending time, in milliseconds since the epoch */
+    long endTime;
+    /** Duration, in nanoseconds */
+    long durationNanos;
+    /** Time between the first subscription and the first element, in nanoseconds. -1 if none */
+    long timeToFirstElementNanos;
+    /** Time spent with at least one running subscription, in nanoseconds */
+    long activeNanos;
+    /** Number of elements emitted */
+    long elementCount;
+}
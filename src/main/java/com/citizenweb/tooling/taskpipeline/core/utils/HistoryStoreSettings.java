@@ -0,0 +1,36 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Location, segment size and retention rules of the
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.ExecutionHistory} store.
+ */
+@Getter
+@Builder
+@ToString
+public class HistoryStoreSettings {
+    /** Directory of the segment files, created if needed */
+    @Builder.Default
+    private final Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "taskpipeline-history");
+    /** Size of each memory-mapped segment file, in bytes. Once full, a new segment is started */
+    @Builder.Default
+    private final int segmentSize = 4 * 1024 * 1024;
+    /** Maximum number of segments kept : the oldest ones are deleted when a new segment is started */
+    @Builder.Default
+    private final int maxSegments = 16;
+    /** Segments not written for this long are deleted when a new segment is started */
+    @Builder.Default
+    private final Duration maxSegmentAge = Duration.ofDays(7);
+
+    /** @return the default settings */
+    public static HistoryStoreSettings defaults() {
+        return HistoryStoreSettings.builder().build();
+    }
+}
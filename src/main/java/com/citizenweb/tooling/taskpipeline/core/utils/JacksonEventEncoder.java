@@ -0,0 +1,171 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.*;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+/**
+ * {@link EventEncoder} streaming the {@link Monitor}s' fields straight through a {@link JsonGenerator} : no DTO is
+ * built and the {@link JsonFactory} is shared by all events.<br>
+ * The output format only depends on the factory : JSON, Smile, CBOR...
+ */
+public class JacksonEventEncoder implements EventEncoder {
+
+    /** Shared, thread-safe factory of {@link JsonGenerator}s */
+    private final JsonFactory factory;
+    /** Whether the factory produces a binary format */
+    private final boolean binary;
+
+    public JacksonEventEncoder(JsonFactory factory, boolean binary) {
+        this.factory = factory;
+        this.binary = binary;
+    }
+
+    @Override
+    public byte[] encodePipeline(Pipeline pipeline) {
+        return this.encode(generator -> this.writeMonitorable(generator, pipeline));
+    }
+
+    @Override
+    public byte[] encodeSnapshot(long sequence, Pipeline pipeline) {
+        return this.encode(generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("pipelineId", pipeline.getMonitor().getId());
+            generator.writeNumberField("sequence", sequence);
+            generator.writeFieldName("pipeline");
+            this.writeMonitorable(generator, pipeline);
+            generator.writeEndObject();
+        });
+    }
+
+    @Override
+    public byte[] encodeDelta(String pipelineId, long sequence, Monitor monitor) {
+        return this.encode(generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("pipelineId", pipelineId);
+            generator.writeNumberField("sequence", sequence);
+            this.writeMonitorFields(generator, monitor);
+            generator.writeEndObject();
+        });
+    }
+
+    @Override
+    public boolean isBinary() {
+        return this.binary;
+    }
+
+    /** A {@link Monitorable} and, recursively, all the Monitorables it contains */
+    private void writeMonitorable(JsonGenerator generator, Monitorable monitorable) throws IOException {
+        generator.writeStartObject();
+        this.writeMonitorFields(generator, monitorable.getMonitor());
+        generator.writeArrayFieldStart("monitorables");
+        Collection<? extends Monitorable> components = null;
+        if (monitorable instanceof Pipeline) {
+            components = ((Pipeline) monitorable).getWorkGroups();
+        } else if (monitorable instanceof WorkGroup) {
+            components = ((WorkGroup) monitorable).getTasks();
+        }
+        if (components != null) {
+            for (Monitorable component : components) {
+                this.writeMonitorable(generator, component);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("inputs");
+        if (monitorable instanceof Task) {
+            Task task = (Task) monitorable;
+            for (Task predecessor : task.getPredecessors()) {
+                this.writeEdge(generator, predecessor, task);
+            }
+        }
+        generator.writeEndArray();
+        this.writeResultCache(generator, PipelineDTO.resultCacheMetricsOf(monitorable));
+        generator.writeEndObject();
+    }
+
+    /** The statistics of a {@link ResultCache}, same fields as {@link ResultCacheMetrics} */
+    private void writeResultCache(JsonGenerator generator, ResultCacheMetrics metrics) throws IOException {
+        if (metrics == null) {
+            generator.writeNullField("resultCache");
+            return;
+        }
+        generator.writeObjectFieldStart("resultCache");
+        generator.writeNumberField("entries", metrics.getEntries());
+        generator.writeNumberField("weight", metrics.getWeight());
+        generator.writeNumberField("hits", metrics.getHits());
+        generator.writeNumberField("misses", metrics.getMisses());
+        generator.writeNumberField("evictions", metrics.getEvictions());
+        generator.writeNumberField("expirations", metrics.getExpirations());
+        generator.writeNumberField("hitRatio", metrics.getHitRatio());
+        generator.writeEndObject();
+    }
+
+    /** An edge, same fields as an {@link EdgeDTO} */
+    private void writeEdge(JsonGenerator generator, Task producer, Task consumer) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("producerId", producer.getMonitor().getId());
+        generator.writeStringField("producerName", producer.getName());
+        BufferPolicy buffer = consumer.getInputBuffer(producer);
+        BufferMetrics queue = consumer.getBufferMetrics(producer);
+        generator.writeNumberField("bufferCapacity", buffer.getCapacity());
+        generator.writeStringField("overflowStrategy", buffer.getOverflow().name());
+        generator.writeBooleanField("gauged", buffer.isGauged());
+        generator.writeNumberField("occupancy", queue.getOccupancy());
+        generator.writeNumberField("peakOccupancy", queue.getPeakOccupancy());
+        generator.writeNumberField("retainedBytes", queue.getRetainedBytes());
+        generator.writeNumberField("peakRetainedBytes", queue.getPeakRetainedBytes());
+        generator.writeNumberField("droppedCount", queue.getDroppedCount());
+        BatchingPolicy batching = consumer.getInputBatching(producer);
+        BatchMetrics batches = consumer.getBatchMetrics(producer);
+        boolean batched = batches != null;
+        generator.writeStringField("batching", batched ? batching.toString() : "");
+        generator.writeNumberField("batchCount", batched ? batches.getBatchCount() : 0);
+        generator.writeNumberField("meanBatchSize", batched ? batches.getMeanBatchSize() : 0);
+        generator.writeNumberField("medianBatchSize", batched ? batches.getBatchSizePercentile(50) : 0);
+        generator.writeNumberField("p99BatchSize", batched ? batches.getBatchSizePercentile(99) : 0);
+        generator.writeNumberField("medianLatencyMicros",
+                batched ? PipelineDTO.toMicros(batches.getLatencyPercentileNanos(50)) : 0);
+        generator.writeNumberField("p99LatencyMicros",
+                batched ? PipelineDTO.toMicros(batches.getLatencyPercentileNanos(99)) : 0);
+        generator.writeNumberField("maxLatencyMicros",
+                batched ? PipelineDTO.toMicros(batches.getMaxLatencyNanos()) : 0);
+        generator.writeEndObject();
+    }
+
+    private void writeMonitorFields(JsonGenerator generator, Monitor monitor) throws IOException {
+        generator.writeStringField("id", monitor.getId());
+        generator.writeStringField("processingType", monitor.getType().name());
+        generator.writeStringField("processingStatus", monitor.getStatus().name());
+        generator.writeStringField("startTime", PipelineDTO.formatTime(monitor.getStartTime()));
+        generator.writeStringField("endTime", PipelineDTO.formatTime(monitor.getEndTime()));
+        generator.writeNumberField("duration", monitor.getDuration());
+        generator.writeNumberField("rank", monitor.getRank());
+        FlowMetrics flow = monitor.getFlowMetrics();
+        generator.writeNumberField("elementCount", flow.getElementCount());
+        generator.writeNumberField("timeToFirstElementMicros", PipelineDTO.toMicros(flow.getTimeToFirstElementNanos()));
+        generator.writeNumberField("activeTimeMicros", PipelineDTO.toMicros(flow.getActiveNanos()));
+        generator.writeNumberField("throughput", flow.getThroughput());
+        generator.writeStringField("terminalSignal", PipelineDTO.formatSignal(flow.getTerminalSignal()));
+    }
+
+    private byte[] encode(GeneratorConsumer writer) {
+        try (ByteArrayBuilder output = new ByteArrayBuilder(512)) {
+            try (JsonGenerator generator = this.factory.createGenerator(output)) {
+                writer.accept(generator);
+            }
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface GeneratorConsumer {
+        void accept(JsonGenerator generator) throws IOException;
+    }
+}
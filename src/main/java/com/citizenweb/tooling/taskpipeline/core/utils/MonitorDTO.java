@@ -0,0 +1,46 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.FlowMetrics;
+import com.citizenweb.tooling.taskpipeline.core.model.Monitor;
+import lombok.Data;
+
+/**
+ * This <b>DTO</b> carries the state of a single {@link Monitor} that just changed.<br>
+ * The sequence number is given by the wrapping {@link com.citizenweb.tooling.taskpipeline.core.model.Pipeline}'s
+ * events : a client missing a number knows it has to ask for a new {@link PipelineSnapshotDTO}.
+ */
+@Data
+public class MonitorDTO {
+    private final String pipelineId;
+    private final long sequence;
+    private final String id;
+    private final String processingType;
+    private final String processingStatus;
+    private final String startTime;
+    private final String endTime;
+    private final long duration;
+    private final int rank;
+    private final long elementCount;
+    private final long timeToFirstElementMicros;
+    private final long activeTimeMicros;
+    private final double throughput;
+    private final String terminalSignal;
+
+    public MonitorDTO(String pipelineId, long sequence, Monitor monitor) {
+        this.pipelineId = pipelineId;
+        this.sequence = sequence;
+        this.id = monitor.getId();
+        this.processingType = monitor.getType().name();
+        this.processingStatus = monitor.getStatus().name();
+        this.startTime = PipelineDTO.formatTime(monitor.getStartTime());
+        this.endTime = PipelineDTO.formatTime(monitor.getEndTime());
+        this.duration = monitor.getDuration();
+        this.rank = monitor.getRank();
+        FlowMetrics flow = monitor.getFlowMetrics();
+        this.elementCount = flow.getElementCount();
+        this.timeToFirstElementMicros = PipelineDTO.toMicros(flow.getTimeToFirstElementNanos());
+        this.activeTimeMicros = PipelineDTO.toMicros(flow.getActiveNanos());
+        this.throughput = flow.getThroughput();
+        this.terminalSignal = PipelineDTO.formatSignal(flow.getTerminalSignal());
+    }
+}
@@ -0,0 +1,81 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Executor} counting the tasks waiting for a thread, whatever the delegate is : a thread pool, a virtual
+ * thread per task...
+ */
+public class MonitoredExecutor implements Executor {
+
+    /** Name of the executor, for metrics */
+    @Getter
+    private final String name;
+    /** The {@link Executor} actually running the tasks */
+    private final Executor delegate;
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong peakQueued = new AtomicLong();
+    private final AtomicLong active = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    public MonitoredExecutor(String name, Executor delegate) {
+        this.name = Objects.requireNonNull(name, "A MonitoredExecutor has to be named");
+        this.delegate = Objects.requireNonNull(delegate, "A MonitoredExecutor needs a delegate Executor");
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long depth = this.queued.incrementAndGet();
+        this.peakQueued.accumulateAndGet(depth, Math::max);
+        try {
+            this.delegate.execute(() -> {
+                this.queued.decrementAndGet();
+                this.active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    this.active.decrementAndGet();
+                    this.completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            this.queued.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops accepting tasks and waits for the running ones to end, when the delegate is an {@link ExecutorService}.
+     * A task is only counted as completed once it has returned, which may be after the future it completes : the
+     * metrics are only final after a successful shutdown.
+     * @param timeout longest wait for the running tasks
+     * @return TRUE if all the tasks ended in time, FALSE if they did not or if the delegate can't be shut down
+     */
+    public boolean shutdown(Duration timeout) {
+        if (!(this.delegate instanceof ExecutorService)) {
+            return false;
+        }
+        ExecutorService service = (ExecutorService) this.delegate;
+        service.shutdown();
+        try {
+            return service.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** @return a snapshot of the queue depth and of the tasks run */
+    public ExecutorMetrics getMetrics() {
+        return new ExecutorMetrics(this.name, this.queued.get(), this.peakQueued.get(), this.active.get(),
+                this.completed.get());
+    }
+}
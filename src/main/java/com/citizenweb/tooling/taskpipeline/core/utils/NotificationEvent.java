@@ -0,0 +1,27 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the serialization of a state event by the
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.DataStreamer}.
+ */
+@Name("taskpipeline.Notification")
+@Label("Pipeline Notification")
+@Category("TaskPipeline")
+@Description("Serialization of a Pipeline state event")
+public class NotificationEvent extends jdk.jfr.Event {
+    @Label("Pipeline ID")
+    public String pipelineId;
+    @Label("Event Name")
+    public String eventName;
+    @Label("Sequence")
+    public long sequence;
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    public long payloadSize;
+}
@@ -0,0 +1,11 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+/**
+ * Content of the events exported by the {@link com.citizenweb.tooling.taskpipeline.core.model.DataStreamer}
+ */
+public enum NotificationMode {
+    /** Each event is a full {@link PipelineDTO} */
+    SNAPSHOT,
+    /** A first {@link PipelineSnapshotDTO}, then one {@link MonitorDTO} per state change */
+    DELTA
+}
@@ -0,0 +1,95 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factories of the {@link Executor}s orchestrating {@link com.citizenweb.tooling.taskpipeline.core.model.Pipeline}s
+ * and {@link com.citizenweb.tooling.taskpipeline.core.model.WorkGroup}s, so that they never compete with unrelated
+ * code on the common {@link ForkJoinPool}.<br>
+ * The default one is chosen with the {@value #ORCHESTRATION_PROPERTY} system property : {@code shared} (default) or
+ * {@code virtual}.
+ */
+@Slf4j
+public final class OrchestrationExecutors {
+
+    /** System property choosing the default orchestration executor */
+    public static final String ORCHESTRATION_PROPERTY = "taskpipeline.orchestration";
+
+    private OrchestrationExecutors() {
+    }
+
+    /** @return the orchestration {@link Executor} used by the Pipelines which are not given one */
+    public static MonitoredExecutor defaultExecutor() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * A pool of daemon platform threads, created on demand and released after a minute of inactivity.<br>
+     * Orchestration threads only assemble {@link reactor.core.publisher.Flux}es, they never wait for data.
+     * @param name prefix of the threads' names
+     */
+    public static MonitoredExecutor platformThreads(String name) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), daemonThreads(name));
+        return new MonitoredExecutor(name, pool);
+    }
+
+    /**
+     * A pool of a fixed number of daemon platform threads.
+     * @param name prefix of the threads' names
+     * @param threads number of threads
+     */
+    public static MonitoredExecutor fixedPlatformThreads(String name, int threads) {
+        return new MonitoredExecutor(name, Executors.newFixedThreadPool(threads, daemonThreads(name)));
+    }
+
+    /**
+     * A new virtual thread for each {@link com.citizenweb.tooling.taskpipeline.core.model.WorkGroup}, so that
+     * thousands of concurrent Pipelines don't need any pool sizing.
+     * @param name name of the executor, for metrics
+     * @throws UnsupportedOperationException before Java 21
+     */
+    public static MonitoredExecutor virtualThreads(String name) {
+        try {
+            Executor executor = (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new MonitoredExecutor(name, executor);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later, running on Java "
+                    + Runtime.version().feature(), ex);
+        }
+    }
+
+    /** @return TRUE if the running JVM supports virtual threads */
+    public static boolean virtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Created on first use only */
+    private static final class DefaultHolder {
+        private static final MonitoredExecutor INSTANCE = create();
+
+        private static MonitoredExecutor create() {
+            String mode = System.getProperty(ORCHESTRATION_PROPERTY, "shared");
+            if ("virtual".equalsIgnoreCase(mode)) {
+                if (virtualThreadsSupported()) {
+                    return virtualThreads("pipeline-orchestration");
+                }
+                log.warn("Virtual threads are not supported on Java {}, falling back to platform threads",
+                        Runtime.version().feature());
+            }
+            return platformThreads("pipeline-orchestration");
+        }
+    }
+}
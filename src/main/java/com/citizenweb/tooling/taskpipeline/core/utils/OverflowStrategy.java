@@ -0,0 +1,20 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+/**
+ * What to do with elements a slow consumer can't keep up with
+ */
+public enum OverflowStrategy {
+    /**
+     * Hold the producer back until the consumer asks for more : nothing is lost. A live stream of events, which
+     * can't hold back its source, buffers instead
+     */
+    BLOCK,
+    /** Keep them in a bounded buffer, dropping the oldest ones once it is full */
+    BUFFER,
+    /** Drop the newest elements until the consumer asks for more */
+    DROP,
+    /** Keep only the latest element until the consumer asks for more */
+    LATEST,
+    /** Signal an error to the consumer */
+    ERROR
+}
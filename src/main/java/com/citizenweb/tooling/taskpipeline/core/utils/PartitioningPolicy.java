@@ -0,0 +1,93 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import lombok.Getter;
+import lombok.ToString;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * How the input of a partitioned {@link com.citizenweb.tooling.taskpipeline.core.model.Task} is split into rails,
+ * each rail being processed by its own call to the wrapped {@link Operation}, concurrently on the Task's
+ * {@link Scheduler}, before the outputs of all rails are merged.<br>
+ * The Operation has to process each element independently of the other ones, or of the ones of other keys.
+ * <ul>
+ *     <li>round robin : elements are dealt to the rails, outputs are merged as they come</li>
+ *     <li>by key : all the elements of a key go to the same rail, so they keep their order</li>
+ *     <li>ordered : consecutive chunks of elements are dealt to the rails, outputs are merged in the input order</li>
+ * </ul>
+ */
+@Getter
+@ToString
+public final class PartitioningPolicy {
+    /** Number of rails processed concurrently */
+    private final int parallelism;
+    /** Rail of each element, by the hash of its key. NULL for no key */
+    @ToString.Exclude
+    private final Function<Object, ?> key;
+    /** Whether the outputs are merged in the input order */
+    private final boolean ordered;
+    /** Number of consecutive elements processed together by an ordered rail */
+    private final int chunkSize;
+
+    private PartitioningPolicy(int parallelism, Function<Object, ?> key, boolean ordered, int chunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("A partitioned Task needs at least one rail, not " + parallelism);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("A chunk holds at least one element, not " + chunkSize);
+        }
+        this.parallelism = parallelism;
+        this.key = key;
+        this.ordered = ordered;
+        this.chunkSize = chunkSize;
+    }
+
+    /** @return elements dealt to the given number of rails, outputs merged as they come */
+    public static PartitioningPolicy roundRobin(int parallelism) {
+        return new PartitioningPolicy(parallelism, null, false, 1);
+    }
+
+    /**
+     * @param key extracts the partition key of an element
+     * @return elements dealt to the given number of rails by the hash of their key, outputs merged as they come
+     */
+    public static PartitioningPolicy byKey(int parallelism, Function<Object, ?> key) {
+        return new PartitioningPolicy(parallelism, Objects.requireNonNull(key, "A partition key is required"),
+                false, 1);
+    }
+
+    /**
+     * @param chunkSize number of consecutive elements processed together, the larger the cheaper the ordering
+     * @return consecutive chunks of elements processed by the given number of rails, outputs merged in the input
+     * order
+     */
+    public static PartitioningPolicy ordered(int parallelism, int chunkSize) {
+        return new PartitioningPolicy(parallelism, null, true, chunkSize);
+    }
+
+    /**
+     * @param operation called once per rail, or per chunk when ordered
+     * @param input the single input of the partitioned Task
+     * @param scheduler runs the rails
+     * @return the merged outputs of all rails
+     */
+    public Flux<?> apply(Operation operation, Flux<?> input, Scheduler scheduler) {
+        if (this.ordered) {
+            return input.buffer(this.chunkSize)
+                    .flatMapSequential(chunk -> Flux.defer(() -> operation.process(Flux.fromIterable(chunk)))
+                            .subscribeOn(scheduler), this.parallelism);
+        }
+        if (this.key != null) {
+            return input.groupBy(element -> Math.floorMod(Objects.hashCode(this.key.apply(element)), this.parallelism))
+                    .flatMap(rail -> operation.process(rail.publishOn(scheduler)), this.parallelism);
+        }
+        return input.parallel(this.parallelism)
+                .runOn(scheduler)
+                .groups()
+                .flatMap(rail -> operation.process(rail), this.parallelism);
+    }
+}
@@ -1,16 +1,25 @@
 package com.citizenweb.tooling.taskpipeline.core.utils;
 
+import com.citizenweb.tooling.taskpipeline.core.model.FlowMetrics;
 import com.citizenweb.tooling.taskpipeline.core.model.Monitor;
 import com.citizenweb.tooling.taskpipeline.core.model.Monitorable;
 import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.ResultCache;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
 import com.citizenweb.tooling.taskpipeline.core.model.WorkGroup;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.springframework.util.CollectionUtils;
+import reactor.core.publisher.SignalType;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -21,7 +30,9 @@ import java.util.stream.Collectors;
  *     <li>Pipeline contains a collection of {@link WorkGroup}s</li>
  *     <li>Each {@link WorkGroup} contains a collection of {@link com.citizenweb.tooling.taskpipeline.core.model.Task}s</li>
  * </ul>
- * A PipelineDTO contains all fields from the Monitor plus a collection of MonitorDTO.
+ * A PipelineDTO contains all fields from the Monitor, its {@link FlowMetrics}, plus a collection of MonitorDTO.<br>
+ * The DTO of a Task also describes its inputs : queues and batches. The DTO of a Pipeline also carries the
+ * statistics of its {@link ResultCache}.
  */
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -34,7 +45,16 @@ public class PipelineDTO {
     private final String endTime;
     private final long duration;
     private final int rank;
+    private final long elementCount;
+    private final long timeToFirstElementMicros;
+    private final long activeTimeMicros;
+    private final double throughput;
+    private final String terminalSignal;
     private final Set<PipelineDTO>  monitorables;
+    /** Inputs of a {@link Task}, one per predecessor, empty for any other {@link Monitorable} */
+    private final List<EdgeDTO> inputs;
+    /** Size and statistics of the {@link ResultCache} of a {@link Pipeline}, NULL without cache */
+    private final ResultCacheMetrics resultCache;
 
     public PipelineDTO(Monitorable monitorable) {
         Set<PipelineDTO> components = Collections.emptySet();
@@ -42,12 +62,16 @@ public class PipelineDTO {
         this.id = monitor.getId();
         this.processingType = monitor.getType().name();
         this.processingStatus = monitor.getStatus().name();
-        this.startTime = monitor.getStartTime() != null ?
-                monitor.getStartTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "";
-        this.endTime = monitor.getEndTime() != null ?
-                monitor.getEndTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "";
+        this.startTime = formatTime(monitor.getStartTime());
+        this.endTime = formatTime(monitor.getEndTime());
         this.duration = monitor.getDuration();
         this.rank = monitor.getRank();
+        FlowMetrics flow = monitor.getFlowMetrics();
+        this.elementCount = flow.getElementCount();
+        this.timeToFirstElementMicros = toMicros(flow.getTimeToFirstElementNanos());
+        this.activeTimeMicros = toMicros(flow.getActiveNanos());
+        this.throughput = flow.getThroughput();
+        this.terminalSignal = formatSignal(flow.getTerminalSignal());
         /* Here, we're building the Set<MonitorDTO>  monitorables in a recursive way */
         if (monitorable instanceof Pipeline) {
             var workGroups = ((Pipeline) monitorable).getWorkGroups();
@@ -66,5 +90,36 @@ public class PipelineDTO {
             }
         }
         this.monitorables = components;
+        this.inputs = monitorable instanceof Task ? edgesTo((Task) monitorable) : Collections.emptyList();
+        this.resultCache = resultCacheMetricsOf(monitorable);
+    }
+
+    /** @return the statistics of the {@link ResultCache} of a {@link Pipeline}, NULL for no cache */
+    static ResultCacheMetrics resultCacheMetricsOf(Monitorable monitorable) {
+        ResultCache cache = monitorable instanceof Pipeline ? ((Pipeline) monitorable).getResultCache() : null;
+        return cache != null ? cache.getMetrics() : null;
+    }
+
+    /** @return the edges leading to the {@link Task} */
+    private static List<EdgeDTO> edgesTo(Task task) {
+        return task.getPredecessors().stream()
+                .map(predecessor -> new EdgeDTO(predecessor, task))
+                .collect(Collectors.toList());
+    }
+
+    /** Formats a {@link Monitor}'s time, an empty String standing for a time not reached yet */
+    static String formatTime(long epochMillis) {
+        return epochMillis != 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "";
+    }
+
+    /** Nanoseconds to microseconds, keeping -1 for a time not reached yet */
+    static long toMicros(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /** Formats a {@link FlowMetrics#getTerminalSignal()}, an empty String standing for a flow not ended yet */
+    static String formatSignal(SignalType signal) {
+        return signal != null ? signal.name() : "";
     }
 }
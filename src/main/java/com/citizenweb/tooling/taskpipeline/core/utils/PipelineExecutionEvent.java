@@ -0,0 +1,25 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering {@link com.citizenweb.tooling.taskpipeline.core.model.Pipeline#execute()} : the optimization
+ * of the {@link com.citizenweb.tooling.taskpipeline.core.model.WorkGroup}s and their launch.
+ */
+@Name("taskpipeline.PipelineExecution")
+@Label("Pipeline Execution")
+@Category("TaskPipeline")
+@Description("Optimization and launch of a Pipeline")
+public class PipelineExecutionEvent extends jdk.jfr.Event {
+    @Label("Pipeline ID")
+    public String pipelineId;
+    @Label("Pipeline Name")
+    public String pipelineName;
+    @Label("Tasks")
+    public int tasks;
+    @Label("WorkGroups")
+    public int workGroups;
+}
@@ -0,0 +1,21 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import lombok.Data;
+
+/**
+ * Full state of a {@link Pipeline}, sent first and then each time a client asks for a resync.<br>
+ * Following {@link MonitorDTO}s are numbered after its sequence number.
+ */
+@Data
+public class PipelineSnapshotDTO {
+    private final String pipelineId;
+    private final long sequence;
+    private final PipelineDTO pipeline;
+
+    public PipelineSnapshotDTO(long sequence, Pipeline pipeline) {
+        this.pipelineId = pipeline.getMonitor().getId();
+        this.sequence = sequence;
+        this.pipeline = new PipelineDTO(pipeline);
+    }
+}
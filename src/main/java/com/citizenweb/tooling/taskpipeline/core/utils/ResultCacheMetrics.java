@@ -0,0 +1,28 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the size and statistics of a {@link com.citizenweb.tooling.taskpipeline.core.model.ResultCache}.
+ */
+@Value
+public class ResultCacheMetrics {
+    /** Number of outputs currently cached, completed or still being computed */
+    int entries;
+    /** Number of elements currently cached, completed outputs only */
+    long weight;
+    /** Number of lookups served by the cache so far, including the ones sharing an output being computed */
+    long hits;
+    /** Number of lookups that found no output so far */
+    long misses;
+    /** Number of outputs evicted so far, because of the weight or entries bounds */
+    long evictions;
+    /** Number of outputs dropped so far, because of their time to live */
+    long expirations;
+
+    /** @return the share of the lookups served by the cache, 0 without any lookup */
+    public double getHitRatio() {
+        long lookups = this.hits + this.misses;
+        return lookups == 0 ? 0 : (double) this.hits / lookups;
+    }
+}
@@ -0,0 +1,38 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Expiration and eviction rules of a {@link com.citizenweb.tooling.taskpipeline.core.model.ResultCache}.
+ */
+@Getter
+@Builder
+@ToString
+public class ResultCacheSettings {
+    /** A completed output is dropped once it is older than this */
+    @Builder.Default
+    private final Duration timeToLive = Duration.ofMinutes(10);
+    /**
+     * Maximum number of elements kept, all outputs together : the least recently used outputs are evicted
+     * beyond
+     */
+    @Builder.Default
+    private final long maxWeight = 1_000_000;
+    /** Maximum number of outputs kept : the least recently used ones are evicted beyond */
+    @Builder.Default
+    private final int maxEntries = 1_024;
+    /** Time source */
+    @Builder.Default
+    @ToString.Exclude
+    private final Clock clock = Clock.systemUTC();
+
+    /** @return the default settings */
+    public static ResultCacheSettings defaults() {
+        return ResultCacheSettings.builder().build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the assembly of the output {@link reactor.core.publisher.Flux} of a
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.Task}, and its injection into the successors.
+ */
+@Name("taskpipeline.TaskAssembly")
+@Label("Task Assembly")
+@Category("TaskPipeline")
+@Description("Assembly of the output Flux of a Task")
+public class TaskAssemblyEvent extends jdk.jfr.Event {
+    @Label("Pipeline ID")
+    public String pipelineId;
+    @Label("Task ID")
+    public String taskId;
+    @Label("Task Name")
+    public String taskName;
+    @Label("Execution Profile")
+    public String executionProfile;
+}
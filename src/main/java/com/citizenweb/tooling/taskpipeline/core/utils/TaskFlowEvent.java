@@ -0,0 +1,34 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed when the data of a {@link com.citizenweb.tooling.taskpipeline.core.model.Task} stops
+ * flowing, carrying its {@link com.citizenweb.tooling.taskpipeline.core.model.FlowMetrics}.
+ */
+@Name("taskpipeline.TaskFlow")
+@Label("Task Flow")
+@Category("TaskPipeline")
+@Description("Data flowing out of a Task, from its first subscription to the end of the last one")
+public class TaskFlowEvent extends jdk.jfr.Event {
+    @Label("Pipeline ID")
+    public String pipelineId;
+    @Label("Task ID")
+    public String taskId;
+    @Label("Task Name")
+    public String taskName;
+    @Label("Elements")
+    public long elements;
+    @Label("Time To First Element")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToFirstElement;
+    @Label("Active Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long activeTime;
+    @Label("Terminal Signal")
+    public String terminalSignal;
+}
@@ -2,24 +2,235 @@ package com.citizenweb.tooling.taskpipeline.core.utils;
 
 import com.citizenweb.tooling.taskpipeline.core.model.Task;
 
-import java.util.Set;
+import java.util.*;
 
 public class TaskUtils {
 
     /**
-     * Recursive function used to compute the whole workgroup associated to a terminal {@link Task}.<br>
+     * Computes the whole workgroup associated to a terminal {@link Task}.<br>
+     * The graph is walked iteratively and each {@link Task} is visited once, whatever the number of paths leading
+     * to it, so deep chains and diamond-shaped graphs are handled in O(V+E).<br>
+     * The rank of each Task is its longest distance to the terminal Task, written into its {@link
+     * com.citizenweb.tooling.taskpipeline.core.model.Monitor}.
      *
      * @param workgroup the workgroup to build
      * @param task the reference {@link Task}
      * @param rank position of the task into the work workgroup (default : terminal task = 1)
      */
     public static void buildWorkGroupFromTerminalToInitial(Set<Task> workgroup, Task task, int rank) {
-        int taskRank = rank + 1;
-        task.getMonitor().setRank(taskRank);
-        workgroup.add(task);
-        if (!Task.isInitialTask.test(task)) {
-            task.getPredecessors().forEach(predecessor -> buildWorkGroupFromTerminalToInitial(workgroup, predecessor, taskRank));
+        Set<Task> ancestors = collectAncestors(task);
+        rankTasks(ancestors, rank + 1, null, true);
+        workgroup.addAll(ancestors);
+    }
+
+    /**
+     * Iterative walk from a {@link Task} to all the initial Tasks it depends on.
+     *
+     * @param task the reference {@link Task}
+     * @return the Task itself and all its ancestors, each one only once
+     */
+    public static Set<Task> collectAncestors(Task task) {
+        Set<Task> visited = new LinkedHashSet<>();
+        collectAncestors(List.of(task), visited);
+        return visited;
+    }
+
+    /**
+     * Iterative walk from several {@link Task}s at once : a Task already visited is never walked through again.
+     *
+     * @param tasks the reference {@link Task}s
+     * @param visited collects the Tasks and all their ancestors
+     */
+    private static void collectAncestors(Collection<Task> tasks, Set<Task> visited) {
+        Deque<Task> toVisit = new ArrayDeque<>(tasks);
+        while (!toVisit.isEmpty()) {
+            Task current = toVisit.pop();
+            if (visited.add(current)) {
+                current.getPredecessors().forEach(toVisit::push);
+            }
         }
     }
 
+    /**
+     * Ranks all the given {@link Task}s, plus their ancestors, in a single O(V+E) pass : terminal Tasks are rank 1,
+     * any other Task is ranked after its longest distance to a terminal Task.<br>
+     * Ranks are computed once for the whole graph, so that all the work paths sharing a Task agree on its rank.
+     * The Tasks themselves are left untouched, so that several graphs sharing them can be ranked at once.
+     *
+     * @param tasks the {@link Task}s to rank
+     * @return the rank of each {@link Task}
+     */
+    public static Map<Task, Integer> rankTasks(Collection<Task> tasks) {
+        Set<Task> graph = new HashSet<>(tasks.size() * 2);
+        collectAncestors(tasks, graph);
+        return rankTasks(graph, 1, null, false);
+    }
+
+    /**
+     * Ranks the given terminal {@link Task}s and their ancestors, and collects the work path of each terminal Task,
+     * in the same backward pass as {@link #rankTasks(Collection)}.<br>
+     * Each Task is walked once, whatever the number of terminal Tasks sharing it : it inherits the terminal Tasks
+     * reached through its successors instead of being walked again from each of them.<br>
+     * The ranks are written into the Tasks' {@link com.citizenweb.tooling.taskpipeline.core.model.Monitor}s, as the
+     * {@link com.citizenweb.tooling.taskpipeline.core.model.WorkGroupOptimizer#DEFAULT_OPTIMIZER} always did.
+     *
+     * @param terminalTasks Tasks without successor
+     * @return each terminal {@link Task}, with itself and all its ancestors
+     */
+    public static Map<Task, Set<Task>> collectWorkPaths(Collection<Task> terminalTasks) {
+        Set<Task> graph = new HashSet<>(terminalTasks.size() * 2);
+        collectAncestors(terminalTasks, graph);
+        Map<Task, Set<Task>> workPaths = new LinkedHashMap<>(terminalTasks.size() * 2);
+        terminalTasks.forEach(task -> workPaths.put(task, new LinkedHashSet<>()));
+        rankTasks(graph, 1, workPaths, true);
+        return workPaths;
+    }
+
+    /**
+     * Kahn's algorithm walking backward, from the {@link Task}s without successor in the graph up to the initial
+     * Tasks : a Task is ranked once all of its successors are.<br>
+     * When work paths are collected, each Task also gets the set of the Tasks without successor it leads to, as the
+     * union of the ones of its successors.
+     *
+     * @param graph a set of {@link Task}s closed under predecessors
+     * @param sinkRank the rank given to Tasks without successor in the graph
+     * @param workPaths the work path of each Task without successor, filled by the walk. NULL to only rank
+     * @param writeRanks TRUE to also write the ranks into the Tasks' own Monitors
+     * @return the rank of each {@link Task}
+     */
+    private static Map<Task, Integer> rankTasks(Set<Task> graph, int sinkRank, Map<Task, Set<Task>> workPaths,
+                                                boolean writeRanks) {
+        Map<Task, Integer> ranks = new HashMap<>(graph.size() * 2);
+        Map<Task, Integer> pendingSuccessors = new HashMap<>(graph.size() * 2);
+        Deque<Task> ranked = new ArrayDeque<>();
+        List<Set<Task>> paths = workPaths == null ? null : new ArrayList<>(workPaths.size());
+        Map<Task, BitSet> reachedPaths = workPaths == null ? null : new HashMap<>(graph.size() * 2);
+        for (Task task : graph) {
+            int successorsInGraph = 0;
+            for (Task successor : task.getSuccessors()) {
+                if (graph.contains(successor)) {
+                    successorsInGraph++;
+                }
+            }
+            if (successorsInGraph == 0) {
+                ranks.put(task, sinkRank);
+                ranked.push(task);
+                if (workPaths != null) {
+                    BitSet reached = new BitSet();
+                    reached.set(paths.size());
+                    reachedPaths.put(task, reached);
+                    paths.add(workPaths.computeIfAbsent(task, t -> new LinkedHashSet<>()));
+                }
+            } else {
+                pendingSuccessors.put(task, successorsInGraph);
+            }
+        }
+        while (!ranked.isEmpty()) {
+            Task current = ranked.pop();
+            int rank = ranks.get(current);
+            if (writeRanks) {
+                current.getMonitor().setRank(rank);
+            }
+            BitSet reached = workPaths == null ? null : reachedPaths.remove(current);
+            if (reached != null) {
+                reached.stream().forEach(path -> paths.get(path).add(current));
+            }
+            int predecessorRank = rank + 1;
+            for (Task predecessor : current.getPredecessors()) {
+                ranks.merge(predecessor, predecessorRank, Math::max);
+                if (reached != null) {
+                    reachedPaths.computeIfAbsent(predecessor, p -> new BitSet()).or(reached);
+                }
+                if (pendingSuccessors.merge(predecessor, -1, Integer::sum) == 0) {
+                    ranked.push(predecessor);
+                }
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Splits the given {@link Task}s into weakly connected components : two Tasks linked by a predecessor or a
+     * successor relationship, in either direction, belong to the same component.<br>
+     * Links to Tasks outside of the given collection are ignored. Each Task belongs to exactly one component.
+     *
+     * @param tasks the {@link Task}s to split
+     * @return the components, in an O(V+E) walk
+     */
+    public static List<Set<Task>> connectedComponents(Collection<Task> tasks) {
+        Set<Task> graph = new HashSet<>(tasks);
+        Set<Task> visited = new HashSet<>(graph.size() * 2);
+        List<Set<Task>> components = new ArrayList<>();
+        for (Task task : tasks) {
+            if (!visited.add(task)) {
+                continue;
+            }
+            Set<Task> component = new LinkedHashSet<>();
+            Deque<Task> toVisit = new ArrayDeque<>();
+            toVisit.push(task);
+            while (!toVisit.isEmpty()) {
+                Task current = toVisit.pop();
+                component.add(current);
+                for (Task neighbour : current.getPredecessors()) {
+                    if (graph.contains(neighbour) && visited.add(neighbour)) {
+                        toVisit.push(neighbour);
+                    }
+                }
+                for (Task neighbour : current.getSuccessors()) {
+                    if (graph.contains(neighbour) && visited.add(neighbour)) {
+                        toVisit.push(neighbour);
+                    }
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * Kahn's algorithm walking forward : initial {@link Task}s are level 0, any other Task is one level after its
+     * deepest predecessor. A Task only depends on Tasks of the previous levels.<br>
+     * Predecessors outside of the given collection are ignored.
+     *
+     * @param tasks the {@link Task}s to sort
+     * @return the {@link Task}s of each level, from the initial ones to the terminal ones
+     */
+    public static List<Set<Task>> levelTasks(Collection<Task> tasks) {
+        Set<Task> graph = new HashSet<>(tasks);
+        Map<Task, Integer> pendingPredecessors = new HashMap<>(graph.size() * 2);
+        List<Set<Task>> levels = new ArrayList<>();
+        Set<Task> currentLevel = new LinkedHashSet<>();
+        for (Task task : graph) {
+            int predecessorsInGraph = 0;
+            for (Task predecessor : task.getPredecessors()) {
+                if (graph.contains(predecessor)) {
+                    predecessorsInGraph++;
+                }
+            }
+            if (predecessorsInGraph == 0) {
+                currentLevel.add(task);
+            } else {
+                pendingPredecessors.put(task, predecessorsInGraph);
+            }
+        }
+        while (!currentLevel.isEmpty()) {
+            levels.add(Collections.unmodifiableSet(currentLevel));
+            Set<Task> nextLevel = new LinkedHashSet<>();
+            for (Task task : currentLevel) {
+                for (Task successor : task.getSuccessors()) {
+                    if (graph.contains(successor) && lastPredecessorLeveled(pendingPredecessors, successor)) {
+                        nextLevel.add(successor);
+                    }
+                }
+            }
+            currentLevel = nextLevel;
+        }
+        return levels;
+    }
+
+    /** @return TRUE once the last pending predecessor of the {@link Task} has been leveled */
+    private static boolean lastPredecessorLeveled(Map<Task, Integer> pendingPredecessors, Task task) {
+        return pendingPredecessors.merge(task, -1, Integer::sum) == 0;
+    }
+
 }
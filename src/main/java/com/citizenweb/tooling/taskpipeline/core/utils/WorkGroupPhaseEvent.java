@@ -0,0 +1,27 @@
+package com.citizenweb.tooling.taskpipeline.core.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering one of the steps of
+ * {@link com.citizenweb.tooling.taskpipeline.core.model.WorkGroup#execute()} : STARTING, INTERMEDIATE or FINAL.
+ */
+@Name("taskpipeline.WorkGroupPhase")
+@Label("WorkGroup Phase")
+@Category("TaskPipeline")
+@Description("A step of a WorkGroup execution")
+public class WorkGroupPhaseEvent extends jdk.jfr.Event {
+    @Label("Pipeline ID")
+    public String pipelineId;
+    @Label("WorkGroup ID")
+    public String workGroupId;
+    @Label("WorkGroup Name")
+    public String workGroupName;
+    @Label("Phase")
+    public String phase;
+    @Label("Tasks Assembled")
+    public int tasks;
+}
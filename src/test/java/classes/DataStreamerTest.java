@@ -0,0 +1,276 @@
+package classes;
+
+import com.citizenweb.tooling.taskpipeline.core.model.DataStreamer;
+import com.citizenweb.tooling.taskpipeline.core.model.Notifier;
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.StateNotifier;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.utils.EventStoreMetrics;
+import com.citizenweb.tooling.taskpipeline.core.utils.EventStoreSettings;
+import com.citizenweb.tooling.taskpipeline.core.utils.NotificationMode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import data.DataForTests;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class DataStreamerTest {
+
+    static { DataForTests.initData(); }
+    private static final Map<String, Operation> operationsMap = DataForTests.getData();
+
+    /** Each test gets a store of its own, and a clock of its own for the store to tell the time */
+    private final DataStreamer streamer = DataStreamer.newInstance();
+    private final MutableClock clock = new MutableClock();
+
+    @AfterEach
+    void disposeStreamer() {
+        streamer.dispose();
+    }
+
+    @Test
+    void eventStoreIsBoundedAndEvictsCompletedPipelines() {
+        streamer.configure(EventStoreSettings.builder()
+                .capacityPerPipeline(4)
+                .maxEventAge(Duration.ofMinutes(5))
+                .completedPipelineGracePeriod(Duration.ofMinutes(1))
+                .sweepInterval(Duration.ofHours(1))
+                .clock(clock)
+                .build());
+        Pipeline pipeline = this.newPipeline();
+        for (int i = 0; i < 10; i++) {
+            streamer.triggerNotification(pipeline);
+        }
+        StepVerifier.create(streamer.exportHistory(pipeline))
+                .expectNextCount(4)
+                .verifyComplete();
+        EventStoreMetrics afterNotifications = streamer.getMetrics();
+        Assertions.assertEquals(1, afterNotifications.getPipelines());
+        Assertions.assertEquals(4, afterNotifications.getStoredEvents());
+        Assertions.assertEquals(6, afterNotifications.getEvictedEvents());
+
+        /* A running pipeline only loses its old events */
+        clock.advance(Duration.ofMinutes(3));
+        streamer.triggerNotification(pipeline);
+        clock.advance(Duration.ofMinutes(3));
+        streamer.evictExpired();
+        EventStoreMetrics afterAging = streamer.getMetrics();
+        Assertions.assertEquals(afterNotifications.getPipelines(), afterAging.getPipelines());
+        Assertions.assertEquals(1, streamer.exportHistory(pipeline).count().block());
+        Assertions.assertEquals(afterNotifications.getEvictedEvents() + 4, afterAging.getEvictedEvents());
+        Assertions.assertEquals(1, afterAging.getStoredEvents());
+
+        /* A pipeline that never completes is forgotten once it has no event left */
+        clock.advance(Duration.ofMinutes(10));
+        streamer.evictExpired();
+        EventStoreMetrics afterIdling = streamer.getMetrics();
+        Assertions.assertEquals(afterAging.getPipelines() - 1, afterIdling.getPipelines());
+        Assertions.assertEquals(afterAging.getEvictedPipelines() + 1, afterIdling.getEvictedPipelines());
+        Assertions.assertEquals(0, afterIdling.getStoredEvents());
+
+        /* A completed pipeline is forgotten after the grace period */
+        pipeline.getMonitor().statusToRunning();
+        pipeline.getMonitor().statusToDone();
+        streamer.triggerNotification(pipeline);
+        streamer.evictExpired();
+        Assertions.assertEquals(afterIdling.getPipelines() + 1, streamer.getMetrics().getPipelines());
+        clock.advance(Duration.ofMinutes(2));
+        streamer.evictExpired();
+        EventStoreMetrics afterGrace = streamer.getMetrics();
+        Assertions.assertEquals(afterIdling.getPipelines(), afterGrace.getPipelines());
+        Assertions.assertEquals(afterIdling.getEvictedPipelines() + 1, afterGrace.getEvictedPipelines());
+    }
+
+    @Test
+    void liveStreamIsSharedAndReplaysLastEvents() {
+        streamer.configure(EventStoreSettings.builder()
+                .liveReplaySize(2)
+                .completedPipelineGracePeriod(Duration.ofMinutes(1))
+                .sweepInterval(Duration.ofHours(1))
+                .clock(clock)
+                .build());
+        Pipeline pipeline = this.newPipeline();
+        String pipelineId = pipeline.getMonitor().getId();
+        List<String> firstSubscriber = new CopyOnWriteArrayList<>();
+        List<String> secondSubscriber = new CopyOnWriteArrayList<>();
+        List<String> allPipelines = new CopyOnWriteArrayList<>();
+        Assertions.assertEquals(0, streamer.exportData(pipeline).count().block(), "Nothing notified yet");
+        Assertions.assertEquals(0, streamer.getMetrics().getPipelines(), "Exporting stores nothing");
+        for (int i = 0; i < 3; i++) {
+            streamer.triggerNotification(pipeline);
+        }
+        streamer.exportData(pipeline).subscribe(event -> firstSubscriber.add(event.id()));
+        streamer.exportData(pipelineId).subscribe(event -> secondSubscriber.add(event.id()));
+        streamer.exportData().subscribe(event -> allPipelines.add(event.id()));
+        for (int i = 0; i < 3; i++) {
+            streamer.triggerNotification(pipeline);
+        }
+        /* The last 2 events, then the new ones */
+        Assertions.assertEquals(5, firstSubscriber.size());
+        Assertions.assertEquals(firstSubscriber, secondSubscriber);
+        Assertions.assertEquals(firstSubscriber, allPipelines);
+
+        /* A late subscriber only gets the last events, then the stream completes with the pipeline's eviction */
+        pipeline.getMonitor().statusToRunning();
+        pipeline.getMonitor().statusToDone();
+        streamer.triggerNotification(pipeline);
+        StepVerifier.create(streamer.exportData(pipelineId))
+                .expectNextCount(2)
+                .then(() -> {
+                    clock.advance(Duration.ofMinutes(2));
+                    streamer.evictExpired();
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        Assertions.assertEquals(0, streamer.exportData("unknown pipeline").count().block());
+    }
+
+    @Test
+    void deltaModeSendsASnapshotThenNumberedMonitorChanges() throws Exception {
+        streamer.configure(EventStoreSettings.builder()
+                .notificationMode(NotificationMode.DELTA)
+                .clock(clock)
+                .build());
+        Task t1 = new Task("Count to 10", operationsMap.get("Count to 10"), Collections.emptyList());
+        Pipeline pipeline = new Pipeline("Pipeline", Set.of(t1));
+        streamer.triggerNotification(pipeline);
+        t1.getMonitor().statusToRunning();
+        streamer.triggerNotification(pipeline, t1.getMonitor());
+        t1.getMonitor().statusToDone();
+        streamer.triggerNotification(pipeline, t1.getMonitor());
+        Assertions.assertTrue(streamer.resync(pipeline.getMonitor().getId()));
+        Assertions.assertFalse(streamer.resync("unknown pipeline"));
+
+        List<ServerSentEvent<String>> events = streamer.exportHistory(pipeline).collectList().block();
+        Assertions.assertNotNull(events);
+        Assertions.assertEquals(List.of("Snapshot", "Delta", "Delta", "Snapshot"),
+                events.stream().map(ServerSentEvent::event).collect(Collectors.toList()));
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < events.size(); i++) {
+            Assertions.assertEquals(i, mapper.readTree(events.get(i).data()).get("sequence").asLong());
+        }
+        JsonNode lastDelta = mapper.readTree(events.get(2).data());
+        Assertions.assertEquals(t1.getMonitor().getId(), lastDelta.get("id").asText());
+        Assertions.assertEquals("DONE", lastDelta.get("processingStatus").asText());
+        Assertions.assertNull(lastDelta.get("monitorables"));
+    }
+
+    @Test
+    void submittedChangesAreCoalescedOffTheTaskThreads() throws Exception {
+        streamer.configure(EventStoreSettings.builder()
+                .coalescingWindow(Duration.ofHours(1))
+                .clock(clock)
+                .build());
+        Pipeline pipeline = this.newPipeline();
+        Notifier notifier = new StateNotifier(pipeline, streamer);
+        ExecutorService taskThreads = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 100; i++) {
+            taskThreads.execute(() -> notifier.notifyStateChange(pipeline.getMonitor()));
+        }
+        taskThreads.shutdown();
+        Assertions.assertTrue(taskThreads.awaitTermination(5, TimeUnit.SECONDS));
+        /* Nothing is published before the end of the window */
+        Assertions.assertEquals(0, streamer.exportHistory(pipeline).count().block());
+        streamer.flush();
+        Assertions.assertEquals(1, streamer.exportHistory(pipeline).count().block());
+        Assertions.assertEquals(99, streamer.getMetrics().getCoalescedChanges());
+
+        /* Without flushing, the background publisher sends the changes once the window is over */
+        streamer.configure(EventStoreSettings.builder()
+                .coalescingWindow(Duration.ofMillis(20))
+                .clock(clock)
+                .build());
+        StepVerifier.create(streamer.exportData(pipeline))
+                .then(() -> notifier.notifyStateChange(pipeline.getMonitor()))
+                .expectNextCount(2)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void evictionNeverLosesTheEventsNotifiedMeanwhile() throws Exception {
+        streamer.configure(EventStoreSettings.builder()
+                .completedPipelineGracePeriod(Duration.ZERO)
+                .sweepInterval(Duration.ofHours(1))
+                .clock(clock)
+                .build());
+        List<Pipeline> pipelines = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Pipeline pipeline = this.newPipeline();
+            pipeline.getMonitor().statusToRunning();
+            pipeline.getMonitor().statusToDone();
+            pipelines.add(pipeline);
+        }
+        ExecutorService notifiers = Executors.newFixedThreadPool(4);
+        try {
+            for (int thread = 0; thread < 4; thread++) {
+                notifiers.execute(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        streamer.triggerNotification(pipelines.get(i % pipelines.size()));
+                    }
+                });
+            }
+            /* Completed pipelines are forgotten as soon as the clock moves, while they keep being notified */
+            notifiers.shutdown();
+            while (!notifiers.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+                clock.advance(Duration.ofMillis(1));
+                streamer.evictExpired();
+            }
+        } finally {
+            notifiers.shutdownNow();
+        }
+        EventStoreMetrics metrics = streamer.getMetrics();
+        long stillStored = pipelines.stream().mapToLong(pipeline -> streamer.exportHistory(pipeline).count().block())
+                .sum();
+        Assertions.assertEquals(stillStored, metrics.getStoredEvents());
+        Assertions.assertEquals(4 * 2_000, metrics.getStoredEvents() + metrics.getEvictedEvents());
+    }
+
+    private Pipeline newPipeline() {
+        Task t1 = new Task("Count to 10", operationsMap.get("Count to 10"), Collections.emptyList());
+        return new Pipeline("Pipeline", Set.of(t1));
+    }
+
+    /** A {@link Clock} tests can move forward */
+    private static class MutableClock extends Clock {
+        private volatile Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            this.now = this.now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.now;
+        }
+    }
+}
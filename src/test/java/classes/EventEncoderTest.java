@@ -0,0 +1,89 @@
+package classes;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.ResultCache;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.utils.EventEncoders;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.*;
+
+@Slf4j
+public class EventEncoderTest {
+
+    private static final Pipeline pipeline = buildPipeline(200);
+
+    @BeforeAll
+    static void executePipeline() {
+        pipeline.execute().forEach((name, future) -> future.join());
+    }
+
+    @Test
+    void allEncodersExportTheSameContent() throws IOException {
+        Map<String, JsonNode> reference = flatten(new ObjectMapper().readTree(
+                EventEncoders.DTO_JSON.encodePipeline(pipeline)));
+        Assertions.assertEquals(pipeline.getTasks().size() + pipeline.getWorkGroups().size() + 1, reference.size());
+        Assertions.assertEquals(reference, flatten(new ObjectMapper().readTree(
+                EventEncoders.JSON.encodePipeline(pipeline))));
+        Assertions.assertEquals(reference, flatten(new ObjectMapper(new SmileFactory()).readTree(
+                EventEncoders.SMILE.encodePipeline(pipeline))));
+        Assertions.assertEquals(reference, flatten(new ObjectMapper(new CBORFactory()).readTree(
+                EventEncoders.CBOR.encodePipeline(pipeline))));
+
+        Task task = pipeline.getTasks().iterator().next();
+        String pipelineId = pipeline.getMonitor().getId();
+        Assertions.assertEquals(new ObjectMapper().readTree(EventEncoders.DTO_JSON.encodeDelta(pipelineId, 7, task.getMonitor())),
+                new ObjectMapper().readTree(EventEncoders.JSON.encodeDelta(pipelineId, 7, task.getMonitor())));
+    }
+
+    /** Encoding speed is measured by the ExportBenchmark of the benchmarks module */
+    @Test
+    void compactEncodersProduceSmallerEvents() {
+        int dtoJson = EventEncoders.DTO_JSON.encodePipeline(pipeline).length;
+        int json = EventEncoders.JSON.encodePipeline(pipeline).length;
+        int smile = EventEncoders.SMILE.encodePipeline(pipeline).length;
+        int cbor = EventEncoders.CBOR.encodePipeline(pipeline).length;
+        log.info("Bytes per event : DTO + pretty JSON {}, JSON {}, Smile {}, CBOR {}", dtoJson, json, smile, cbor);
+        Assertions.assertTrue(json < dtoJson);
+        Assertions.assertTrue(smile < json);
+        Assertions.assertTrue(cbor < json);
+    }
+
+    /** Indexes each exported Monitorable by its ID, without its nested monitorables whose order is not defined */
+    private static Map<String, JsonNode> flatten(JsonNode root) {
+        Map<String, JsonNode> nodes = new HashMap<>();
+        Deque<JsonNode> toVisit = new ArrayDeque<>(List.of(root));
+        while (!toVisit.isEmpty()) {
+            ObjectNode node = ((ObjectNode) toVisit.pop()).deepCopy();
+            node.remove("monitorables").forEach(toVisit::push);
+            nodes.put(node.get("id").asText(), node);
+        }
+        return nodes;
+    }
+
+    /** A few independent chains of tasks, each one ending with its own terminal task */
+    private static Pipeline buildPipeline(int size) {
+        Operation operation = inputs -> Flux.just(1, 2, 3);
+        Set<Task> tasks = new HashSet<>();
+        Task previous = null;
+        for (int i = 0; i < size; i++) {
+            previous = new Task("Task " + i, operation,
+                    previous == null || i % 20 == 0 ? Collections.emptyList() : List.of(previous));
+            tasks.add(previous);
+        }
+        Pipeline pipeline = new Pipeline("Pipeline", tasks);
+        pipeline.setResultCache(new ResultCache());
+        return pipeline;
+    }
+}
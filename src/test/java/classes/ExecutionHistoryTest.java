@@ -0,0 +1,172 @@
+package classes;
+
+import com.citizenweb.tooling.taskpipeline.core.model.ExecutionHistory;
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelinePlan;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelineRun;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.model.TaskCostHistory;
+import com.citizenweb.tooling.taskpipeline.core.model.TaskResult;
+import com.citizenweb.tooling.taskpipeline.core.utils.HistoryRecord;
+import com.citizenweb.tooling.taskpipeline.core.utils.HistoryStoreSettings;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingStatus;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class ExecutionHistoryTest {
+
+    @Test
+    void endedExecutionsAreStoredAndScanned(@TempDir Path directory) {
+        Operation source = inputs -> Flux.range(1, 10);
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Pipeline pipeline = new Pipeline("Recorded pipeline", Set.of(t1, t2));
+        HistoryStoreSettings settings = HistoryStoreSettings.builder().directory(directory).build();
+        try (ExecutionHistory history = ExecutionHistory.open(settings)) {
+            pipeline.setHistory(history);
+            pipeline.execute().values().forEach(TaskResult::join);
+            pipeline.getRunningWorkGroups().values().forEach(future -> future.join());
+            history.flush();
+
+            List<HistoryRecord> records = history.scanPipeline(pipeline.getMonitor().getId());
+            Assertions.assertEquals(Set.of(ProcessingType.PIPELINE, ProcessingType.WORKGROUP, ProcessingType.TASK),
+                    records.stream().map(HistoryRecord::getType).collect(Collectors.toSet()));
+            List<HistoryRecord> doublerRecords = history.scanName("Doubler");
+            Assertions.assertEquals(1, doublerRecords.size());
+            HistoryRecord record = doublerRecords.get(0);
+            Assertions.assertEquals("Recorded pipeline", record.getPipelineName());
+            Assertions.assertEquals(t2.getMonitor().getId(), record.getMonitorId());
+            Assertions.assertEquals(ProcessingStatus.DONE, record.getStatus());
+            Assertions.assertEquals(10, record.getElementCount());
+            Assertions.assertEquals(1, record.getRank());
+            Assertions.assertEquals(t2.getMonitor().getDurationNanos(), record.getDurationNanos());
+            Assertions.assertTrue(record.getDurationNanos() > 0);
+            Assertions.assertTrue(history.scanName("Unknown").isEmpty());
+        }
+
+        try (ExecutionHistory reopened = ExecutionHistory.open(settings)) {
+            Assertions.assertEquals(1, reopened.scanName("Doubler").size(), "Records survive the store");
+            TaskCostHistory costs = new TaskCostHistory();
+            reopened.replayInto(costs);
+            Assertions.assertTrue(costs.costOf("Source").isPresent());
+        }
+    }
+
+    @Test
+    void segmentsAreRolledAndRetained(@TempDir Path directory) {
+        Operation source = inputs -> Flux.range(1, 10);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Pipeline pipeline = new Pipeline("Rolling pipeline", Set.of(t1));
+        HistoryStoreSettings settings = HistoryStoreSettings.builder()
+                .directory(directory)
+                .segmentSize(4 * 96)
+                .maxSegments(3)
+                .build();
+        try (ExecutionHistory history = ExecutionHistory.open(settings)) {
+            for (int i = 0; i < 5; i++) {
+                pipeline.execute().values().forEach(TaskResult::join);
+                for (int j = 0; j < 10; j++) {
+                    history.submit(pipeline, t1.getMonitor());
+                }
+            }
+            history.flush();
+            Assertions.assertEquals(3, history.getSegmentCount());
+            Assertions.assertTrue(history.getRecordCount() <= 12);
+            Assertions.assertTrue(history.getRecordCount() > 8);
+            Assertions.assertEquals(history.getRecordCount(), history.scanName("Source").size());
+        }
+    }
+
+    @Test
+    void planRunsAreRecordedUnderTheirOwnId(@TempDir Path directory) {
+        Operation source = inputs -> Flux.range(1, 10);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        HistoryStoreSettings settings = HistoryStoreSettings.builder().directory(directory).build();
+        try (ExecutionHistory history = ExecutionHistory.open(settings)) {
+            PipelinePlan plan = PipelinePlan.compile("Recorded plan", Set.of(t1)).withHistory(history);
+            List<PipelineRun> runs = List.of(plan.execute(), plan.execute());
+            runs.forEach(run -> {
+                run.getResult(t1).join();
+                run.completed().join();
+            });
+            history.flush();
+
+            for (PipelineRun run : runs) {
+                List<HistoryRecord> records = history.scanPipeline(run.getId());
+                Assertions.assertEquals(Set.of("Recorded plan", "Source"),
+                        records.stream().map(HistoryRecord::getName).collect(Collectors.toSet()));
+                HistoryRecord task = records.stream().filter(record -> record.getType() == ProcessingType.TASK)
+                        .findAny().orElseThrow();
+                Assertions.assertEquals(run.getMonitor(t1).getId(), task.getMonitorId());
+                Assertions.assertEquals("Recorded plan", task.getPipelineName());
+                Assertions.assertEquals(10, task.getElementCount());
+            }
+            Assertions.assertEquals(2, history.scanName("Source").stream()
+                    .filter(record -> record.getType() == ProcessingType.TASK).count());
+        }
+    }
+
+    @Test
+    void idleStoreAgesOut(@TempDir Path directory) throws InterruptedException {
+        Operation source = inputs -> Flux.range(1, 10);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Pipeline pipeline = new Pipeline("Idle pipeline", Set.of(t1));
+        HistoryStoreSettings settings = HistoryStoreSettings.builder()
+                .directory(directory)
+                .maxSegmentAge(Duration.ofMillis(200))
+                .build();
+        try (ExecutionHistory history = ExecutionHistory.open(settings)) {
+            pipeline.execute().values().forEach(TaskResult::join);
+            history.submit(pipeline, t1.getMonitor());
+            history.flush();
+            Assertions.assertEquals(1, history.getRecordCount());
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (history.getRecordCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            Assertions.assertEquals(0, history.getRecordCount(), "Nothing was written, yet records aged out");
+            Assertions.assertEquals(1, history.getSegmentCount());
+        }
+    }
+
+    @Test
+    void submissionsRacingTheCloseAreDropped(@TempDir Path directory) {
+        Operation source = inputs -> Flux.range(1, 10);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Pipeline pipeline = new Pipeline("Closed pipeline", Set.of(t1));
+        pipeline.execute().values().forEach(TaskResult::join);
+        for (int attempt = 0; attempt < 20; attempt++) {
+            ExecutionHistory history = ExecutionHistory.open(HistoryStoreSettings.builder()
+                    .directory(directory.resolve("attempt-" + attempt)).build());
+            List<CompletableFuture<Void>> submitters = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                submitters.add(CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 2_000; j++) {
+                        history.submit(pipeline, t1.getMonitor());
+                    }
+                }));
+            }
+            history.close();
+            submitters.forEach(CompletableFuture::join);
+            history.flush();
+            Assertions.assertEquals(0, history.getSegmentCount(), "A closed store releases its segments");
+            Assertions.assertTrue(history.scanAll().isEmpty());
+        }
+    }
+}
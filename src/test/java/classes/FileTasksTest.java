@@ -0,0 +1,152 @@
+package classes;
+
+import com.citizenweb.tooling.taskpipeline.core.model.FileTasks;
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelinePlan;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.utils.FileSinkSettings;
+import com.citizenweb.tooling.taskpipeline.core.utils.FileSourceSettings;
+import com.citizenweb.tooling.taskpipeline.core.utils.Framing;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class FileTasksTest {
+
+    @TempDir
+    Path directory;
+
+    private static String decode(ByteBuffer frame) {
+        return StandardCharsets.UTF_8.decode(frame.duplicate()).toString();
+    }
+
+    private static List<String> read(Path path, FileSourceSettings settings) {
+        Task source = FileTasks.source("Source", path, settings);
+        return PipelinePlan.compile("Read", Set.of(source)).execute().getResult(source)
+                .flux(ByteBuffer.class)
+                .map(FileTasksTest::decode)
+                .collectList()
+                .block();
+    }
+
+    @Test
+    void linesSpanningChunksAreReassembled() throws IOException {
+        List<String> lines = IntStream.range(0, 2_000)
+                .mapToObj(i -> "line " + i + (i % 7 == 0 ? "\r" : ""))
+                .collect(Collectors.toList());
+        Path file = Files.writeString(this.directory.resolve("lines.txt"), String.join("\n", lines));
+        List<String> expected = lines.stream().map(line -> line.replace("\r", "")).collect(Collectors.toList());
+
+        for (boolean memoryMapped : new boolean[]{true, false}) {
+            FileSourceSettings settings = FileSourceSettings.builder()
+                    .chunkSize(1_000)
+                    .memoryMapped(memoryMapped)
+                    .framing(Framing.lines())
+                    .build();
+            Assertions.assertEquals(expected, read(file, settings), "memory mapped : " + memoryMapped);
+        }
+    }
+
+    @Test
+    void directoryFilesAreReadInNameOrderAsRecords() throws IOException {
+        Files.writeString(this.directory.resolve("b.dat"), "DDDDEEEEFF");
+        Files.writeString(this.directory.resolve("a.dat"), "AAAABBBBCCCC");
+        Files.writeString(this.directory.resolve("ignored.txt"), "ZZZZ");
+        FileSourceSettings settings = FileSourceSettings.builder()
+                .chunkSize(3)
+                .framing(Framing.fixedLength(4))
+                .glob("*.dat")
+                .build();
+
+        Assertions.assertEquals(List.of("AAAA", "BBBB", "CCCC", "DDDD", "EEEE", "FF"), read(this.directory, settings));
+    }
+
+    @Test
+    void tooLongLinesFailTheSource() throws IOException {
+        Path file = Files.writeString(this.directory.resolve("long.txt"), "short\n" + "x".repeat(100));
+        FileSourceSettings settings = FileSourceSettings.builder()
+                .chunkSize(16)
+                .framing(Framing.lines(50))
+                .build();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> read(file, settings));
+    }
+
+    @Test
+    void sinkWritesTheElementsItReceives() throws IOException {
+        Operation words = inputs -> Flux.range(0, 1_000).map(i -> "word " + i);
+        Task source = new Task("Words", words, List.of());
+        Path file = this.directory.resolve("out.txt");
+        Task sink = FileTasks.sink("Sink", file, source, FileSinkSettings.builder()
+                .gatherSize(16)
+                .separator("\n".getBytes(StandardCharsets.UTF_8))
+                .force(true)
+                .build());
+
+        Long written = PipelinePlan.compile("Write", Set.of(source, sink)).execute().getResult(sink)
+                .flux(Long.class)
+                .blockLast();
+
+        String expected = IntStream.range(0, 1_000).mapToObj(i -> "word " + i + "\n").collect(Collectors.joining());
+        Assertions.assertEquals(expected, Files.readString(file));
+        Assertions.assertEquals(expected.length(), written);
+    }
+
+    @Test
+    void filesFarLargerThanTheBufferedChunksAreReadWhole() throws IOException {
+        byte[] content = new byte[16 * 1024 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        Path file = Files.write(this.directory.resolve("large.bin"), content);
+
+        for (boolean memoryMapped : new boolean[]{true, false}) {
+            FileSourceSettings settings = FileSourceSettings.builder()
+                    .chunkSize(1_000)
+                    .memoryMapped(memoryMapped)
+                    .mappedRegionSize(1024 * 1024)
+                    .build();
+            Task source = FileTasks.source("Source", file, settings);
+            long[] positionAndMismatches = PipelinePlan.compile("Read", Set.of(source)).execute().getResult(source)
+                    .flux(ByteBuffer.class)
+                    .reduce(new long[2], (state, chunk) -> {
+                        while (chunk.hasRemaining()) {
+                            if (chunk.get() != content[(int) state[0]++]) {
+                                state[1]++;
+                            }
+                        }
+                        return state;
+                    })
+                    .block();
+            Assertions.assertEquals(content.length, positionAndMismatches[0], "memory mapped : " + memoryMapped);
+            Assertions.assertEquals(0, positionAndMismatches[1], "memory mapped : " + memoryMapped);
+        }
+    }
+
+    @Test
+    void fileCopiedThroughSourceAndSinkIsIdentical() throws IOException {
+        byte[] content = new byte[300_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        Path input = Files.write(this.directory.resolve("in.bin"), content);
+        Path output = this.directory.resolve("copy.bin");
+        Task source = FileTasks.source("Source", input, FileSourceSettings.builder().chunkSize(4_096).build());
+        Task sink = FileTasks.sink("Sink", output, source);
+
+        PipelinePlan.compile("Copy", Set.of(source, sink)).execute().getResult(sink).flux(Long.class).blockLast();
+
+        Assertions.assertArrayEquals(content, Files.readAllBytes(output));
+    }
+}
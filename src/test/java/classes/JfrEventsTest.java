@@ -0,0 +1,74 @@
+package classes;
+
+import com.citizenweb.tooling.taskpipeline.core.model.DataStreamer;
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import data.DataForTests;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class JfrEventsTest {
+
+    static { DataForTests.initData(); }
+    private static final Map<String, Operation> operationsMap = DataForTests.getData();
+
+    @Test
+    void pipelineExecutionIsRecorded(@TempDir Path directory) throws IOException {
+        Task t1 = new Task("Count to 10", operationsMap.get("Count to 10"), Collections.emptyList());
+        Task t2 = new Task("Count to 100", operationsMap.get("Count to 100"), Collections.emptyList());
+        Task t3 = new Task("Sum t1 t2", operationsMap.get("Sum"), List.of(t1, t2));
+        Pipeline pipeline = new Pipeline("Recorded pipeline", Set.of(t1, t2, t3));
+        Path file = directory.resolve("pipeline.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("taskpipeline.PipelineExecution");
+            recording.enable("taskpipeline.WorkGroupPhase");
+            recording.enable("taskpipeline.TaskAssembly");
+            recording.enable("taskpipeline.TaskFlow");
+            recording.enable("taskpipeline.Notification");
+            recording.start();
+            pipeline.execute().forEach((task, result) -> result.join());
+            pipeline.getRunningWorkGroups().forEach((name, future) -> future.join());
+            DataStreamer.getInstance().flush();
+            recording.stop();
+            recording.dump(file);
+        }
+        String pipelineId = pipeline.getMonitor().getId();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> pipelineId.equals(event.getString("pipelineId")))
+                .collect(Collectors.toList());
+        Map<String, List<RecordedEvent>> byType = events.stream()
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+
+        Assertions.assertEquals("Recorded pipeline",
+                byType.get("taskpipeline.PipelineExecution").get(0).getString("pipelineName"));
+        Assertions.assertEquals(Set.of("STARTING", "INTERMEDIATE", "FINAL"),
+                byType.get("taskpipeline.WorkGroupPhase").stream().map(event -> event.getString("phase"))
+                        .collect(Collectors.toSet()));
+        Assertions.assertEquals(1, byType.get("taskpipeline.WorkGroupPhase").stream()
+                .filter(event -> "FINAL".equals(event.getString("phase")))
+                .mapToInt(event -> event.getInt("tasks")).sum());
+        Assertions.assertEquals(Set.of("Count to 10", "Count to 100", "Sum t1 t2"),
+                byType.get("taskpipeline.TaskAssembly").stream().map(event -> event.getString("taskName"))
+                        .collect(Collectors.toSet()));
+        RecordedEvent sumFlow = byType.get("taskpipeline.TaskFlow").stream()
+                .filter(event -> t3.getMonitor().getId().equals(event.getString("taskId")))
+                .findAny().orElseThrow();
+        Assertions.assertEquals(t3.getMonitor().getFlowMetrics().getElementCount(), sumFlow.getLong("elements"));
+        Assertions.assertEquals("ON_COMPLETE", sumFlow.getString("terminalSignal"));
+        Assertions.assertFalse(sumFlow.getDuration().isZero());
+        Assertions.assertFalse(byType.get("taskpipeline.Notification").isEmpty());
+    }
+}
@@ -1,9 +1,14 @@
 package classes;
 
+import com.citizenweb.tooling.taskpipeline.core.model.IntOperation;
+import com.citizenweb.tooling.taskpipeline.core.model.LongOperation;
 import com.citizenweb.tooling.taskpipeline.core.model.Operation;
 import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
 import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.model.TaskResult;
+import com.citizenweb.tooling.taskpipeline.core.utils.ChunkType;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
@@ -14,6 +19,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @Slf4j
 public class OperationTest {
@@ -111,4 +117,63 @@ public class OperationTest {
         resultMap.forEach((key, value) -> value.join());
     }
 
+    @Test
+    void taskBecomesReadyWithItsLastInput() {
+        Task t1 = new Task("Task 1", operationsMap.get("o1"), Collections.emptyList());
+        Task t2 = new Task("Task 2", operationsMap.get("o2"), Collections.emptyList());
+        Task t4 = new Task("Task 4", operationsMap.get("o4"), List.of(t1, t2));
+        Flux<?> f1 = Flux.just(1);
+        Flux<?> f2 = Flux.just(2);
+        Assertions.assertEquals(2, t4.getInputSlots().getMissingInputs());
+        Assertions.assertFalse(t4.injectFluxFromTask(t2, f2));
+        Assertions.assertFalse(t4.injectFluxFromTask(t2, f1), "A slot is filled only once");
+        Assertions.assertFalse(Task.hasAllItsNecessaryInputFluxes.test(t4));
+        Assertions.assertTrue(t4.injectFluxFromTask(t1, f1));
+        Assertions.assertTrue(Task.hasAllItsNecessaryInputFluxes.test(t4));
+        Assertions.assertArrayEquals(new Flux<?>[]{f1, f2}, t4.getInputSlots().toArray());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> t4.injectFluxFromTask(t4, f1));
+    }
+
+    @Test
+    void primitiveOperationsExchangeChunksWithOrdinaryOnes() {
+        Set<Integer> chunkSizes = ConcurrentHashMap.newKeySet();
+        Operation boxedSource = inputs -> Flux.range(1, 5_000);
+        IntOperation doubler = inputs -> inputs.get(0).map(chunk -> {
+            chunkSizes.add(chunk.length);
+            int[] doubled = new int[chunk.length];
+            for (int i = 0; i < chunk.length; i++) {
+                doubled[i] = chunk[i] * 2;
+            }
+            return doubled;
+        });
+        LongOperation sum = inputs -> inputs.get(0)
+                .map(chunk -> LongStream.of(chunk).sum())
+                .reduce(Long::sum)
+                .map(total -> new long[]{total})
+                .flux();
+        Operation boxedCount = inputs -> inputs[0].count().flux();
+        Task t1 = new Task("Boxed source", boxedSource, Collections.emptyList());
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Task t3 = new Task("Sum", sum, List.of(t2));
+        Task t4 = new Task("Boxed count", boxedCount, List.of(t2));
+        Pipeline pipeline = new Pipeline("Primitives", Set.of(t1, t2, t3, t4));
+
+        Map<Task, TaskResult> results = pipeline.execute();
+        Assertions.assertArrayEquals(new long[]{25_005_000}, results.get(t3).flux(long[].class).blockLast());
+        Assertions.assertEquals(5_000L, results.get(t4).flux(Long.class).blockLast(),
+                "An ordinary Task receives the values of the chunks");
+        Assertions.assertEquals(Set.of(ChunkType.DEFAULT_CHUNK_SIZE, 5_000 % ChunkType.DEFAULT_CHUNK_SIZE),
+                chunkSizes);
+
+        StepVerifier.create(doubler.process(Flux.just(1, 2, 3)))
+                .assertNext(chunk -> Assertions.assertArrayEquals(new int[]{2, 4, 6}, (int[]) chunk))
+                .verifyComplete();
+        Flux<int[]> converted = ChunkType.ints(Flux.just(new double[]{1.5, 2.5}));
+        StepVerifier.create(ChunkType.INT.unchunk(converted).cast(Integer.class))
+                .expectNext(1, 2)
+                .verifyComplete();
+        StepVerifier.create(ChunkType.longs(Flux.just((Object) new String[]{"1"})))
+                .verifyError(IllegalArgumentException.class);
+    }
+
 }
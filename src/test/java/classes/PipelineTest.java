@@ -1,16 +1,64 @@
 package classes;
 
+import com.citizenweb.tooling.taskpipeline.core.model.BatchMetrics;
+import com.citizenweb.tooling.taskpipeline.core.model.BufferMetrics;
+import com.citizenweb.tooling.taskpipeline.core.model.CheckpointStore;
 import com.citizenweb.tooling.taskpipeline.core.model.DataStreamer;
+import com.citizenweb.tooling.taskpipeline.core.model.ExecutionProfile;
+import com.citizenweb.tooling.taskpipeline.core.model.FlowMetrics;
+import com.citizenweb.tooling.taskpipeline.core.model.Monitor;
 import com.citizenweb.tooling.taskpipeline.core.model.Operation;
 import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelinePlan;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelineRun;
 import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.model.TaskResult;
+import com.citizenweb.tooling.taskpipeline.core.model.WorkGroupOptimizer;
+import com.citizenweb.tooling.taskpipeline.core.utils.BatchingPolicy;
+import com.citizenweb.tooling.taskpipeline.core.utils.BufferPolicy;
+import com.citizenweb.tooling.taskpipeline.core.utils.CheckpointSerializer;
+import com.citizenweb.tooling.taskpipeline.core.utils.CheckpointSerializers;
+import com.citizenweb.tooling.taskpipeline.core.utils.EdgeDTO;
+import com.citizenweb.tooling.taskpipeline.core.utils.ExecutorMetrics;
+import com.citizenweb.tooling.taskpipeline.core.utils.MonitoredExecutor;
+import com.citizenweb.tooling.taskpipeline.core.utils.OrchestrationExecutors;
+import com.citizenweb.tooling.taskpipeline.core.utils.OverflowStrategy;
+import com.citizenweb.tooling.taskpipeline.core.utils.PartitioningPolicy;
+import com.citizenweb.tooling.taskpipeline.core.utils.PipelineDTO;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingStatus;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import data.DataForTests;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class PipelineTest {
@@ -64,6 +112,543 @@ public class PipelineTest {
         this.printTasksState.accept(pipeline);
     }
 
+    @Test
+    void sharedTasksAreProcessedOncePerExecution() {
+        AtomicInteger loaderCalls = new AtomicInteger();
+        Operation loader = inputs -> {
+            loaderCalls.incrementAndGet();
+            return Flux.range(1, 10);
+        };
+        Task t1 = new Task("Loader", loader, Collections.emptyList());
+        Task t2 = new Task("Count to 100", operationsMap.get("Count to 100"), Collections.emptyList());
+        Task t3 = new Task("Reverse count to 0", operationsMap.get("Reverse count to 0"), Collections.emptyList());
+        Task t4 = new Task("Sum t1 t2", operationsMap.get("Sum"), List.of(t1, t2));
+        Task t5 = new Task("Sum t1 t3", operationsMap.get("Sum"), List.of(t1, t3));
+        Task t6 = new Task("Sum t4 t3", operationsMap.get("Sum"), List.of(t4, t3));
+        Set<Task> allTasks = Set.of(t1, t2, t3, t4, t5, t6);
+        Pipeline pipeline = new Pipeline("Pipeline", allTasks);
+        var resultMap = pipeline.execute();
+        resultMap.forEach((name, future) -> future.join());
+        Assertions.assertEquals(2, pipeline.getWorkGroups().size());
+        Assertions.assertEquals(1, loaderCalls.get());
+        allTasks.forEach(task -> Assertions.assertTrue(pipeline.getSharedOutputs().isAssembled(task)));
+    }
+
+    @Test
+    void sharedTasksAreSubscribedOncePerExecution() {
+        AtomicInteger loads = new AtomicInteger();
+        Operation loader = inputs -> Flux.defer(() -> {
+            loads.incrementAndGet();
+            return Flux.range(1, 10);
+        });
+        Operation summing = inputs -> inputs[0].reduce(0, (a, b) -> a + (Integer) b).flux();
+        Task t1 = new Task("Loader", loader, Collections.emptyList());
+        Task t2 = new Task("Report 1", summing, List.of(t1));
+        Task t3 = new Task("Report 2", summing, List.of(t1));
+        Task t4 = new Task("Report 3", summing, List.of(t1));
+        Set<Task> allTasks = Set.of(t1, t2, t3, t4);
+
+        Map<Task, TaskResult> results = new Pipeline("Reports", allTasks).execute();
+        for (Task report : List.of(t2, t3, t4)) {
+            Assertions.assertEquals(55, results.get(report).flux().blockLast());
+        }
+        Assertions.assertEquals(1, loads.get(), "The loader is subscribed once for its three reports");
+
+        PipelineRun run = PipelinePlan.compile("Reports", allTasks).execute();
+        Flux.merge(run.getResult(t2).then(), run.getResult(t3).then(), run.getResult(t4).then()).blockLast();
+        Assertions.assertEquals(2, loads.get(), "Once per execution");
+        Assertions.assertEquals(10, run.getMonitor(t1).getFlowMetrics().getElementCount());
+    }
+
+    @Test
+    void tasksRunOnTheSchedulerOfTheirExecutionProfile() throws InterruptedException {
+        Scheduler custom = Schedulers.newSingle("custom-profile");
+        Map<String, String> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Operation blockingLoader = inputs -> Flux.defer(() -> {
+            threads.put("Loader", Thread.currentThread().getName());
+            return Flux.range(1, 10);
+        });
+        Operation generator = inputs -> Flux.defer(() -> {
+            threads.put("Generator", Thread.currentThread().getName());
+            return Flux.range(1, 10);
+        });
+        Operation sum = inputs -> Flux.zip(inputs[0], inputs[1], (a, b) -> (Integer) a + (Integer) b)
+                .doOnNext(i -> threads.put("Sum", Thread.currentThread().getName()));
+        Operation printer = inputs -> inputs[0]
+                .doOnNext(i -> threads.put("Printer", Thread.currentThread().getName()))
+                .doOnComplete(done::countDown);
+        Task t1 = new Task("Loader", blockingLoader, Collections.emptyList(), ExecutionProfile.BLOCKING_IO);
+        Task t2 = new Task("Generator", generator, Collections.emptyList());
+        Task t3 = new Task("Sum", sum, List.of(t1, t2), ExecutionProfile.CPU_BOUND);
+        Task t4 = new Task("Printer", printer, List.of(t3));
+        Pipeline pipeline = new Pipeline("Pipeline", Set.of(t1, t2, t3, t4));
+        pipeline.setDefaultProfile(ExecutionProfile.custom("custom", custom));
+        try {
+            pipeline.execute().forEach((name, future) -> future.join());
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(threads.get("Loader").startsWith("boundedElastic"), threads::toString);
+            Assertions.assertTrue(threads.get("Generator").startsWith("custom-profile"), threads::toString);
+            Assertions.assertTrue(threads.get("Sum").startsWith("parallel"), threads::toString);
+            Assertions.assertTrue(threads.get("Printer").startsWith("custom-profile"), threads::toString);
+        } finally {
+            custom.dispose();
+        }
+    }
+
+    @Test
+    void pipelineIsOrchestratedByItsOwnExecutor() {
+        MonitoredExecutor executor = OrchestrationExecutors.fixedPlatformThreads("test-orchestration", 1);
+        Pipeline pipeline;
+        try {
+            Task t1 = new Task("Count to 10", operationsMap.get("Count to 10"), Collections.emptyList());
+            Task t2 = new Task("Count to 100", operationsMap.get("Count to 100"), Collections.emptyList());
+            Task t3 = new Task("Reverse count to 0", operationsMap.get("Reverse count to 0"),
+                    Collections.emptyList());
+            Task t4 = new Task("Sum t1 t2", operationsMap.get("Sum"), List.of(t1, t2));
+            Task t5 = new Task("Sum t2 t3", operationsMap.get("Sum"), List.of(t2, t3));
+            pipeline = new Pipeline("Pipeline", Set.of(t1, t2, t3, t4, t5));
+            pipeline.setExecutor(executor);
+            /* A single thread is enough : a WorkGroup never blocks while waiting for another one */
+            pipeline.execute().forEach((name, future) -> future.join());
+            pipeline.getRunningWorkGroups().forEach((name, future) -> future.join());
+        } finally {
+            /* A task is counted once it has returned, after completing its future : wait until the pool is idle */
+            Assertions.assertTrue(executor.shutdown(Duration.ofSeconds(5)));
+        }
+        ExecutorMetrics metrics = executor.getMetrics();
+        Assertions.assertEquals(pipeline.getWorkGroups().size(), metrics.getCompleted());
+        Assertions.assertEquals(0, metrics.getQueued());
+        Assertions.assertEquals(0, metrics.getActive());
+        Assertions.assertTrue(metrics.getPeakQueued() >= 1);
+        if (!OrchestrationExecutors.virtualThreadsSupported()) {
+            Assertions.assertThrows(UnsupportedOperationException.class,
+                    () -> OrchestrationExecutors.virtualThreads("virtual"));
+        }
+    }
+
+    @Test
+    void terminalTaskOutputIsDrivenByTheCaller() {
+        AtomicInteger produced = new AtomicInteger();
+        Operation source = inputs -> Flux.range(1, 1_000).doOnNext(i -> produced.incrementAndGet());
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Pipeline pipeline = new Pipeline("Pipeline", Set.of(t1, t2));
+        Map<Task, TaskResult> results = pipeline.execute();
+        Assertions.assertEquals(Set.of(t2), results.keySet());
+        pipeline.getRunningWorkGroups().forEach((name, future) -> future.join());
+        Assertions.assertEquals(0, produced.get(), "Nothing flows before the caller subscribes");
+
+        StepVerifier.create(results.get(t2).flux(Integer.class), 3)
+                .expectNext(2, 4, 6)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        Assertions.assertTrue(produced.get() < 1_000, "The caller controls the demand");
+
+        Assertions.assertEquals(1_000, results.get(t2).flux().count().block());
+        StepVerifier.create(results.get(t2).then()).verifyComplete();
+    }
+
+    @Test
+    void taskMetricsMeasureTheDataFlowNotTheAssembly() {
+        Operation source = inputs -> Flux.range(1, 50).delayElements(Duration.ofMillis(2));
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Operation failing = inputs -> inputs[0].map(i -> {
+            throw new IllegalStateException("Boom");
+        });
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Task t3 = new Task("Failing", failing, List.of(t1));
+        Pipeline pipeline = new Pipeline("Pipeline", Set.of(t1, t2, t3));
+        Map<Task, TaskResult> results = pipeline.execute();
+        pipeline.getRunningWorkGroups().forEach((name, future) -> future.join());
+        Assertions.assertEquals(ProcessingStatus.NEW, t2.getMonitor().getStatus(), "Assembled, but not run yet");
+        Assertions.assertEquals(-1, t2.getMonitor().getFlowMetrics().getTimeToFirstElementNanos());
+
+        results.get(t2).join();
+        FlowMetrics sourceMetrics = t1.getMonitor().getFlowMetrics();
+        FlowMetrics doublerMetrics = t2.getMonitor().getFlowMetrics();
+        Assertions.assertEquals(ProcessingStatus.DONE, t2.getMonitor().getStatus());
+        Assertions.assertEquals(50, sourceMetrics.getElementCount());
+        Assertions.assertEquals(50, doublerMetrics.getElementCount());
+        Assertions.assertEquals(SignalType.ON_COMPLETE, doublerMetrics.getTerminalSignal());
+        Assertions.assertTrue(sourceMetrics.getTimeToFirstElementNanos() >= Duration.ofMillis(2).toNanos());
+        Assertions.assertTrue(doublerMetrics.getActiveNanos() >= Duration.ofMillis(100).toNanos());
+        Assertions.assertTrue(t2.getMonitor().getDuration() >= 100);
+        Assertions.assertTrue(doublerMetrics.getThroughput() > 0);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> results.get(t3).join());
+        Assertions.assertEquals(ProcessingStatus.IN_ERROR, t3.getMonitor().getStatus());
+        Assertions.assertEquals(SignalType.ON_ERROR, t3.getMonitor().getFlowMetrics().getTerminalSignal());
+        Assertions.assertEquals(SignalType.ON_COMPLETE, sourceMetrics.getTerminalSignal(),
+                "The shared source is replayed to the failing Task, not run again");
+        Assertions.assertEquals(50, sourceMetrics.getElementCount());
+    }
+
+    @Test
+    void anErrorOnlyFailsItsOwnActivePeriod() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Flux<Integer> failingOnce = Flux.defer(() -> subscriptions.getAndIncrement() == 0
+                ? Flux.error(new IllegalStateException("Boom")) : Flux.just(1, 2, 3));
+        FlowMetrics metrics = new FlowMetrics();
+        List<Boolean> periodsFailed = new ArrayList<>();
+        Flux<Integer> instrumented = metrics.instrument(failingOnce, () -> { }, periodsFailed::add);
+
+        StepVerifier.create(instrumented).verifyError(IllegalStateException.class);
+        StepVerifier.create(instrumented).expectNext(1, 2, 3).verifyComplete();
+        Assertions.assertEquals(List.of(true, false), periodsFailed);
+        Assertions.assertEquals(1, metrics.getErrorCount());
+    }
+
+    @Test
+    void planIsOptimizedOnceAndExecutedConcurrently() {
+        AtomicInteger optimizations = new AtomicInteger();
+        WorkGroupOptimizer countingOptimizer = tasks -> {
+            optimizations.incrementAndGet();
+            return WorkGroupOptimizer.DEFAULT_OPTIMIZER.optimize(tasks);
+        };
+        Operation source = inputs -> Flux.range(1, 100);
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Operation sum = inputs -> Flux.zip(inputs[0], inputs[1], (a, b) -> (Integer) a + (Integer) b);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Task t3 = new Task("Sum", sum, List.of(t1, t2));
+        MonitoredExecutor executor = OrchestrationExecutors.fixedPlatformThreads("plan", 4);
+        PipelinePlan plan = PipelinePlan.compile("Plan", Set.of(t1, t2, t3), countingOptimizer)
+                .withExecutor(executor);
+
+        List<PipelineRun> runs = new ArrayList<>();
+        List<Integer> totals;
+        try {
+            for (int i = 0; i < 20; i++) {
+                runs.add(plan.execute());
+            }
+            Assertions.assertEquals(ProcessingStatus.RUNNING, runs.get(0).getMonitor().getStatus(),
+                    "Launched, but no data flowed yet");
+            totals = runs.parallelStream()
+                    .map(run -> run.getResult(t3).flux(Integer.class).reduce(0, Integer::sum).block())
+                    .collect(Collectors.toList());
+            runs.forEach(run -> run.assembled().join());
+        } finally {
+            executor.shutdown(Duration.ofSeconds(5));
+        }
+
+        Assertions.assertEquals(1, optimizations.get(), "The plan is optimized once, when compiled");
+        totals.forEach(total -> Assertions.assertEquals(3 * 5050, total));
+        Assertions.assertEquals(20, runs.stream().map(PipelineRun::getId).distinct().count());
+        runs.forEach(run -> {
+            run.assembled().join();
+            run.completed().join();
+            Assertions.assertEquals(ProcessingStatus.DONE, run.getMonitor().getStatus());
+            Monitor sumMonitor = run.getMonitor(t3);
+            Assertions.assertNotSame(t3.getMonitor(), sumMonitor);
+            Assertions.assertEquals(ProcessingStatus.DONE, sumMonitor.getStatus());
+            Assertions.assertEquals(100, sumMonitor.getFlowMetrics().getElementCount());
+            Assertions.assertEquals(1, sumMonitor.getRank());
+        });
+        Assertions.assertEquals(ProcessingStatus.NEW, t3.getMonitor().getStatus(), "Tasks are left untouched");
+    }
+
+    @Test
+    void pipelineCanBeExecutedAgain() {
+        Operation source = inputs -> Flux.range(1, 10);
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Pipeline pipeline = new Pipeline("Pipeline", Set.of(t1, t2));
+        for (int i = 0; i < 2; i++) {
+            Map<Task, TaskResult> results = pipeline.execute();
+            Assertions.assertEquals(110, results.get(t2).flux(Integer.class).reduce(0, Integer::sum).block());
+        }
+        Assertions.assertEquals(1, pipeline.getWorkGroups().size());
+    }
+
+    @Test
+    void failedExecutionResumesFromCheckpoints(@TempDir Path directory) {
+        AtomicInteger sourceCalls = new AtomicInteger();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        Operation source = inputs -> {
+            sourceCalls.incrementAndGet();
+            return Flux.range(1, 100);
+        };
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Operation flaky = inputs -> inputs[0].map(i -> {
+            if (failing.get() && (Integer) i == 50) {
+                throw new IllegalStateException("Boom");
+            }
+            return i;
+        });
+        Task t1 = new Task("Expensive source", source, Collections.emptyList());
+        t1.setCheckpointed(true);
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Task t3 = new Task("Flaky", flaky, List.of(t1));
+        CheckpointStore checkpoints = new CheckpointStore(directory, CheckpointSerializers.json(Integer.class));
+        Pipeline pipeline = new Pipeline("Nightly", Set.of(t1, t2, t3));
+        pipeline.setCheckpoints(checkpoints);
+
+        Map<Task, TaskResult> firstRun = pipeline.execute();
+        Assertions.assertEquals(10_100, firstRun.get(t2).flux(Integer.class).reduce(0, Integer::sum).block());
+        Assertions.assertThrows(IllegalStateException.class, () -> firstRun.get(t3).join());
+        Assertions.assertTrue(checkpoints.contains("Nightly", pipeline.getCheckpointRun(), t1));
+
+        failing.set(false);
+        Map<Task, TaskResult> resumed = pipeline.execute();
+        Assertions.assertEquals(5_050, resumed.get(t3).flux(Integer.class).reduce(0, Integer::sum).block());
+        Assertions.assertEquals(10_100, resumed.get(t2).flux(Integer.class).reduce(0, Integer::sum).block());
+        Assertions.assertEquals(1, sourceCalls.get(), "The checkpoint is replayed instead of the Operation");
+        Assertions.assertEquals(ProcessingStatus.DONE, t1.getMonitor().getStatus(), "A replay is monitored");
+
+        checkpoints.clear("Nightly");
+        Assertions.assertFalse(checkpoints.contains("Nightly", pipeline.getCheckpointRun(), t1));
+        pipeline.execute().values().forEach(TaskResult::join);
+        Assertions.assertEquals(2, sourceCalls.get());
+    }
+
+    @Test
+    void cancelledCheckpointsAreDiscardedQuietly(@TempDir Path directory) throws IOException {
+        Logger logger = (Logger) LoggerFactory.getLogger(CheckpointStore.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        CheckpointStore checkpoints = new CheckpointStore(directory, CheckpointSerializers.json(Integer.class));
+        Task t1 = new Task("Source", inputs -> Flux.empty(), Collections.emptyList());
+        try {
+            for (int i = 0; i < 200; i++) {
+                Flux<Integer> recorded = checkpoints.record("Cancels", "run " + i, t1, Flux.range(1, 100));
+                StepVerifier.create(recorded.publishOn(Schedulers.parallel()).map(element -> {
+                    if (element == 100) {
+                        throw new IllegalStateException("Boom");
+                    }
+                    return element;
+                })).thenConsumeWhile(element -> true).verifyError(IllegalStateException.class);
+            }
+        } finally {
+            logger.detachAppender(appender);
+        }
+        Assertions.assertTrue(appender.list.stream().noneMatch(event -> event.getLevel() == Level.ERROR),
+                "A cancel is not a write failure");
+        try (var files = Files.walk(directory)) {
+            Assertions.assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void planRunsKeepTheirOwnCheckpoints(@TempDir Path directory) throws IOException {
+        AtomicInteger sourceCalls = new AtomicInteger();
+        Operation source = inputs -> {
+            sourceCalls.incrementAndGet();
+            return Flux.range(1, 100);
+        };
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        t1.setCheckpointed(true);
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Set<String> writingThreads = ConcurrentHashMap.newKeySet();
+        CheckpointSerializer json = CheckpointSerializers.json(Integer.class);
+        CheckpointSerializer tracingSerializer = new CheckpointSerializer() {
+            @Override
+            public byte[] serialize(Object element) throws IOException {
+                writingThreads.add(Thread.currentThread().getName());
+                return json.serialize(element);
+            }
+
+            @Override
+            public Object deserialize(byte[] bytes) throws IOException {
+                return json.deserialize(bytes);
+            }
+        };
+        CheckpointStore checkpoints = new CheckpointStore(directory, tracingSerializer);
+        PipelinePlan plan = PipelinePlan.compile("Checkpointed", Set.of(t1, t2)).withCheckpoints(checkpoints);
+
+        PipelineRun first = plan.execute();
+        PipelineRun second = plan.execute();
+        Flux.merge(first.getResult(t2).then(), second.getResult(t2).then()).blockLast();
+        Assertions.assertNotEquals(first.getCheckpointRun(), second.getCheckpointRun());
+        Assertions.assertTrue(checkpoints.contains("Checkpointed", first.getCheckpointRun(), t1));
+        Assertions.assertTrue(checkpoints.contains("Checkpointed", second.getCheckpointRun(), t1));
+        Assertions.assertEquals(2, sourceCalls.get());
+        Assertions.assertTrue(writingThreads.stream().allMatch(name -> name.startsWith("boundedElastic")),
+                () -> "Checkpoints written by " + writingThreads);
+
+        PipelineRun resumed = plan.execute(first.getCheckpointRun());
+        Assertions.assertEquals(10_100, resumed.getResult(t2).flux(Integer.class).reduce(0, Integer::sum).block());
+        Assertions.assertEquals(2, sourceCalls.get(), "The checkpoint of the first run is replayed");
+
+        /* The last element, "100", takes 4 bytes of length and 3 bytes of JSON */
+        Path firstCheckpoint = directory.resolve("Checkpointed").resolve(first.getCheckpointRun())
+                .resolve("Source.ckpt");
+        truncate(firstCheckpoint, 2);
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> plan.execute(first.getCheckpointRun()).getResult(t2).join(), "Truncated within an element");
+        Path secondCheckpoint = directory.resolve("Checkpointed").resolve(second.getCheckpointRun())
+                .resolve("Source.ckpt");
+        truncate(secondCheckpoint, 5);
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> plan.execute(second.getCheckpointRun()).getResult(t2).join(), "Truncated within a length");
+    }
+
+    private static void truncate(Path file, int bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - bytes);
+        }
+    }
+
+    @Test
+    void batchedEdgesAreUnbatchedUnlessTheTaskReceivesBatches() {
+        Operation source = inputs -> Flux.range(1, 1_000);
+        Operation sum = inputs -> inputs[0].cast(Integer.class).reduce(0, Integer::sum).flux();
+        Operation batchSizes = inputs -> inputs[0].map(batch -> ((List<?>) batch).size());
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Task t2 = new Task("Sum", sum, List.of(t1));
+        Task t3 = new Task("Batch sizes", batchSizes, List.of(t1));
+        t2.batchInput(t1, BatchingPolicy.bySize(64));
+        t3.batchInput(t1, BatchingPolicy.bySizeOrTime(100, Duration.ofSeconds(10)));
+        t3.setReceivingBatches(true);
+        Pipeline pipeline = new Pipeline("Batches", Set.of(t1, t2, t3));
+
+        Map<Task, TaskResult> results = pipeline.execute();
+        Assertions.assertEquals(500_500, results.get(t2).flux(Integer.class).blockLast());
+        Assertions.assertEquals(Collections.nCopies(10, 100), results.get(t3).flux(Integer.class).collectList().block());
+
+        BatchMetrics sumInput = t2.getBatchMetrics(t1);
+        Assertions.assertEquals(16, sumInput.getBatchCount());
+        Assertions.assertEquals(1_000, sumInput.getElementCount());
+        Assertions.assertEquals(64, sumInput.getMaxBatchSize());
+        Assertions.assertEquals(64, sumInput.getBatchSizePercentile(99));
+        Assertions.assertEquals(10, t3.getBatchMetrics(t1).getBatchCount());
+        Assertions.assertNull(t2.getBatchMetrics(t3), "An edge that is not batched has no metrics");
+        Assertions.assertEquals(1, new PipelineDTO(pipeline).getMonitorables().stream()
+                .flatMap(workGroup -> workGroup.getMonitorables().stream())
+                .filter(task -> task.getId().equals(t2.getMonitor().getId()))
+                .mapToInt(task -> task.getInputs().size())
+                .sum());
+    }
+
+    @Test
+    void batchesAreEmittedOnceTheirLatencyIsReached() {
+        Operation slowSource = inputs -> Flux.interval(Duration.ofMillis(10)).take(20);
+        Operation batchSizes = inputs -> inputs[0].map(batch -> ((List<?>) batch).size());
+        Task t1 = new Task("Slow source", slowSource, Collections.emptyList());
+        Task t2 = new Task("Batch sizes", batchSizes, List.of(t1));
+        t2.batchInput(t1, BatchingPolicy.bySizeOrTime(1_000, Duration.ofMillis(50)));
+        t2.setReceivingBatches(true);
+
+        PipelineRun run = PipelinePlan.compile("Latency", Set.of(t1, t2)).execute();
+        List<Integer> sizes = run.getResult(t2).flux(Integer.class).collectList().block();
+        Assertions.assertEquals(20, sizes.stream().mapToInt(Integer::intValue).sum());
+        Assertions.assertTrue(sizes.size() > 1, "The time bound closes batches far below their size bound");
+        BatchMetrics metrics = run.getBatchMetrics(t1, t2);
+        Assertions.assertEquals(sizes.size(), metrics.getBatchCount());
+        Assertions.assertTrue(metrics.getMaxLatencyNanos() < Duration.ofSeconds(1).toNanos());
+        Assertions.assertEquals(0, t2.getBatchMetrics(t1).getBatchCount(),
+                "A plan execution keeps its metrics to itself");
+    }
+
+    @Test
+    void partitionedTasksProcessTheirRailsConcurrently() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Operation source = inputs -> Flux.range(0, 1_000);
+        Operation square = inputs -> inputs[0].map(i -> {
+            threads.add(Thread.currentThread().getName());
+            return (Integer) i * (Integer) i;
+        });
+        Operation keyedLog = inputs -> inputs[0].map(i -> List.of(Thread.currentThread().getName(), i));
+        Task t1 = new Task("Source", source, Collections.emptyList());
+        Task unordered = new Task("Unordered", square, List.of(t1));
+        Task ordered = new Task("Ordered", square, List.of(t1));
+        Task keyed = new Task("Keyed", keyedLog, List.of(t1));
+        unordered.setPartitioning(PartitioningPolicy.roundRobin(4));
+        ordered.setPartitioning(PartitioningPolicy.ordered(4, 32));
+        keyed.setPartitioning(PartitioningPolicy.byKey(4, i -> (Integer) i % 10));
+        Scheduler rails = Schedulers.newParallel("rails", 4);
+
+        PipelineRun run = PipelinePlan.compile("Partitions", Set.of(t1, unordered, ordered, keyed))
+                .withDefaultProfile(ExecutionProfile.custom("RAILS", rails))
+                .execute();
+        List<Integer> squares = Flux.range(0, 1_000).map(i -> i * i).collectList().block();
+        Assertions.assertEquals(squares, run.getResult(ordered).flux(Integer.class).collectList().block());
+        Assertions.assertEquals(new HashSet<>(squares),
+                new HashSet<>(run.getResult(unordered).flux(Integer.class).collectList().block()));
+        Assertions.assertTrue(threads.size() > 1, "Rails run on several threads");
+
+        Map<Integer, List<Integer>> valuesByKey = new HashMap<>();
+        Map<Integer, Set<Object>> threadsByKey = new HashMap<>();
+        run.getResult(keyed).flux(List.class).toIterable().forEach(entry -> {
+            Integer value = (Integer) entry.get(1);
+            valuesByKey.computeIfAbsent(value % 10, key -> new ArrayList<>()).add(value);
+            threadsByKey.computeIfAbsent(value % 10, key -> new HashSet<>()).add(entry.get(0));
+        });
+        valuesByKey.values().forEach(values -> Assertions.assertEquals(values.stream().sorted()
+                .collect(Collectors.toList()), values, "The elements of a key keep their order"));
+        threadsByKey.values().forEach(names -> Assertions.assertEquals(1, names.size()));
+        rails.dispose();
+
+        Task twoInputs = new Task("Two inputs", square, List.of(unordered, ordered));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> twoInputs.setPartitioning(PartitioningPolicy.roundRobin(2)));
+    }
+
+    @Test
+    void edgeQueuesAreBoundedAndGauged() {
+        Scheduler slow = Schedulers.newSingle("slow-consumer");
+        ExecutionProfile slowProfile = ExecutionProfile.custom("SLOW", slow);
+        Operation source = inputs -> Flux.range(1, 2_000);
+        Operation lagging = inputs -> inputs[0].doOnNext(i -> LockSupport.parkNanos(50_000));
+        Task t1 = new Task("Fast source", source, Collections.emptyList());
+        Task dropping = new Task("Dropping", lagging, List.of(t1), slowProfile);
+        Task blocking = new Task("Blocking", lagging, List.of(t1), slowProfile);
+        Task failing = new Task("Failing", lagging, List.of(t1), slowProfile);
+        dropping.bufferInput(t1, BufferPolicy.of(16, OverflowStrategy.DROP).gauged());
+        blocking.bufferInput(t1, BufferPolicy.of(8, OverflowStrategy.BLOCK).withElementSize(element -> 100).gauged());
+        failing.bufferInput(t1, BufferPolicy.of(4, OverflowStrategy.ERROR));
+        Pipeline pipeline = new Pipeline("Lagging consumers", Set.of(t1, dropping, blocking));
+
+        Map<Task, TaskResult> results = pipeline.execute();
+        long received = results.get(dropping).flux(Integer.class).count().block();
+        BufferMetrics dropQueue = dropping.getBufferMetrics(t1);
+        Assertions.assertTrue(dropQueue.getDroppedCount() > 0, "A lagging consumer makes the queue overflow");
+        Assertions.assertEquals(2_000, received + dropQueue.getDroppedCount());
+        Assertions.assertTrue(dropQueue.getPeakOccupancy() <= 17);
+        Assertions.assertEquals(2_000, results.get(blocking).flux(Integer.class).count().block());
+        BufferMetrics blockQueue = blocking.getBufferMetrics(t1);
+        Assertions.assertEquals(0, blockQueue.getDroppedCount());
+        Assertions.assertTrue(blockQueue.getPeakOccupancy() <= 8, "The producer is held back");
+        Assertions.assertEquals(blockQueue.getPeakOccupancy() * 100, blockQueue.getPeakRetainedBytes());
+        Assertions.assertEquals(0, blockQueue.getOccupancy(), "The queue is empty once the data stopped flowing");
+        Assertions.assertEquals(0, blockQueue.getRetainedBytes());
+
+        EdgeDTO edge = new PipelineDTO(pipeline).getMonitorables().stream()
+                .flatMap(workGroup -> workGroup.getMonitorables().stream())
+                .filter(task -> task.getId().equals(blocking.getMonitor().getId()))
+                .flatMap(task -> task.getInputs().stream())
+                .findFirst().orElseThrow();
+        Assertions.assertEquals(8, edge.getBufferCapacity());
+        Assertions.assertEquals("BLOCK", edge.getOverflowStrategy());
+        Assertions.assertTrue(edge.isGauged());
+        Assertions.assertEquals(blockQueue.getPeakOccupancy(), edge.getPeakOccupancy());
+
+        PipelineRun run = PipelinePlan.compile("Failing", Set.of(t1, failing)).execute();
+        Assertions.assertThrows(IllegalStateException.class, () -> run.getResult(failing).join());
+        run.completed().join();
+        Assertions.assertEquals(ProcessingStatus.IN_ERROR, run.getMonitor().getStatus());
+        BufferMetrics failQueue = run.getBufferMetrics(t1, failing);
+        Assertions.assertEquals(0, failQueue.getPeakOccupancy(), "An edge is only gauged when asked");
+        Assertions.assertEquals(0, failQueue.getDeliveredCount());
+        slow.dispose();
+    }
+
+    @Test
+    void elementSizesFollowArrayLengths() {
+        ToLongFunction<Object> size = BufferPolicy.DEFAULT_ELEMENT_SIZE;
+        Assertions.assertEquals(BufferPolicy.DEFAULT_ELEMENT_BYTES, size.applyAsLong("element"));
+        Assertions.assertEquals(16 + 4 * 1_024, size.applyAsLong(new int[1_024]));
+        Assertions.assertEquals(16 + 8 * 1_024, size.applyAsLong(new long[1_024]));
+        Assertions.assertEquals(16 + 8 * 10, size.applyAsLong(new double[10]));
+        Assertions.assertEquals(64 + 2 * (16 + 4 * 100), size.applyAsLong(List.of(new int[100], new int[100])));
+        Assertions.assertEquals(64 * 4, size.applyAsLong(List.of(1, 2, 3)));
+    }
+
     @Test
     void listAndLinkedHashSetCompatibility() {
         List<String> stringList = List.of("zozo", "alter", "barman");
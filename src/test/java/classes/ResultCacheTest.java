@@ -0,0 +1,167 @@
+package classes;
+
+import com.citizenweb.tooling.taskpipeline.core.model.Operation;
+import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelinePlan;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelineRun;
+import com.citizenweb.tooling.taskpipeline.core.model.ResultCache;
+import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.utils.EventEncoders;
+import com.citizenweb.tooling.taskpipeline.core.utils.PipelineDTO;
+import com.citizenweb.tooling.taskpipeline.core.utils.ProcessingStatus;
+import com.citizenweb.tooling.taskpipeline.core.utils.ResultCacheMetrics;
+import com.citizenweb.tooling.taskpipeline.core.utils.ResultCacheSettings;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResultCacheTest {
+
+    @Test
+    void concurrentPipelinesShareOneComputation() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        Operation loader = inputs -> Flux.defer(() -> {
+            loads.incrementAndGet();
+            return Flux.range(1, 100).delayElements(Duration.ofMillis(1));
+        });
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        ResultCache cache = new ResultCache();
+
+        List<Flux<Integer>> outputs = new ArrayList<>();
+        Pipeline pipeline = null;
+        for (int i = 0; i < 4; i++) {
+            Task reference = new Task("Reference data", loader, Collections.emptyList());
+            reference.setCacheKey("reference");
+            Task consumer = new Task("Consumer", doubler, List.of(reference));
+            pipeline = new Pipeline("Pipeline " + i, Set.of(reference, consumer));
+            pipeline.setResultCache(cache);
+            outputs.add(pipeline.execute().get(consumer).flux(Integer.class));
+        }
+        List<Integer> totals = Flux.fromIterable(outputs)
+                .flatMapSequential(output -> output.reduce(0, Integer::sum))
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(List.of(10_100, 10_100, 10_100, 10_100), totals);
+        Assertions.assertEquals(1, loads.get(), "One computation, shared while in flight");
+        ResultCacheMetrics metrics = cache.getMetrics();
+        Assertions.assertEquals(1, metrics.getMisses());
+        Assertions.assertEquals(3, metrics.getHits());
+        Assertions.assertEquals(1, metrics.getEntries());
+        Assertions.assertEquals(100, metrics.getWeight());
+
+        Assertions.assertEquals(metrics, new PipelineDTO(pipeline).getResultCache());
+        JsonNode exported = new ObjectMapper().readTree(EventEncoders.JSON.encodePipeline(pipeline)).get("resultCache");
+        Assertions.assertEquals(3, exported.get("hits").asLong());
+        Assertions.assertEquals(0.75, exported.get("hitRatio").asDouble());
+    }
+
+    @Test
+    void cacheHitsRunOnTheSchedulerOfTheTask() {
+        ResultCache cache = new ResultCache();
+        List<String> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Task reference = new Task("Reference data", inputs -> Flux.range(1, 10), Collections.emptyList());
+            reference.setCacheKey("reference");
+            PipelineRun run = PipelinePlan.compile("Plan", Set.of(reference)).withResultCache(cache).execute();
+            threads.add(run.getResult(reference).flux().map(element -> Thread.currentThread().getName()).blockLast());
+        }
+        Assertions.assertEquals(1, cache.getMetrics().getHits());
+        Assertions.assertNotEquals(Thread.currentThread().getName(), threads.get(1), "A hit is not run by the caller");
+        Assertions.assertEquals(threads.get(0).replaceAll("-\\d+$", ""), threads.get(1).replaceAll("-\\d+$", ""));
+    }
+
+    @Test
+    void cachedOutputsAreKeyedByTheirInputs() {
+        AtomicInteger loads = new AtomicInteger();
+        Operation source = inputs -> Flux.range(1, 10);
+        Operation summing = inputs -> Flux.defer(() -> {
+            loads.incrementAndGet();
+            return inputs[0].reduce(0, (a, b) -> a + (Integer) b).flux();
+        });
+        ResultCache cache = new ResultCache();
+        PipelinePlan[] plans = new PipelinePlan[2];
+        Task[] sums = new Task[2];
+        for (int i = 0; i < 2; i++) {
+            Task t1 = new Task("Source", source, Collections.emptyList());
+            t1.setCacheKey("source-v" + i);
+            sums[i] = new Task("Sum", summing, List.of(t1));
+            sums[i].setCacheKey("sum");
+            plans[i] = PipelinePlan.compile("Plan " + i, Set.of(t1, sums[i])).withResultCache(cache);
+        }
+        for (int run = 0; run < 3; run++) {
+            for (int i = 0; i < 2; i++) {
+                PipelineRun pipelineRun = plans[i].execute();
+                Assertions.assertEquals(55, pipelineRun.getResult(sums[i]).flux().blockLast());
+                Assertions.assertEquals(ProcessingStatus.DONE, pipelineRun.getMonitor(sums[i]).getStatus());
+            }
+        }
+        Assertions.assertEquals(2, loads.get(), "Same key, different inputs : two outputs");
+        Assertions.assertEquals(4, cache.getMetrics().getEntries());
+    }
+
+    @Test
+    void outputsExpireAndAreEvicted() {
+        MutableClock clock = new MutableClock();
+        ResultCache cache = new ResultCache(ResultCacheSettings.builder()
+                .timeToLive(Duration.ofMinutes(1))
+                .maxWeight(15)
+                .clock(clock)
+                .build());
+        cache.share("a", Flux.range(1, 10)).blockLast();
+        cache.share("b", Flux.range(1, 4)).blockLast();
+        Assertions.assertNotNull(cache.lookup("a"));
+        cache.share("c", Flux.range(1, 5)).blockLast();
+        Assertions.assertNull(cache.lookup("b"), "The least recently used output is evicted");
+        Assertions.assertNotNull(cache.lookup("a"));
+        Assertions.assertEquals(1, cache.getMetrics().getEvictions());
+
+        clock.advance(Duration.ofMinutes(2));
+        Assertions.assertNull(cache.lookup("a"));
+        Assertions.assertEquals(1, cache.getMetrics().getExpirations());
+
+        cache.share("failing", Flux.error(new IllegalStateException("Boom")))
+                .onErrorResume(ex -> Flux.empty()).blockLast();
+        Assertions.assertNull(cache.lookup("failing"), "A failed output is never kept");
+        Assertions.assertEquals(2, cache.getMetrics().getHits());
+        Assertions.assertEquals(3, cache.getMetrics().getMisses(), "Every lookup finding no output is a miss");
+    }
+
+    /** A {@link Clock} tests can move forward */
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            this.now = this.now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.now;
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package classes;
 
+import com.citizenweb.tooling.taskpipeline.core.model.CostBasedOptimizer;
 import com.citizenweb.tooling.taskpipeline.core.model.Operation;
 import com.citizenweb.tooling.taskpipeline.core.model.Pipeline;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelinePlan;
+import com.citizenweb.tooling.taskpipeline.core.model.PipelineRun;
 import com.citizenweb.tooling.taskpipeline.core.model.Task;
+import com.citizenweb.tooling.taskpipeline.core.model.TaskCostHistory;
+import com.citizenweb.tooling.taskpipeline.core.model.TaskResult;
 import com.citizenweb.tooling.taskpipeline.core.model.WorkGroup;
+import com.citizenweb.tooling.taskpipeline.core.model.WorkGroupOptimizer;
 import com.citizenweb.tooling.taskpipeline.core.utils.TaskUtils;
 import data.DataForTests;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -49,6 +57,212 @@ public class UtilsTest {
 
     }
 
+    @Test
+    void rankIsTheLongestDistanceToTheTerminalTask() {
+        Task t1 = new Task("Count to 10", operationsMap.get("Count to 10"), Collections.emptyList());
+        Task t2 = new Task("Count to 100", operationsMap.get("Count to 100"), Collections.emptyList());
+        Task t4 = new Task("Sum t1 t2", operationsMap.get("Sum"), List.of(t1, t2));
+        Task t6 = new Task("Sum t4 t2", operationsMap.get("Sum"), List.of(t4, t2));
+        Set<Task> workGroup = new HashSet<>();
+        TaskUtils.buildWorkGroupFromTerminalToInitial(workGroup, t6, 0);
+        Assertions.assertEquals(Set.of(t1, t2, t4, t6), workGroup);
+        Assertions.assertEquals(1, t6.getMonitor().getRank());
+        Assertions.assertEquals(2, t4.getMonitor().getRank());
+        Assertions.assertEquals(3, t2.getMonitor().getRank());
+        Assertions.assertEquals(3, t1.getMonitor().getRank());
+    }
+
+    @Test
+    void optimizerOnDeepChain() {
+        int depth = 50_000;
+        List<Task> chain = new ArrayList<>(depth);
+        chain.add(new Task("Task 0", operationsMap.get("Count to 10"), Collections.emptyList()));
+        for (int i = 1; i < depth; i++) {
+            chain.add(new Task("Task " + i, operationsMap.get("Sum"), List.of(chain.get(i - 1))));
+        }
+        var workGroups = WorkGroupOptimizer.DEFAULT_OPTIMIZER.optimize(new HashSet<>(chain));
+        Assertions.assertEquals(1, workGroups.size());
+        Assertions.assertEquals(depth, workGroups.iterator().next().getTasks().size());
+        Assertions.assertEquals(depth, chain.get(0).getMonitor().getRank());
+    }
+
+    @Test
+    void optimizerWalksDiamondShapedGraphsLinearly() {
+        for (int layers : new int[]{1_000, 10_000}) {
+            Set<Task> allTasks = this.diamondLadder(layers);
+            CountingTask.walks.set(0);
+            var workGroups = WorkGroupOptimizer.DEFAULT_OPTIMIZER.optimize(allTasks);
+            Assertions.assertEquals(1, workGroups.size());
+            Assertions.assertEquals(allTasks.size(), workGroups.iterator().next().getTasks().size());
+            Assertions.assertEquals(layers + 1, allTasks.stream()
+                    .filter(Task.isInitialTask).findAny().orElseThrow().getMonitor().getRank());
+
+            CountingTask.walks.set(0);
+            TaskUtils.collectWorkPaths(List.of(workGroups.iterator().next().getEndingTask()));
+            /* Once while collecting the graph, once while ranking it : a path-by-path walk needs 2^layers */
+            Assertions.assertEquals(2L * allTasks.size(), CountingTask.walks.get());
+        }
+    }
+
+    @Test
+    void terminalTasksSharingAncestorsWalkThemOnce() {
+        int depth = 1_000;
+        int terminals = 100;
+        List<Task> chain = new ArrayList<>(depth);
+        chain.add(new CountingTask("Task 0", Collections.emptyList()));
+        for (int i = 1; i < depth; i++) {
+            chain.add(new CountingTask("Task " + i, List.of(chain.get(i - 1))));
+        }
+        List<Task> terminalTasks = new ArrayList<>(terminals);
+        for (int i = 0; i < terminals; i++) {
+            terminalTasks.add(new CountingTask("Terminal " + i, List.of(chain.get(depth - 1))));
+        }
+        CountingTask.walks.set(0);
+        Map<Task, Set<Task>> workPaths = TaskUtils.collectWorkPaths(terminalTasks);
+        Assertions.assertEquals(2L * (depth + terminals), CountingTask.walks.get(),
+                "The shared chain is walked once, not once per terminal task");
+        Assertions.assertEquals(terminals, workPaths.size());
+        workPaths.forEach((terminal, workPath) -> {
+            Assertions.assertEquals(depth + 1, workPath.size());
+            Assertions.assertTrue(workPath.contains(terminal));
+            Assertions.assertTrue(workPath.containsAll(chain));
+        });
+        Assertions.assertEquals(depth + 1, chain.get(0).getMonitor().getRank());
+    }
+
+    @Test
+    void plansRankTasksWithoutTouchingTheirMonitors() {
+        Task t1 = new Task("Count to 10", operationsMap.get("Count to 10"), Collections.emptyList());
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Task t2 = new Task("Doubler", doubler, List.of(t1));
+        Map<Task, Integer> ranks = TaskUtils.rankTasks(List.of(t2));
+        Assertions.assertEquals(Map.of(t1, 2, t2, 1), ranks);
+
+        PipelineRun run = PipelinePlan.compile("Ranked", Set.of(t1, t2), WorkGroupOptimizer.COMPONENTS_OPTIMIZER)
+                .execute();
+        run.getResult(t2).join();
+        Assertions.assertEquals(2, run.getMonitor(t1).getRank());
+        Assertions.assertEquals(0, t1.getMonitor().getRank(), "The Task's own Monitor is left untouched");
+        Assertions.assertEquals(0, t2.getMonitor().getRank());
+    }
+
+    @Test
+    void componentsOptimizerGivesEachTaskToExactlyOneWorkGroup() {
+        Operation source = inputs -> Flux.range(1, 10);
+        Operation sum = inputs -> Flux.zip(inputs[0], inputs[1], (a, b) -> (Integer) a + (Integer) b);
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Task t1 = new Task("Source 1", source, Collections.emptyList());
+        Task t2 = new Task("Source 2", source, Collections.emptyList());
+        Task t3 = new Task("Source 3", source, Collections.emptyList());
+        Task t4 = new Task("Sum t1 t2", sum, List.of(t1, t2));
+        Task t5 = new Task("Sum t2 t3", sum, List.of(t2, t3));
+        Task t6 = new Task("Double t5", doubler, List.of(t5));
+        Task t7 = new Task("Source 7", source, Collections.emptyList());
+        Task t8 = new Task("Double t7", doubler, List.of(t7));
+        Set<Task> allTasks = Set.of(t1, t2, t3, t4, t5, t6, t7, t8);
+
+        var workGroups = WorkGroupOptimizer.COMPONENTS_OPTIMIZER.optimize(allTasks);
+        Assertions.assertEquals(2, workGroups.size());
+        Assertions.assertEquals(allTasks.size(), workGroups.stream().mapToInt(group -> group.getTasks().size()).sum(),
+                "No task is shared");
+        WorkGroup shared = workGroups.stream().filter(group -> group.getTasks().contains(t2)).findAny().orElseThrow();
+        Assertions.assertEquals(Set.of(t1, t2, t3, t4, t5, t6), shared.getTasks());
+        Assertions.assertEquals(Set.of(t4, t6), shared.getEndingTasks());
+        Assertions.assertEquals(List.of(Set.of(t1, t2, t3), Set.of(t4, t5), Set.of(t6)),
+                TaskUtils.levelTasks(shared.getTasks()));
+        Assertions.assertEquals(List.of(t2, t3, t1), new ArrayList<>(shared.getStartingTasks()),
+                "Tasks heading the longest chains first");
+        Assertions.assertEquals(3, shared.getWidth());
+        Assertions.assertEquals(3, shared.getCriticalPathLength());
+        WorkGroup chain = workGroups.stream().filter(group -> group.getTasks().contains(t7)).findAny().orElseThrow();
+        Assertions.assertEquals(1, chain.getWidth());
+        Assertions.assertEquals(2, chain.getCriticalPathLength());
+
+        Pipeline pipeline = new Pipeline("Pipeline", allTasks, WorkGroupOptimizer.COMPONENTS_OPTIMIZER);
+        Map<Task, TaskResult> results = pipeline.execute();
+        Assertions.assertEquals(Set.of(t4, t6, t8), results.keySet());
+        Assertions.assertEquals(110, results.get(t4).flux(Integer.class).reduce(0, Integer::sum).block());
+        Assertions.assertEquals(220, results.get(t6).flux(Integer.class).reduce(0, Integer::sum).block());
+        Assertions.assertEquals(110, results.get(t8).flux(Integer.class).reduce(0, Integer::sum).block());
+    }
+
+    @Test
+    void costBasedOptimizerSchedulesLongBranchesFirst() {
+        Operation source = inputs -> Flux.range(1, 10);
+        Operation doubler = inputs -> inputs[0].map(i -> (Integer) i * 2);
+        Task cheapSource = new Task("Cheap source", source, Collections.emptyList());
+        Task slowSource = new Task("Slow source", source, Collections.emptyList());
+        Task longBranch = new Task("Long branch", doubler, List.of(slowSource));
+        Task mediumBranch = new Task("Medium branch", doubler, List.of(cheapSource));
+        Task shortBranch = new Task("Short branch", doubler, List.of(cheapSource));
+        Set<Task> allTasks = Set.of(cheapSource, slowSource, longBranch, mediumBranch, shortBranch);
+
+        TaskCostHistory history = new TaskCostHistory();
+        CostBasedOptimizer optimizer = new CostBasedOptimizer(history, 2);
+        Assertions.assertEquals(3, optimizer.optimize(allTasks).size(), "Without history, one WorkGroup by terminal");
+
+        history.record("Cheap source", 5);
+        history.record("Slow source", 95);
+        history.record("Long branch", 5);
+        history.record("Medium branch", 55);
+        history.record("Short branch", 45);
+        List<WorkGroup> workGroups = new ArrayList<>(optimizer.optimize(allTasks));
+        Assertions.assertEquals(2, workGroups.size(), "Balanced across the available cores");
+        Assertions.assertEquals(Set.of(slowSource, longBranch), workGroups.get(0).getTasks(),
+                "The longest critical path comes first");
+        Assertions.assertEquals(Set.of(mediumBranch, shortBranch), workGroups.get(1).getEndingTasks());
+        Assertions.assertEquals(Set.of(cheapSource, mediumBranch, shortBranch), workGroups.get(1).getTasks());
+        Assertions.assertNotNull(workGroups.get(0).getPriority());
+
+        Pipeline pipeline = new Pipeline("Pipeline", allTasks, optimizer);
+        pipeline.execute().values().forEach(TaskResult::join);
+        Assertions.assertEquals(Set.of(longBranch, mediumBranch, shortBranch),
+                pipeline.getWorkGroups().stream().flatMap(group -> group.getEndingTasks().stream())
+                        .collect(Collectors.toSet()));
+        TaskCostHistory measured = new TaskCostHistory();
+        measured.record(pipeline);
+        allTasks.forEach(task -> Assertions.assertTrue(measured.costOf(task.getName()).isPresent()));
+
+        history.record("Medium branch", 5);
+        Assertions.assertEquals(40, history.costOf("Medium branch").getAsLong(), "New measures are averaged in");
+    }
+
+    /**
+     * Builds a ladder of diamonds : each layer holds 2 tasks, both depending on the 2 tasks of the previous layer.
+     * There are 2^layers paths from the top task down to the initial ones.
+     * @return all the tasks of the ladder
+     */
+    private Set<Task> diamondLadder(int layers) {
+        Set<Task> allTasks = new HashSet<>();
+        List<Task> previous = List.of(
+                new CountingTask("Left 0", Collections.emptyList()),
+                new CountingTask("Right 0", Collections.emptyList()));
+        allTasks.addAll(previous);
+        for (int i = 1; i < layers; i++) {
+            previous = List.of(
+                    new CountingTask("Left " + i, previous),
+                    new CountingTask("Right " + i, previous));
+            allTasks.addAll(previous);
+        }
+        allTasks.add(new CountingTask("Top", previous));
+        return allTasks;
+    }
+
+    /** Counts how many times the predecessors of any of its instances are walked through */
+    private static class CountingTask extends Task {
+        static final AtomicLong walks = new AtomicLong();
+
+        CountingTask(String taskName, List<Task> predecessors) {
+            super(taskName, operationsMap.get("Sum"), predecessors);
+        }
+
+        @Override
+        public LinkedHashSet<Task> getPredecessors() {
+            walks.incrementAndGet();
+            return super.getPredecessors();
+        }
+    }
+
     private final Consumer<Pipeline> printTasksState = pipeline -> {
         log.info("--- MONITOR DATA ---");
         pipeline.getTasks()